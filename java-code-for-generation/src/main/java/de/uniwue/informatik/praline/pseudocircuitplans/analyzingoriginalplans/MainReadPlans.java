@@ -1,11 +1,21 @@
 package de.uniwue.informatik.praline.pseudocircuitplans.analyzingoriginalplans;
 
 import de.uniwue.informatik.praline.datastructure.graphs.Graph;
-import de.uniwue.informatik.praline.datastructure.utils.Serialization;
+import de.uniwue.informatik.praline.pseudocircuitplans.generatingnewplans.PlanSource;
 import de.uniwue.informatik.praline.pseudocircuitplans.properties.*;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
 
 public class MainReadPlans {
 
@@ -14,8 +24,87 @@ public class MainReadPlans {
 //            "largest-comp-praline-package-2020-05-18";
             "praline-readable-2020-09-04";
 
+    /**
+     * if all properties of a plan that are not in the cache are cheap (see {@link QuickScan#isSupported(Property)}),
+     * compute them directly from the json tokens without creating the plan
+     */
+    private final static boolean QUICK_SCAN = true;
+
+    /**
+     * if true, {@link MainReadPlans#main(String[])} computes only the cheap properties, s.t. with
+     * {@link MainReadPlans#QUICK_SCAN} no plan is created at all
+     */
+    private final static boolean QUICK_SCAN_PROPERTIES_ONLY = false;
+
+    /**
+     * if true, computed property values are stored in {@link MainReadPlans#PROPERTY_CACHE} and reused for plans with
+     * the same content
+     */
+    private final static boolean USE_PROPERTY_CACHE = true;
+
+    private final static PropertyCache PROPERTY_CACHE = new PropertyCache(PropertyCache.DEFAULT_DIRECTORY);
+
+    /**
+     * if true, the graph of each plan is released as soon as its values are computed, s.t. only the values are kept in
+     * memory and at most one graph per reader thread is in memory at a time (the graphs can be read again via
+     * {@link PropertySheet#loadGraph()})
+     */
+    private final static boolean STREAMING_ANALYSIS = true;
+
+    /**
+     * if not null, the values of each plan and the statistics are also written to files starting with this path (see
+     * {@link StatisticsExport})
+     */
+    private final static String EXPORT_PATH = null;
+
+    /**
+     * if true, the values are not kept in memory but spilled to column files in {@link MainReadPlans#SPILL_DIRECTORY}
+     * (see {@link SpilledDataSetProperties}) -- for data sets whose values do not fit into the heap
+     */
+    private final static boolean OUT_OF_CORE = false;
+
+    private final static String SPILL_DIRECTORY = "data" + File.separator + "spilled-properties";
+
+    /**
+     * if not null, the statistics are kept in a {@link DataSetSummary} in this file: only plans that are not in it yet
+     * are analyzed and added to it, s.t. plans added to the data set later do not require analyzing all plans again
+     */
+    private final static String SUMMARY_PATH = null;
+
+    /**
+     * properties with (almost) only distinct values, whose values are summarized by a quantile sketch in the
+     * {@link DataSetSummary} (see {@link KllSketch}) -- their medians are approximations and they have no modes
+     */
+    private final static List<String> SKETCHED_PROPERTIES = Arrays.asList("averageDistancesInLargestComponent",
+            "averageDistances", "edgeSpliceIncidences/edgePortIncidences", "(ports/portGroup)/(ports/vertex)");
+
+    /**
+     * replicates of the bootstrap confidence intervals of mean, median and standard deviation in the text output (see
+     * {@link BootstrapConfidenceIntervals}) -- 0 for no confidence intervals. Each replicate goes through the values
+     * of all plans of each column twice, i.e., for a number distribution property once per inner statistic parameter.
+     */
+    private final static int BOOTSTRAP_REPLICATES = 0;
+
+    private final static int NUMBER_OF_READER_THREADS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * threads computing the statistics of the properties for the text output
+     */
+    private final static int NUMBER_OF_STATISTICS_THREADS = Runtime.getRuntime().availableProcessors();
+
     public static void main(String[] args) throws IOException {
-        DataSetProperties originalPlansProperties = getDataSetProperties(SOURCE_PATH, true);
+        Collection<Property> properties = QUICK_SCAN_PROPERTIES_ONLY ? QuickScan.getSupportedProperties() :
+                PropertyManager.getAllProperties();
+        DataSetStatistics originalPlansProperties;
+        if (SUMMARY_PATH != null) {
+            originalPlansProperties = updateDataSetSummary(SOURCE_PATH, true, properties, SUMMARY_PATH);
+        }
+        else if (OUT_OF_CORE) {
+            originalPlansProperties = getSpilledDataSetProperties(SOURCE_PATH, true, properties, SPILL_DIRECTORY);
+        }
+        else {
+            originalPlansProperties = getDataSetProperties(SOURCE_PATH, true, properties);
+        }
 
         //text output for the complete statistics
         System.out.println();
@@ -23,85 +112,542 @@ public class MainReadPlans {
         System.out.println();
         System.out.println("=======================================================================");
         System.out.println();
-        System.out.println("Evaluated " + originalPlansProperties.size() + " original plans. Statistics:");
+        System.out.println("Evaluated " + originalPlansProperties.getNumberOfPlans() + " original plans. Statistics:");
         System.out.println();
-        textOutputStatistics(originalPlansProperties, null);
+        textOutputStatistics(originalPlansProperties, null, EXPORT_PATH);
+        if (EXPORT_PATH != null) {
+            exportPlanValues(originalPlansProperties, EXPORT_PATH);
+        }
+        if (originalPlansProperties instanceof SpilledDataSetProperties) {
+            ((SpilledDataSetProperties) originalPlansProperties).close();
+        }
     }
 
     /**
+     * All statistics of each property are computed at once (see {@link StatisticsMatrix}) and the properties are
+     * processed in parallel. The text is written in the order of {@link PropertyManager#getAllProperties()}.
+     * If the values of the plans are there, bootstrap confidence intervals are written, too (see
+     * {@link BootstrapConfidenceIntervals}), and for two data sets the distances between them (see
+     * {@link DistributionComparison}). All of them are computed from the columns of the property, which are built only
+     * once per data set (see {@link PropertyColumns}).
      *
      * @param props0
      * @param props1
      *      might be null
+     * @throws IOException
      */
-    public static void textOutputStatistics(DataSetProperties props0, DataSetProperties props1) {
+    public static void textOutputStatistics(DataSetStatistics props0, DataSetStatistics props1) throws IOException {
+        textOutputStatistics(props0, props1, null);
+    }
+
+    /**
+     * @param props0
+     * @param props1
+     *      might be null
+     * @param exportPathPrefix
+     *      if not null, the statistics are also written to files starting with this path (see
+     *      {@link StatisticsExport#writeStatistics(List, String)})
+     * @throws IOException
+     */
+    public static void textOutputStatistics(DataSetStatistics props0, DataSetStatistics props1,
+                                            String exportPathPrefix) throws IOException {
+        List<Property> properties = new ArrayList<>();
+        List<Property> propertiesWithStatistics = new ArrayList<>();
         for (Property property : PropertyManager.getAllProperties()) {
-            if (property instanceof NumericalProperty) {
+            if (!props0.hasValuesOf(property) || (props1 != null && !props1.hasValuesOf(property))) {
+                continue;
+            }
+            properties.add(property);
+            if (property instanceof NumericalProperty || property instanceof NumberDistributionProperty) {
+                propertiesWithStatistics.add(property);
+            }
+        }
+        Map<Property, CompletableFuture<StatisticsMatrix>> statistics0 = new LinkedHashMap<>();
+        Map<Property, CompletableFuture<StatisticsMatrix>> statistics1 = new LinkedHashMap<>();
+        Map<Property, CompletableFuture<BootstrapConfidenceIntervals>> intervals0 = new LinkedHashMap<>();
+        Map<Property, CompletableFuture<BootstrapConfidenceIntervals>> intervals1 = new LinkedHashMap<>();
+        Map<Property, CompletableFuture<DistributionComparison>> comparisons = new LinkedHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_STATISTICS_THREADS);
+        try {
+            for (Property property : propertiesWithStatistics) {
+                CompletableFuture<PropertyColumns> columns0 = getColumns(props0, property, executor);
+                CompletableFuture<PropertyColumns> columns1 = getColumns(props1, property, executor);
+                //not async: computed from the columns right after they are built and by the same thread, s.t. only
+                //the columns of the properties in progress are in memory
+                statistics0.put(property, computeStatistics(props0, property, columns0, executor));
+                statistics1.put(property, computeStatistics(props1, property, columns1, executor));
+                intervals0.put(property, columns0.thenApply(MainReadPlans::computeConfidenceIntervals));
+                intervals1.put(property, columns1.thenApply(MainReadPlans::computeConfidenceIntervals));
+                comparisons.put(property, columns0.thenCombine(columns1, MainReadPlans::compare));
+            }
+
+            if (exportPathPrefix != null) {
+                List<Map<Property, StatisticsMatrix>> statistics = new ArrayList<>();
+                statistics.add(join(statistics0));
+                if (props1 != null) {
+                    statistics.add(join(statistics1));
+                }
+                StatisticsExport.writeStatistics(statistics, exportPathPrefix);
+            }
+
+            //System.out is not closed, only flushed
+            PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
+            for (Property property : properties) {
+                if (!statistics0.containsKey(property)) {
+                    textOutputStatistics(out, property, null, null, null, null, null);
+                    continue;
+                }
+                textOutputStatistics(out, property, statistics0.get(property).join(),
+                        statistics1.get(property).join(), intervals0.get(property).join(),
+                        intervals1.get(property).join(), comparisons.get(property).join());
+            }
+            out.flush();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException("Computing the statistics failed.", e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Writes the block of one property of {@link MainReadPlans#textOutputStatistics(DataSetStatistics,
+     * DataSetStatistics, String)}.
+     *
+     * @param out
+     * @param property
+     * @param matrix0
+     *      null if the property has no statistics
+     * @param matrix1
+     *      might be null
+     * @param intervals0
+     *      confidence intervals of the first data set, might be null
+     * @param intervals1
+     *      confidence intervals of the second data set, might be null
+     * @param comparison
+     *      distances between both data sets, might be null
+     */
+    public static void textOutputStatistics(PrintWriter out, Property property, StatisticsMatrix matrix0,
+                                            StatisticsMatrix matrix1, BootstrapConfidenceIntervals intervals0,
+                                            BootstrapConfidenceIntervals intervals1,
+                                            DistributionComparison comparison) {
+        if (property instanceof NumericalProperty) {
+            for (StatisticParameter statisticParameter : StatisticParameter.values()) {
+                out.print(statisticParameter.name() + " of " + property.getPropertyName() + ": " +
+                        matrix0.get(statisticParameter));
+                if (matrix1 != null) {
+                    out.print(" | " + matrix1.get(statisticParameter));
+                }
+                out.println();
+            }
+            textOutputConfidenceIntervals(out, property.getPropertyName() + ": ", null, intervals0, intervals1);
+            if (comparison != null) {
+                out.println("KOLMOGOROV_SMIRNOV of " + property.getPropertyName() + ": " +
+                        comparison.getKolmogorovSmirnovStatistic());
+                out.println("WASSERSTEIN_1 of " + property.getPropertyName() + ": " +
+                        comparison.getWassersteinDistance());
+                out.println("EFFECT_SIZE of " + property.getPropertyName() + ": " + comparison.getEffectSize());
+            }
+            out.println();
+        }
+        else if (property instanceof NumberDistributionProperty) {
+            for (StatisticParameter useThisParameterForInternalDataOfEachGraph : StatisticParameter.values()) {
                 for (StatisticParameter statisticParameter : StatisticParameter.values()) {
-                    System.out.print(statisticParameter.name() + " of " + property.getPropertyName() + ": " +
-                            props0.get((NumericalProperty<?>) property, statisticParameter));
-                    if (props1 != null) {
-                        System.out.print(" | " + props1.get((NumericalProperty<?>) property, statisticParameter));
+                    out.print(statisticParameter.name() + " of " + property.getPropertyName() + " (" +
+                            useThisParameterForInternalDataOfEachGraph.name() + "): " +
+                            matrix0.get(useThisParameterForInternalDataOfEachGraph, statisticParameter));
+                    if (matrix1 != null) {
+                        out.print(" | " + matrix1.get(useThisParameterForInternalDataOfEachGraph, statisticParameter));
                     }
-                    System.out.println();
+                    out.println();
                 }
-                System.out.println();
-            }
-            else if (property instanceof NumberDistributionProperty) {
-                for (StatisticParameter useThisParameterForInternalDataOfEachGraph : StatisticParameter.values()) {
-                    for (StatisticParameter statisticParameter : StatisticParameter.values()) {
-                        System.out.print(statisticParameter.name() + " of " + property.getPropertyName() + " (" +
-                                useThisParameterForInternalDataOfEachGraph.name() + "): " +
-                                props0.get((NumberDistributionProperty<?>) property,
-                                        useThisParameterForInternalDataOfEachGraph, statisticParameter));
-                        if (props1 != null) {
-                            System.out.print(" | " + props1.get((NumberDistributionProperty<?>) property,
-                                    useThisParameterForInternalDataOfEachGraph, statisticParameter));
-                        }
-                        System.out.println();
-                    }
-                    System.out.println();
+                textOutputConfidenceIntervals(out, property.getPropertyName() + " (" +
+                                useThisParameterForInternalDataOfEachGraph.name() + "): ",
+                        useThisParameterForInternalDataOfEachGraph, intervals0, intervals1);
+                if (comparison != null) {
+                    String suffix = " (" + useThisParameterForInternalDataOfEachGraph.name() + "): ";
+                    out.println("KOLMOGOROV_SMIRNOV of " + property.getPropertyName() + suffix +
+                            comparison.getKolmogorovSmirnovStatistic(useThisParameterForInternalDataOfEachGraph));
+                    out.println("WASSERSTEIN_1 of " + property.getPropertyName() + suffix +
+                            comparison.getWassersteinDistance(useThisParameterForInternalDataOfEachGraph));
+                    out.println("EFFECT_SIZE of " + property.getPropertyName() + suffix +
+                            comparison.getEffectSize(useThisParameterForInternalDataOfEachGraph));
                 }
+                out.println();
             }
-            System.out.println("---");
-            System.out.println();
         }
+        out.println("---");
+        out.println();
     }
 
-    public static DataSetProperties getDataSetProperties(String path, boolean textOutput) throws IOException {
-        File sourceDir = new File(path);
-        if (!sourceDir.exists() || !sourceDir.isDirectory()) {
-            throw new IOException(path + " is no directory or does not exist. Abort.");
+    private static void textOutputConfidenceIntervals(PrintWriter out, String name,
+                                                      StatisticParameter useThisParameterForInternalDataOfEachGraph,
+                                                      BootstrapConfidenceIntervals intervals0,
+                                                      BootstrapConfidenceIntervals intervals1) {
+        if (intervals0 == null) {
+            return;
         }
-        //go through all files and if it is a json, it should be a circuit plan and we read it
-        DataSetProperties plansProperties = new DataSetProperties();
-        for (File file : sourceDir.listFiles()) {
-            if (file.isFile() && file.getName().endsWith(".json") &&
-                    (!path.contains("readable") || file.getName().endsWith("-praline.json"))) {
-                plansProperties.add(analyzePlan(file, textOutput));
+        for (StatisticParameter statisticParameter : BootstrapConfidenceIntervals.STATISTIC_PARAMETERS) {
+            out.print(Math.round(BootstrapConfidenceIntervals.CONFIDENCE_LEVEL * 100) + "% CI of " +
+                    statisticParameter.name() + " of " + name +
+                    textOutputInterval(intervals0, useThisParameterForInternalDataOfEachGraph, statisticParameter));
+            if (intervals1 != null) {
+                out.print(" | " +
+                        textOutputInterval(intervals1, useThisParameterForInternalDataOfEachGraph, statisticParameter));
             }
+            out.println();
+        }
+    }
+
+    private static String textOutputInterval(BootstrapConfidenceIntervals intervals,
+                                             StatisticParameter useThisParameterForInternalDataOfEachGraph,
+                                             StatisticParameter statisticParameter) {
+        if (useThisParameterForInternalDataOfEachGraph == null) {
+            return "[" + intervals.getLowerBound(statisticParameter) + ", " +
+                    intervals.getUpperBound(statisticParameter) + "]";
+        }
+        return "[" + intervals.getLowerBound(useThisParameterForInternalDataOfEachGraph, statisticParameter) + ", " +
+                intervals.getUpperBound(useThisParameterForInternalDataOfEachGraph, statisticParameter) + "]";
+    }
+
+    /**
+     * @return
+     *      the columns of this property built by the executor (see {@link DataSetColumns#getColumns(Property)}) or
+     *      null if there is no data set or the values of its plans are not there
+     */
+    private static CompletableFuture<PropertyColumns> getColumns(DataSetStatistics props, Property property,
+                                                                 ExecutorService executor) {
+        if (!(props instanceof DataSetColumns)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.supplyAsync(() -> ((DataSetColumns) props).getColumns(property), executor);
+    }
+
+    /**
+     * @return
+     *      the statistics computed from the columns or, if the values of the plans are not there, computed by the
+     *      executor from the data set -- null if there is no data set
+     */
+    private static CompletableFuture<StatisticsMatrix> computeStatistics(DataSetStatistics props, Property property,
+                                                                         CompletableFuture<PropertyColumns> columns,
+                                                                         ExecutorService executor) {
+        if (props instanceof DataSetColumns) {
+            return columns.thenApply(StatisticsMatrix::compute);
+        }
+        if (props == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.supplyAsync(() -> StatisticsMatrix.compute(props, property), executor);
+    }
+
+    /**
+     * @return
+     *      null if there are no confidence intervals because they are disabled or the values of the plans are not there
+     */
+    private static BootstrapConfidenceIntervals computeConfidenceIntervals(PropertyColumns columns) {
+        if (BOOTSTRAP_REPLICATES <= 0 || columns == null) {
+            return null;
+        }
+        return BootstrapConfidenceIntervals.compute(columns, BOOTSTRAP_REPLICATES);
+    }
+
+    /**
+     * @return
+     *      null if the values of the plans of one of the data sets are not there
+     */
+    private static DistributionComparison compare(PropertyColumns columns0, PropertyColumns columns1) {
+        if (columns0 == null || columns1 == null) {
+            return null;
+        }
+        return DistributionComparison.compute(columns0, columns1);
+    }
+
+    /**
+     * @return
+     *      the results in the order of the futures
+     */
+    private static <T> Map<Property, T> join(Map<Property, CompletableFuture<T>> futures) {
+        Map<Property, T> results = new LinkedHashMap<>();
+        for (Map.Entry<Property, CompletableFuture<T>> future : futures.entrySet()) {
+            results.put(future.getKey(), future.getValue().join());
         }
+        return results;
+    }
+
+    /**
+     * Writes the values of each plan to files starting with exportPathPrefix (see
+     * {@link StatisticsExport#writePlanValues(DataSetProperties, Collection, String)}) -- only if the values of all
+     * plans are in memory.
+     *
+     * @param props
+     * @param exportPathPrefix
+     * @throws IOException
+     */
+    public static void exportPlanValues(DataSetStatistics props, String exportPathPrefix) throws IOException {
+        if (!(props instanceof DataSetProperties)) {
+            System.out.println("The values of the single plans are not exported because they are not in memory.");
+            return;
+        }
+        StatisticsExport.writePlanValues((DataSetProperties) props, PropertyManager.getAllProperties(),
+                exportPathPrefix);
+    }
+
+    public static DataSetProperties getDataSetProperties(String path, boolean textOutput) throws IOException {
+        return getDataSetProperties(path, textOutput, PropertyManager.getAllProperties());
+    }
+
+    /**
+     * @param path
+     *      directory, archive or json file (see {@link PlanSource})
+     * @param textOutput
+     * @param properties
+     *      only these properties are computed
+     * @return
+     * @throws IOException
+     */
+    public static DataSetProperties getDataSetProperties(String path, boolean textOutput,
+                                                         Collection<Property> properties) throws IOException {
+        return getDataSetProperties(path, textOutput, properties, name -> true);
+    }
+
+    /**
+     * @param path
+     *      directory, archive or json file (see {@link PlanSource})
+     * @param textOutput
+     * @param properties
+     *      only these properties are computed
+     * @param planNameFilter
+     *      only plans whose name is accepted are analyzed (in addition to the filter for readable data sets)
+     * @return
+     * @throws IOException
+     */
+    public static DataSetProperties getDataSetProperties(String path, boolean textOutput,
+                                                         Collection<Property> properties,
+                                                         Predicate<String> planNameFilter) throws IOException {
+        PlanSource planSource = openPlanSource(path, planNameFilter);
+        boolean quickScan = useQuickScan(planSource, properties);
+        DataSetProperties plansProperties = new DataSetProperties();
+        plansProperties.addAll(planSource.readAll(plan -> analyzePlan(plan, textOutput, properties, quickScan),
+                NUMBER_OF_READER_THREADS));
+        return plansProperties;
+    }
+
+    /**
+     * Like {@link MainReadPlans#getDataSetProperties(String, boolean, Collection)}, but the plans are analyzed by the
+     * threads of the given executor, which may analyze another data set at the same time. The executor is not shut
+     * down.
+     *
+     * @param path
+     *      directory, archive or json file (see {@link PlanSource})
+     * @param textOutput
+     * @param properties
+     *      only these properties are computed
+     * @param workers
+     * @param numberOfWorkers
+     *      number of threads of workers
+     * @return
+     * @throws IOException
+     */
+    public static DataSetProperties getDataSetProperties(String path, boolean textOutput,
+                                                         Collection<Property> properties, ExecutorService workers,
+                                                         int numberOfWorkers) throws IOException {
+        PlanSource planSource = openPlanSource(path);
+        boolean quickScan = useQuickScan(planSource, properties);
+        DataSetProperties plansProperties = new DataSetProperties();
+        plansProperties.addAll(planSource.readAll(plan -> analyzePlan(plan, textOutput, properties, quickScan),
+                workers, numberOfWorkers * PlanSource.ENTRIES_IN_FLIGHT_PER_THREAD));
         return plansProperties;
     }
 
-    private static PropertySheet analyzePlan(File jsonFile, boolean textOutput) throws IOException {
-        Graph plan = Serialization.read(jsonFile, Graph.class);
+    /**
+     * @param path
+     *      directory, archive or json file (see {@link PlanSource})
+     * @return
+     *      ids of all plans that {@link MainReadPlans#getDataSetProperties(String, boolean)} analyzes (see
+     *      {@link PlanSource.Entry#getPlanId()}) -- the plans are not parsed
+     * @throws IOException
+     */
+    public static List<String> getPlanIds(String path) throws IOException {
+        return openPlanSource(path).readAll(PlanSource.Entry::getPlanId, NUMBER_OF_READER_THREADS);
+    }
 
-        if (textOutput) {
-            System.out.println("read plan " + jsonFile.getName());
+    /**
+     * Like {@link MainReadPlans#getDataSetProperties(String, boolean, Collection)}, but the values of each plan are
+     * spilled to column files right after it was analyzed, s.t. the size of the data set is not limited by the heap.
+     *
+     * @param path
+     *      directory, archive or json file (see {@link PlanSource})
+     * @param textOutput
+     * @param properties
+     *      only these properties are computed
+     * @param spillDirectoryPath
+     *      directory for the column files (see {@link SpilledDataSetProperties})
+     * @return
+     *      close it when it is not needed any more to delete its column files
+     * @throws IOException
+     */
+    public static SpilledDataSetProperties getSpilledDataSetProperties(String path, boolean textOutput,
+                                                                       Collection<Property> properties,
+                                                                       String spillDirectoryPath) throws IOException {
+        PlanSource planSource = openPlanSource(path);
+        boolean quickScan = useQuickScan(planSource, properties);
+        SpilledDataSetProperties plansProperties = new SpilledDataSetProperties(spillDirectoryPath, properties);
+        try {
+            planSource.readAll(plan -> {
+                plansProperties.spill(analyzePlan(plan, textOutput, properties, quickScan));
+                return null;
+            }, NUMBER_OF_READER_THREADS);
+        }
+        catch (IOException | RuntimeException e) {
+            plansProperties.close();
+            throw e;
         }
+        return plansProperties;
+    }
 
-        PropertySheet propertySheet = new PropertySheet(plan);
-        for (Property property : PropertyManager.getAllProperties()) {
-            propertySheet.addValue(new PropertyValue<>(property, plan));
-            if (textOutput) {
-                System.out.println(property.getPropertyName() + ": " + propertySheet.getPropertyValue(property));
+    /**
+     * Analyzes all plans that are not yet in the summary saved at summaryPath, adds them to it and saves it again.
+     * If there is no such summary or it lacks some of the properties (e.g. because of a new version of a property), all
+     * plans are analyzed.
+     *
+     * @param path
+     *      directory, archive or json file (see {@link PlanSource})
+     * @param textOutput
+     * @param properties
+     *      only these properties are computed
+     * @param summaryPath
+     *      file of the {@link DataSetSummary}
+     * @return
+     * @throws IOException
+     */
+    public static DataSetSummary updateDataSetSummary(String path, boolean textOutput, Collection<Property> properties,
+                                                      String summaryPath) throws IOException {
+        File summaryFile = new File(summaryPath);
+        DataSetSummary summary = null;
+        if (summaryFile.exists()) {
+            try {
+                summary = DataSetSummary.load(summaryFile);
+            }
+            catch (IOException e) {
+                System.out.println("Summary " + summaryPath + " cannot be read: " + e.getMessage());
+            }
+            if (summary != null && !summary.hasValuesOfAll(properties)) {
+                System.out.println("Summary " + summaryPath + " is not up to date. Analyze all plans again.");
+                summary = null;
             }
         }
+        if (summary == null) {
+            List<Property> sketchedProperties = new ArrayList<>();
+            for (String propertyName : SKETCHED_PROPERTIES) {
+                sketchedProperties.add(PropertyManager.getProperty(propertyName));
+            }
+            summary = new DataSetSummary(properties, sketchedProperties);
+        }
+        int numberOfPlansBefore = summary.getNumberOfPlans();
+
+        PlanSource planSource = openPlanSource(path);
+        boolean quickScan = useQuickScan(planSource, properties);
+        DataSetSummary finalSummary = summary;
+        planSource.readAll(plan -> {
+            if (!finalSummary.contains(plan.getPlanId())) {
+                finalSummary.add(analyzePlan(plan, textOutput, properties, quickScan));
+            }
+            return null;
+        }, NUMBER_OF_READER_THREADS);
+
+        if (summary.getNumberOfPlans() > numberOfPlansBefore || !summaryFile.exists()) {
+            summary.save(summaryPath);
+        }
+        System.out.println("Added " + (summary.getNumberOfPlans() - numberOfPlansBefore) + " plans to summary " +
+                summaryPath + ".");
+        return summary;
+    }
+
+    static PlanSource openPlanSource(String path) throws IOException {
+        return openPlanSource(path, name -> true);
+    }
+
+    private static PlanSource openPlanSource(String path, Predicate<String> planNameFilter) throws IOException {
+        //every json file should be a circuit plan and we read it
+        return PlanSource.open(path).filter(name ->
+                (!path.contains("readable") || name.endsWith("-praline.json")) && planNameFilter.test(name));
+    }
+
+    /**
+     * @return
+     *      true if the plans may be analyzed by the {@link QuickScan} -- it is used for a plan if all properties that
+     *      are missing in the cache are supported (see {@link QuickScan#analyze(PlanSource.Entry, Collection)})
+     */
+    private static boolean useQuickScan(PlanSource planSource, Collection<Property> properties) throws IOException {
+        if (!QUICK_SCAN || !QuickScan.isAnySupported(properties)) {
+            return false;
+        }
+        PlanSource.Entry firstPlan = planSource.readFirst();
+        if (firstPlan != null && !QuickScan.agreesWithFullAnalysis(firstPlan)) {
+            //the json of this data set is not as expected -> always read the plans completely
+            System.out.println("Warning! Quick scan does not work for " + firstPlan.getName() + ". Disable it.");
+            return false;
+        }
+        return true;
+    }
+
+    private static PropertySheet analyzePlan(PlanSource.Entry plan, boolean textOutput,
+                                             Collection<Property> properties, boolean quickScan) throws IOException {
+        //take what is in the cache and compute only the missing properties
+        String contentHash = null;
+        PropertySheet cachedValues = new PropertySheet(null);
+        if (USE_PROPERTY_CACHE) {
+            contentHash = plan.computeContentHash();
+            cachedValues = PROPERTY_CACHE.load(contentHash, properties);
+        }
+        List<Property> missingProperties = new ArrayList<>();
+        for (Property property : properties) {
+            if (!cachedValues.hasValue(property)) {
+                missingProperties.add(property);
+            }
+        }
+
+        PropertySheet propertySheet;
+        if (missingProperties.isEmpty()) {
+            propertySheet = cachedValues;
+        }
+        else {
+            if (quickScan) {
+                propertySheet = QuickScan.analyze(plan, missingProperties);
+            }
+            else {
+                Graph graph = plan.readGraph();
+                propertySheet = new PropertySheet(graph);
+                for (Property property : missingProperties) {
+                    propertySheet.addValue(new PropertyValue<>(property, graph));
+                }
+            }
+            if (USE_PROPERTY_CACHE) {
+                PROPERTY_CACHE.store(contentHash, propertySheet);
+            }
+            for (PropertyValue cachedValue : cachedValues.getAllValues()) {
+                propertySheet.addValue(cachedValue);
+            }
+        }
+
         if (textOutput) {
-            System.out.println();
+            //print it at once because plans are analyzed in parallel
+            StringBuilder text = new StringBuilder("read plan " + plan.getName() + System.lineSeparator());
+            for (Property property : properties) {
+                text.append(property.getPropertyName()).append(": ").append(propertySheet.getPropertyValue(property))
+                        .append(System.lineSeparator());
+            }
+            System.out.println(text);
         }
 
+        propertySheet.setOrigin(plan.getPlanId(), plan.createGraphLoader());
+        if (STREAMING_ANALYSIS) {
+            propertySheet.releaseGraph();
+        }
         return propertySheet;
     }
 }
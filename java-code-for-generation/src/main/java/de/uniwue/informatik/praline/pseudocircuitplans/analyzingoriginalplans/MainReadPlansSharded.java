@@ -0,0 +1,206 @@
+package de.uniwue.informatik.praline.pseudocircuitplans.analyzingoriginalplans;
+
+import de.uniwue.informatik.praline.pseudocircuitplans.generatingnewplans.PlanSource;
+import de.uniwue.informatik.praline.pseudocircuitplans.properties.DataSetProperties;
+import de.uniwue.informatik.praline.pseudocircuitplans.properties.DataSetPropertiesSnapshot;
+import de.uniwue.informatik.praline.pseudocircuitplans.properties.PropertyManager;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Analyzes the plans like {@link MainReadPlans}, but splits them among several worker JVMs on this machine, each with
+ * its own heap (and garbage collector), instead of analyzing all of them in one JVM.
+ * <br/>
+ * The coordinator (this main method) partitions the plans by their size into
+ * {@link MainReadPlansSharded#NUMBER_OF_WORKERS} shards of about the same total size, starts one worker process per
+ * shard with the same class path and collects the {@link DataSetProperties} of each shard via a socket on the loopback
+ * interface (as {@link DataSetPropertiesSnapshot}). The shards are merged in the order of the shards and printed like
+ * by {@link MainReadPlans}.
+ * <br/>
+ * Everything runs on this machine; nothing but the loopback interface is used.
+ */
+public class MainReadPlansSharded {
+
+    private final static String SOURCE_PATH = "data" + File.separator +
+//            "praline-package-2020-05-18";
+//            "largest-comp-praline-package-2020-05-18";
+            "praline-readable-2020-09-04";
+
+    private final static int NUMBER_OF_WORKERS = 4;
+
+    /**
+     * threads per worker -- all workers together should not use more than the available processors
+     */
+    private final static int NUMBER_OF_THREADS_PER_WORKER =
+            Math.max(1, Runtime.getRuntime().availableProcessors() / NUMBER_OF_WORKERS);
+
+    /**
+     * further arguments for every worker JVM, e.g. its heap size
+     */
+    private final static List<String> WORKER_JVM_ARGUMENTS = Arrays.asList("-Xmx4g");
+
+    private final static String WORKER_ARGUMENT = "--worker";
+
+    /**
+     * how often the coordinator checks whether a worker failed while it waits for the results
+     */
+    private final static int ACCEPT_TIMEOUT_MILLISECONDS = 1000;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0 && args[0].equals(WORKER_ARGUMENT)) {
+            runWorker(args[1], new File(args[2]), Integer.parseInt(args[3]), Integer.parseInt(args[4]));
+            return;
+        }
+
+        DataSetProperties plansProperties = analyzeSharded(SOURCE_PATH, NUMBER_OF_WORKERS);
+
+        //text output for the complete statistics
+        System.out.println();
+        System.out.println("=======================================================================");
+        System.out.println();
+        System.out.println("Evaluated " + plansProperties.getNumberOfPlans() + " plans in " + NUMBER_OF_WORKERS +
+                " worker processes. Statistics:");
+        System.out.println();
+        MainReadPlans.textOutputStatistics(plansProperties, null);
+    }
+
+    /**
+     * @param path
+     *      directory, archive or json file (see {@link PlanSource})
+     * @param numberOfWorkers
+     * @return
+     *      the values of all plans (sheets without graphs), grouped by shards
+     * @throws IOException
+     *      if a worker fails
+     * @throws InterruptedException
+     */
+    public static DataSetProperties analyzeSharded(String path, int numberOfWorkers)
+            throws IOException, InterruptedException {
+        List<List<String>> shards = partitionBySize(path, numberOfWorkers);
+        File shardDirectory = Files.createTempDirectory("praline-shards").toFile();
+        List<Process> workers = new ArrayList<>(shards.size());
+        DataSetProperties[] shardProperties = new DataSetProperties[shards.size()];
+        try (ServerSocket serverSocket = new ServerSocket(0, shards.size(), InetAddress.getLoopbackAddress())) {
+            serverSocket.setSoTimeout(ACCEPT_TIMEOUT_MILLISECONDS);
+            for (int i = 0; i < shards.size(); i++) {
+                File shardFile = new File(shardDirectory, "shard-" + i + ".txt");
+                Files.write(shardFile.toPath(), shards.get(i), StandardCharsets.UTF_8);
+                workers.add(startWorker(path, shardFile, i, serverSocket.getLocalPort()));
+            }
+
+            int receivedShards = 0;
+            while (receivedShards < shards.size()) {
+                try (Socket socket = serverSocket.accept();
+                     DataInputStream inputStream =
+                             new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+                    int shardIndex = inputStream.readInt();
+                    byte[] snapshot = new byte[inputStream.readInt()];
+                    inputStream.readFully(snapshot);
+                    shardProperties[shardIndex] = DataSetPropertiesSnapshot.read(ByteBuffer.wrap(snapshot));
+                    ++receivedShards;
+                    System.out.println("Received " + shardProperties[shardIndex].size() + " plans of shard " +
+                            shardIndex + " (" + receivedShards + "/" + shards.size() + ").");
+                }
+                catch (SocketTimeoutException e) {
+                    //no result yet -> check that no worker died before sending its result
+                    for (int i = 0; i < workers.size(); i++) {
+                        if (!workers.get(i).isAlive() && shardProperties[i] == null) {
+                            throw new IOException("Worker of shard " + i + " exited with " +
+                                    workers.get(i).exitValue() + " without sending its result.");
+                        }
+                    }
+                }
+            }
+            for (Process worker : workers) {
+                worker.waitFor();
+            }
+        }
+        finally {
+            for (Process worker : workers) {
+                worker.destroy();
+            }
+            for (File shardFile : Objects.requireNonNull(shardDirectory.listFiles())) {
+                shardFile.delete();
+            }
+            shardDirectory.delete();
+        }
+
+        DataSetProperties plansProperties = new DataSetProperties();
+        for (DataSetProperties properties : shardProperties) {
+            plansProperties.addAll(properties);
+        }
+        return plansProperties;
+    }
+
+    /**
+     * Assigns the plans greedily, largest first, to the shard with the smallest total size so far. Plans with the same
+     * name are assigned to the same shard because the workers select their plans by name.
+     *
+     * @return
+     *      names of the plans per shard (empty shards are omitted)
+     */
+    private static List<List<String>> partitionBySize(String path, int numberOfShards) throws IOException {
+        //the sizes are taken from the directory or the headers of the archive, no plan is read
+        Map<String, Long> planSizes = MainReadPlans.openPlanSource(path).listSizes();
+        List<Map.Entry<String, Long>> plansLargestFirst = new ArrayList<>(planSizes.entrySet());
+        plansLargestFirst.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+
+        List<List<String>> shards = new ArrayList<>(numberOfShards);
+        long[] shardSizes = new long[numberOfShards];
+        for (int i = 0; i < numberOfShards; i++) {
+            shards.add(new ArrayList<>());
+        }
+        for (Map.Entry<String, Long> plan : plansLargestFirst) {
+            int smallestShard = 0;
+            for (int i = 1; i < numberOfShards; i++) {
+                if (shardSizes[i] < shardSizes[smallestShard]) {
+                    smallestShard = i;
+                }
+            }
+            shards.get(smallestShard).add(plan.getKey());
+            shardSizes[smallestShard] += plan.getValue();
+        }
+        shards.removeIf(List::isEmpty);
+        return shards;
+    }
+
+    private static Process startWorker(String path, File shardFile, int shardIndex, int port) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(WORKER_JVM_ARGUMENTS);
+        //MainReadPlans uses as many threads as available processors
+        command.add("-XX:ActiveProcessorCount=" + NUMBER_OF_THREADS_PER_WORKER);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(MainReadPlansSharded.class.getName());
+        command.add(WORKER_ARGUMENT);
+        command.add(path);
+        command.add(shardFile.getPath());
+        command.add(String.valueOf(shardIndex));
+        command.add(String.valueOf(port));
+        return new ProcessBuilder(command).inheritIO().start();
+    }
+
+    private static void runWorker(String path, File shardFile, int shardIndex, int port) throws IOException {
+        Set<String> planNames = new HashSet<>(Files.readAllLines(shardFile.toPath(), StandardCharsets.UTF_8));
+        DataSetProperties shardProperties = MainReadPlans.getDataSetProperties(path, false,
+                PropertyManager.getAllProperties(),
+                planNames::contains);
+        byte[] snapshot = DataSetPropertiesSnapshot.toBytes(shardProperties);
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             DataOutputStream outputStream =
+                     new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            outputStream.writeInt(shardIndex);
+            outputStream.writeInt(snapshot.length);
+            outputStream.write(snapshot);
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package de.uniwue.informatik.praline.pseudocircuitplans.comparingTwoPlanSets;
 
 import de.uniwue.informatik.praline.pseudocircuitplans.analyzingoriginalplans.MainReadPlans;
-import de.uniwue.informatik.praline.pseudocircuitplans.properties.DataSetProperties;
+import de.uniwue.informatik.praline.pseudocircuitplans.properties.*;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
 
 public class MainComparePlans {
 
@@ -20,8 +22,44 @@ public class MainComparePlans {
 //    private final static String PATH_DATA_SET_0 = "data" + File.separator + "praline-package-2020-05-18";
 //    private final static String PATH_DATA_SET_1 = "data" + File.separator + "generated_2020-06-02_05-34-09";
 
+    /**
+     * The values of {@link MainComparePlans#PATH_DATA_SET_0} are saved in this file and loaded from it in later runs
+     * (see {@link DataSetPropertiesSnapshot}). It is saved again if the plans of this data set or the properties (or
+     * their versions) changed. A plan changed in place (under the same path) is not noticed -- then delete it.
+     * Set it to null to always analyze both data sets.
+     */
+    private final static String SNAPSHOT_DATA_SET_0 = PATH_DATA_SET_0 + ".ppds";
+
+    /**
+     * if not null, the statistics of both data sets and the values of their plans ("-0" and "-1") are also written to
+     * files starting with this path (see {@link StatisticsExport})
+     */
+    private final static String EXPORT_PATH = null;
+
+    /**
+     * if true, both data sets are analyzed at the same time by one pool of {@link MainComparePlans#NUMBER_OF_THREADS}
+     * threads and the statistics of the data set loaded first are printed while the other one is still loaded (see
+     * {@link MainComparePlans#compareConcurrently()}) -- without export
+     */
+    private final static boolean CONCURRENT_COMPARISON = true;
+
+    private final static int NUMBER_OF_THREADS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * replicates of the bootstrap confidence intervals of mean, median and standard deviation in the concurrent
+     * comparison (see {@link BootstrapConfidenceIntervals}) -- 0 for no confidence intervals. Each replicate goes
+     * through the values of all plans of each column twice, i.e., for a number distribution property once per inner
+     * statistic parameter.
+     */
+    private final static int BOOTSTRAP_REPLICATES = 0;
+
     public static void main(String[] args) throws IOException {
-        DataSetProperties properties0 = MainReadPlans.getDataSetProperties(PATH_DATA_SET_0, false);
+        if (CONCURRENT_COMPARISON && EXPORT_PATH == null) {
+            compareConcurrently();
+            return;
+        }
+
+        DataSetProperties properties0 = getBaselineProperties(null);
         DataSetProperties properties1 = MainReadPlans.getDataSetProperties(PATH_DATA_SET_1, false);
 
         //text output for the complete statistics
@@ -31,6 +69,218 @@ public class MainComparePlans {
         System.out.println();
         System.out.println("Statistics:");
         System.out.println();
-        MainReadPlans.textOutputStatistics(properties0, properties1);
+        MainReadPlans.textOutputStatistics(properties0, properties1, EXPORT_PATH);
+        if (EXPORT_PATH != null) {
+            MainReadPlans.exportPlanValues(properties0, EXPORT_PATH + "-0");
+            MainReadPlans.exportPlanValues(properties1, EXPORT_PATH + "-1");
+        }
+    }
+
+    /**
+     * Loads both data sets at the same time. The plans of both are analyzed by the same pool of workers, s.t. no thread
+     * is idle while the smaller data set is done. Once a data set is loaded, the columns of each property are built
+     * once (see {@link PropertyColumns}), and the statistics and the bootstrap confidence intervals (see
+     * {@link BootstrapConfidenceIntervals}) are computed from them by the workers, too, while the other data set may
+     * still be loaded, and printed as soon as they are there. Once both are loaded, the distances of each property
+     * between them are computed from the same columns (see {@link DistributionComparison}). The comparison of a
+     * property is printed as soon as the statistics of it and of all properties before it are there in both data sets.
+     *
+     * @throws IOException
+     */
+    public static void compareConcurrently() throws IOException {
+        ExecutorService workers = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+        //the loaders only read the plans and wait for the workers, so they do not take threads of the workers
+        ExecutorService loaders = Executors.newFixedThreadPool(2);
+        try {
+            CompletableFuture<DataSetProperties> loading0 = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return getBaselineProperties(workers);
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, loaders);
+            CompletableFuture<DataSetProperties> loading1 = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return MainReadPlans.getDataSetProperties(PATH_DATA_SET_1, false,
+                            PropertyManager.getAllProperties(), workers, NUMBER_OF_THREADS);
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, loaders);
+
+            Map<Property, CompletableFuture<StatisticsMatrix>> statistics0 = new LinkedHashMap<>();
+            Map<Property, CompletableFuture<StatisticsMatrix>> statistics1 = new LinkedHashMap<>();
+            Map<Property, CompletableFuture<BootstrapConfidenceIntervals>> intervals0 = new LinkedHashMap<>();
+            Map<Property, CompletableFuture<BootstrapConfidenceIntervals>> intervals1 = new LinkedHashMap<>();
+            Map<Property, CompletableFuture<DistributionComparison>> comparisons = new LinkedHashMap<>();
+            for (Property property : PropertyManager.getAllProperties()) {
+                CompletableFuture<PropertyColumns> columns0 =
+                        loading0.thenApplyAsync(properties -> getColumns(properties, property), workers);
+                CompletableFuture<PropertyColumns> columns1 =
+                        loading1.thenApplyAsync(properties -> getColumns(properties, property), workers);
+                //not async: computed from the columns right after they are built and by the same worker
+                intervals0.put(property, columns0.thenApply(MainComparePlans::computeConfidenceIntervals));
+                intervals1.put(property, columns1.thenApply(MainComparePlans::computeConfidenceIntervals));
+                statistics0.put(property, columns0.thenApply(MainComparePlans::computeStatistics));
+                statistics1.put(property, columns1.thenApply(MainComparePlans::computeStatistics));
+                comparisons.put(property, columns0.thenCombine(columns1, MainComparePlans::compare));
+            }
+
+            //System.out is not closed, only flushed
+            PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
+
+            //print the data set loaded first while the other one is still loaded
+            CompletableFuture.anyOf(loading0, loading1).join();
+            if (!loading0.isDone()) {
+                printStatistics(out, PATH_DATA_SET_1, loading1.join(), statistics1, intervals1);
+            }
+            else if (!loading1.isDone()) {
+                printStatistics(out, PATH_DATA_SET_0, loading0.join(), statistics0, intervals0);
+            }
+
+            DataSetProperties properties0 = loading0.join();
+            DataSetProperties properties1 = loading1.join();
+            System.out.println();
+            System.out.println("Evaluated " + PATH_DATA_SET_0 + "(" + properties0.size() + " plans) | " +
+                    PATH_DATA_SET_1 + "(" + properties1.size() + " plans).");
+            System.out.println();
+            System.out.println("Statistics:");
+            System.out.println();
+
+            for (Property property : PropertyManager.getAllProperties()) {
+                if (!properties0.hasValuesOf(property) || !properties1.hasValuesOf(property)) {
+                    continue;
+                }
+                MainReadPlans.textOutputStatistics(out, property, statistics0.get(property).join(),
+                        statistics1.get(property).join(), intervals0.get(property).join(),
+                        intervals1.get(property).join(), comparisons.get(property).join());
+                //print each property when it is done
+                out.flush();
+            }
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException("Comparing " + PATH_DATA_SET_0 + " and " + PATH_DATA_SET_1 + " failed.",
+                    e.getCause());
+        }
+        finally {
+            loaders.shutdownNow();
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Prints the statistics of a single data set while the other one is still loaded. The statistics of a property
+     * are printed as soon as they and those of all properties before it are there.
+     */
+    private static void printStatistics(PrintWriter out, String path, DataSetProperties properties,
+                                        Map<Property, CompletableFuture<StatisticsMatrix>> statistics,
+                                        Map<Property, CompletableFuture<BootstrapConfidenceIntervals>> intervals) {
+        System.out.println();
+        System.out.println("Evaluated " + path + "(" + properties.size() + " plans) while the other data set is " +
+                "still loaded.");
+        System.out.println();
+        System.out.println("Statistics of " + path + ":");
+        System.out.println();
+        for (Property property : PropertyManager.getAllProperties()) {
+            if (!properties.hasValuesOf(property)) {
+                continue;
+            }
+            MainReadPlans.textOutputStatistics(out, property, statistics.get(property).join(), null,
+                    intervals.get(property).join(), null, null);
+            out.flush();
+        }
+    }
+
+    /**
+     * @return
+     *      the columns of this property in this data set, which are shared by all computations of the property (see
+     *      {@link PropertyColumns}) -- null if the property has no statistics or no values in this data set
+     */
+    private static PropertyColumns getColumns(DataSetProperties properties, Property property) {
+        if (!hasStatistics(properties, property)) {
+            return null;
+        }
+        return properties.getColumns(property);
+    }
+
+    /**
+     * @return
+     *      null if the property has no statistics or no values in this data set
+     */
+    private static StatisticsMatrix computeStatistics(PropertyColumns columns) {
+        if (columns == null) {
+            return null;
+        }
+        return StatisticsMatrix.compute(columns);
+    }
+
+    /**
+     * @return
+     *      null if there are no confidence intervals or the property has no statistics or no values in this data set
+     */
+    private static BootstrapConfidenceIntervals computeConfidenceIntervals(PropertyColumns columns) {
+        if (BOOTSTRAP_REPLICATES <= 0 || columns == null) {
+            return null;
+        }
+        return BootstrapConfidenceIntervals.compute(columns, BOOTSTRAP_REPLICATES);
+    }
+
+    /**
+     * @return
+     *      null if the property has no statistics or no values in one of the data sets
+     */
+    private static DistributionComparison compare(PropertyColumns columns0, PropertyColumns columns1) {
+        if (columns0 == null || columns1 == null) {
+            return null;
+        }
+        return DistributionComparison.compute(columns0, columns1);
+    }
+
+    private static boolean hasStatistics(DataSetProperties properties, Property property) {
+        return properties.hasValuesOf(property) &&
+                (property instanceof NumericalProperty || property instanceof NumberDistributionProperty);
+    }
+
+    /**
+     * @param workers
+     *      if not null, the plans are analyzed by these {@link MainComparePlans#NUMBER_OF_THREADS} threads
+     */
+    private static DataSetProperties getBaselineProperties(ExecutorService workers) throws IOException {
+        if (SNAPSHOT_DATA_SET_0 == null) {
+            return analyzeBaseline(workers);
+        }
+        File snapshotFile = new File(SNAPSHOT_DATA_SET_0);
+        if (snapshotFile.exists()) {
+            DataSetProperties properties = null;
+            try {
+                properties = DataSetPropertiesSnapshot.load(snapshotFile);
+            }
+            catch (IOException e) {
+                System.out.println("Snapshot " + SNAPSHOT_DATA_SET_0 + " cannot be read: " + e.getMessage());
+            }
+            //use it only if it contains the current plans and all properties in their current version
+            if (properties != null && DataSetPropertiesSnapshot.isSnapshotOf(properties,
+                    MainReadPlans.getPlanIds(PATH_DATA_SET_0), PropertyManager.getAllProperties())) {
+                System.out.println("Loaded values of " + PATH_DATA_SET_0 + " from " + SNAPSHOT_DATA_SET_0 + ".");
+                return properties;
+            }
+            System.out.println("Snapshot " + SNAPSHOT_DATA_SET_0 + " is not up to date. Analyze all plans again.");
+        }
+        DataSetProperties properties = analyzeBaseline(workers);
+        DataSetPropertiesSnapshot.save(properties, SNAPSHOT_DATA_SET_0);
+        return properties;
+    }
+
+    private static DataSetProperties analyzeBaseline(ExecutorService workers) throws IOException {
+        if (workers == null) {
+            return MainReadPlans.getDataSetProperties(PATH_DATA_SET_0, false);
+        }
+        return MainReadPlans.getDataSetProperties(PATH_DATA_SET_0, false, PropertyManager.getAllProperties(), workers,
+                NUMBER_OF_THREADS);
     }
 }
@@ -0,0 +1,298 @@
+package de.uniwue.informatik.praline.pseudocircuitplans.generatingnewplans;
+
+import de.uniwue.informatik.praline.pseudocircuitplans.properties.JungUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The stages after the generation of a new plan by {@link MainGeneratePlans}:
+ * the generation workers {@link GenerationPipeline#submit(GeneratedPlan)} their plans to the validation stage, which
+ * checks the plan and serializes it to json in memory, and then a pool of writers saves the json files.
+ * The stages are connected by bounded queues, so a generation worker is only blocked if the validation stage is too
+ * slow (backpressure) but never by the disk.
+ * <br/>
+ * If a plan is a journaled {@link PreparedOriginal.WorkingCopy}, it is released by the validation stage directly after
+ * serializing it. Before generating the next plan of the same original, wait for
+ * {@link GeneratedPlan#awaitRelease()}.
+ * <br/>
+ * After the first plan that could not be validated or saved, the stages stop working (remaining plans are only
+ * released) and every further {@link GenerationPipeline#submit(GeneratedPlan)} fails.
+ */
+public class GenerationPipeline {
+
+    /**
+     * print the statistics after every this many saved plans
+     */
+    private final static int STATISTICS_INTERVAL = 100;
+
+    private final static GeneratedPlan END_OF_STREAM = new GeneratedPlan(null, null, 0);
+
+    /**
+     * while the validation queue is full, a submitting worker checks for a failure at least this often
+     */
+    private final static long SUBMIT_POLL_INTERVAL_MS = 100;
+
+    private BlockingQueue<GeneratedPlan> validationQueue;
+
+    private BlockingQueue<GeneratedPlan> writerQueue;
+
+    private int queueCapacity;
+
+    private Thread validationThread;
+
+    private List<Thread> writerThreads;
+
+    private AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    private Stage generationStage = new Stage("generation");
+
+    private Stage validationStage = new Stage("validation");
+
+    private Stage writerStage = new Stage("writing");
+
+    private long startTime = System.nanoTime();
+
+    /**
+     * if not null, all plans are appended to this corpus instead of saving them as separate files
+     */
+    private PlanCorpus targetCorpus;
+
+    public GenerationPipeline(int queueCapacity, int numberOfWriterThreads) {
+        this(queueCapacity, numberOfWriterThreads, null);
+    }
+
+    /**
+     * @param queueCapacity
+     * @param numberOfWriterThreads
+     * @param targetCorpus
+     *      if not null, all plans are appended to this corpus (it is not closed by this pipeline) and
+     *      {@link GeneratedPlan}s need no file path
+     */
+    public GenerationPipeline(int queueCapacity, int numberOfWriterThreads, PlanCorpus targetCorpus) {
+        this.queueCapacity = queueCapacity;
+        this.targetCorpus = targetCorpus;
+        this.validationQueue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writerQueue = new ArrayBlockingQueue<>(queueCapacity);
+
+        this.validationThread = new Thread(this::runValidation, "validation");
+        this.validationThread.start();
+        this.writerThreads = new ArrayList<>(numberOfWriterThreads);
+        for (int i = 0; i < numberOfWriterThreads; i++) {
+            Thread writerThread = new Thread(this::runWriter, "writer-" + i);
+            writerThreads.add(writerThread);
+            writerThread.start();
+        }
+    }
+
+    /**
+     * Blocks while the validation queue is full.
+     *
+     * @param generatedPlan
+     * @throws IOException
+     *      if a plan submitted before could not be validated or saved -- then this plan is not submitted
+     * @throws InterruptedException
+     */
+    public void submit(GeneratedPlan generatedPlan) throws IOException, InterruptedException {
+        checkFailure();
+        while (!validationQueue.offer(generatedPlan, SUBMIT_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+            checkFailure();
+        }
+        generationStage.processed(generatedPlan.generationTime);
+    }
+
+    /**
+     * Waits until all submitted plans are saved and stops all threads of this pipeline.
+     *
+     * @throws IOException
+     *      if one of the submitted plans could not be validated or saved
+     * @throws InterruptedException
+     */
+    public void close() throws IOException, InterruptedException {
+        validationQueue.put(END_OF_STREAM);
+        validationThread.join();
+        for (int i = 0; i < writerThreads.size(); i++) {
+            writerQueue.put(END_OF_STREAM);
+        }
+        for (Thread writerThread : writerThreads) {
+            writerThread.join();
+        }
+        checkFailure();
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure.get() != null) {
+            throw new IOException("Could not save all generated plans.", failure.get());
+        }
+    }
+
+    public int getValidationQueueDepth() {
+        return validationQueue.size();
+    }
+
+    public int getWriterQueueDepth() {
+        return writerQueue.size();
+    }
+
+    public long getNumberOfSavedPlans() {
+        return writerStage.count.get();
+    }
+
+    /**
+     * @return
+     *      queue depths and for each stage the number of plans and the throughput in plans per second of busy time
+     *      (for the generation stage summed over all workers)
+     */
+    public String getStatistics() {
+        double elapsedSeconds = (double) (System.nanoTime() - startTime) / 1e9;
+        return String.format(Locale.US, "after %.1f s: %s, %s, %s; queue depths: validation %d/%d, writer %d/%d",
+                elapsedSeconds, generationStage, validationStage, writerStage, getValidationQueueDepth(), queueCapacity,
+                getWriterQueueDepth(), queueCapacity);
+    }
+
+    private void runValidation() {
+        try {
+            while (true) {
+                GeneratedPlan generatedPlan = validationQueue.take();
+                if (generatedPlan == END_OF_STREAM) {
+                    return;
+                }
+                if (failure.get() != null) {
+                    //stopped -- only release it
+                    generatedPlan.release();
+                    continue;
+                }
+                long start = System.nanoTime();
+                try {
+                    Set<Set<JungUtils.PseudoVertex>> connectedComponents =
+                            JungUtils.getConnectedComponents(generatedPlan.workingCopy.getPlan());
+                    if (connectedComponents.size() > 1) {
+                        System.out.println("Warning! " + generatedPlan.filePath + " has more than 1 connected " +
+                                "component.");
+                    }
+                    generatedPlan.json = IOUtils.writeGraphAsBytes(generatedPlan.workingCopy.getPlan());
+                }
+                catch (IOException | RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                    continue;
+                }
+                finally {
+                    generatedPlan.release();
+                }
+                validationStage.processed(System.nanoTime() - start);
+                writerQueue.put(generatedPlan);
+            }
+        }
+        catch (InterruptedException e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    private void runWriter() {
+        try {
+            while (true) {
+                GeneratedPlan generatedPlan = writerQueue.take();
+                if (generatedPlan == END_OF_STREAM) {
+                    return;
+                }
+                if (failure.get() != null) {
+                    //stopped
+                    continue;
+                }
+                long start = System.nanoTime();
+                try {
+                    if (targetCorpus != null) {
+                        targetCorpus.append(generatedPlan.json);
+                    }
+                    else {
+                        IOUtils.saveJson(generatedPlan.json, generatedPlan.filePath);
+                    }
+                }
+                catch (IOException | RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                    continue;
+                }
+                long numberOfSavedPlans = writerStage.processed(System.nanoTime() - start);
+                System.out.println("generated new plan " + numberOfSavedPlans);
+                if (numberOfSavedPlans % STATISTICS_INTERVAL == 0) {
+                    System.out.println(getStatistics());
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    /**
+     * A generated plan that is not saved yet.
+     */
+    public static class GeneratedPlan {
+        private PreparedOriginal.WorkingCopy workingCopy;
+        private String filePath;
+        private long generationTime;
+        private byte[] json;
+        private CountDownLatch released = new CountDownLatch(1);
+
+        /**
+         * @param workingCopy
+         *      working copy containing the generated plan -- it must not be modified any more
+         * @param filePath
+         *      target file
+         * @param generationTime
+         *      in ns
+         */
+        public GeneratedPlan(PreparedOriginal.WorkingCopy workingCopy, String filePath, long generationTime) {
+            this.workingCopy = workingCopy;
+            this.filePath = filePath;
+            this.generationTime = generationTime;
+        }
+
+        /**
+         * Blocks until the plan of this {@link GeneratedPlan} was serialized and its working copy was released.
+         *
+         * @throws InterruptedException
+         */
+        public void awaitRelease() throws InterruptedException {
+            released.await();
+        }
+
+        private void release() {
+            workingCopy.release();
+            workingCopy = null;
+            released.countDown();
+        }
+    }
+
+    private static class Stage {
+        private String name;
+        private AtomicLong count = new AtomicLong();
+        private AtomicLong busyTime = new AtomicLong();
+
+        private Stage(String name) {
+            this.name = name;
+        }
+
+        private long processed(long time) {
+            busyTime.addAndGet(time);
+            return count.incrementAndGet();
+        }
+
+        @Override
+        public String toString() {
+            long busyTimeNow = busyTime.get();
+            long countNow = count.get();
+            double throughput = busyTimeNow == 0 ? 0 : (double) countNow / ((double) busyTimeNow / 1e9);
+            return String.format(Locale.US, "%s %d plans (%.1f plans/s)", name, countNow, throughput);
+        }
+    }
+}
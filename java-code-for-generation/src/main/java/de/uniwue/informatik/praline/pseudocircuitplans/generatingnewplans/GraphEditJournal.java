@@ -0,0 +1,358 @@
+package de.uniwue.informatik.praline.pseudocircuitplans.generatingnewplans;
+
+import de.uniwue.informatik.praline.datastructure.graphs.*;
+import de.uniwue.informatik.praline.datastructure.labels.TextLabel;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Undo log of all modifications of a plan by {@link MainGeneratePlans}.
+ * With this, a new plan can be generated directly on the (preprocessed) original plan and afterwards, the original
+ * plan is restored by {@link GraphEditJournal#rollBack()} instead of creating a deep copy of it for every new plan.
+ * <br/>
+ * Every modification must be reported to this journal -- similar to {@link StructureCounter}:
+ * additions after they were done and removals before they are done (i.e., while the element still knows its
+ * neighborhood).
+ * All removed elements are restored as the same objects (edges with their own labels and ports) at their original
+ * index in each list of the plan.
+ * <br/>
+ * The {@link StructureCounter} and the {@link VertexClassificationCache} of the plan are not updated by a roll back.
+ */
+public class GraphEditJournal {
+
+    private Graph graph;
+
+    private ArrayDeque<Runnable> undoActions = new ArrayDeque<>();
+
+    /**
+     * edges that were added while recording -- if they are removed again, there is nothing to restore
+     */
+    private Set<Edge> addedEdges = new LinkedHashSet<>();
+
+    /**
+     * all elements that were added while recording -- they are not part of the original order of any list
+     */
+    private Set<Object> addedElements = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * The lists of the plan can only be appended to, so a restored element is at the end of its list at first.
+     * Therefore, each list is saved before the first element is removed from it and after all undo actions, its
+     * original order is restored once (see {@link GraphEditJournal#restoreOrder(List, List, Consumer, Consumer)}).
+     */
+    private List<Vertex> originalVertices;
+
+    private List<VertexGroup> originalVertexGroups;
+
+    private List<Edge> originalEdges;
+
+    private Map<Vertex, List<PortComposition>> originalPortCompositionsOfVertices = new LinkedHashMap<>();
+
+    private Map<PortGroup, List<PortComposition>> originalPortCompositionsOfPortGroups = new LinkedHashMap<>();
+
+    private Map<VertexGroup, List<Vertex>> originalContainedVertices = new LinkedHashMap<>();
+
+    private Map<VertexGroup, List<TouchingPair>> originalTouchingPairs = new LinkedHashMap<>();
+
+    private Map<VertexGroup, List<PortPairing>> originalPortPairings = new LinkedHashMap<>();
+
+    /**
+     * ports of the removed edges in their original order
+     */
+    private Map<Edge, List<Port>> originalPortsOfEdges = new LinkedHashMap<>();
+
+    private boolean rolledBack = false;
+
+    public GraphEditJournal(Graph graph) {
+        this.graph = graph;
+    }
+
+    public void vertexAdded(Vertex vertex) {
+        addedElements.add(vertex);
+        record(() -> graph.removeVertex(vertex));
+    }
+
+    /**
+     * call this method before the vertex is removed from the graph (after its incident edges were removed)
+     *
+     * @param vertex
+     */
+    public void vertexRemoved(Vertex vertex) {
+        saveOriginalVertices();
+        if (vertex.getVertexGroup() != null) {
+            //its touching pairs and port pairings are restored with the content of its vertex group
+            saveOriginalContent(vertex.getVertexGroup());
+        }
+        record(() -> graph.addVertex(vertex));
+    }
+
+    public void vertexGroupAdded(VertexGroup vertexGroup) {
+        addedElements.add(vertexGroup);
+        record(() -> graph.removeVertexGroup(vertexGroup));
+    }
+
+    /**
+     * call this method before the vertex group is removed from the graph
+     *
+     * @param vertexGroup
+     */
+    public void vertexGroupRemoved(VertexGroup vertexGroup) {
+        saveOriginalVertexGroups();
+        saveOriginalContent(vertexGroup);
+        record(() -> graph.addVertexGroup(vertexGroup));
+    }
+
+    public void vertexAddedToVertexGroup(VertexGroup vertexGroup, Vertex vertex) {
+        addedElements.add(vertex);
+        record(() -> vertexGroup.removeVertex(vertex));
+    }
+
+    public void touchingPairAdded(VertexGroup vertexGroup, TouchingPair touchingPair) {
+        addedElements.add(touchingPair);
+        record(() -> vertexGroup.removeTouchingPair(touchingPair));
+    }
+
+    public void portPairingAdded(VertexGroup vertexGroup, PortPairing portPairing) {
+        addedElements.add(portPairing);
+        record(() -> vertexGroup.removePortPairing(portPairing));
+    }
+
+    /**
+     * call this method before the port pairing is removed from the vertex group
+     *
+     * @param vertexGroup
+     * @param portPairing
+     */
+    public void portPairingRemoved(VertexGroup vertexGroup, PortPairing portPairing) {
+        saveOriginalContent(vertexGroup);
+        record(() -> vertexGroup.addPortPairing(portPairing));
+    }
+
+    /**
+     * call this method after a port or a port group was added to a vertex or to a port group of this vertex
+     *
+     * @param vertex
+     * @param portComposition
+     */
+    public void portCompositionAdded(Vertex vertex, PortComposition portComposition) {
+        addedElements.add(portComposition);
+        record(() -> vertex.removePortComposition(portComposition));
+    }
+
+    /**
+     * call this method before the port is removed from its vertex (after its incident edges were removed)
+     *
+     * @param port
+     */
+    public void portRemoved(Port port) {
+        Vertex vertex = port.getVertex();
+        PortGroup portGroup = port.getPortGroup();
+        if (portGroup != null) {
+            originalPortCompositionsOfPortGroups.computeIfAbsent(portGroup,
+                    key -> new ArrayList<>(portGroup.getPortCompositions()));
+        }
+        else {
+            originalPortCompositionsOfVertices.computeIfAbsent(vertex,
+                    key -> new ArrayList<>(vertex.getPortCompositions()));
+        }
+        record(() -> {
+            if (portGroup != null) {
+                portGroup.addPortComposition(port);
+            }
+            else {
+                vertex.addPortComposition(port);
+            }
+        });
+    }
+
+    public void edgeAdded(Edge edge) {
+        addedEdges.add(edge);
+        addedElements.add(edge);
+        record(() -> {
+            //only if it was not removed again
+            if (addedEdges.remove(edge)) {
+                graph.removeEdge(edge);
+            }
+        });
+    }
+
+    /**
+     * call this method before the edge is removed from the graph (i.e., while it still knows its ports)
+     *
+     * @param edge
+     */
+    public void edgeRemoved(Edge edge) {
+        if (addedEdges.remove(edge)) {
+            //the edge was not there before recording -> nothing to restore
+            return;
+        }
+        if (originalEdges == null) {
+            originalEdges = new ArrayList<>(graph.getEdges());
+        }
+        if (originalPortsOfEdges.putIfAbsent(edge, new ArrayList<>(edge.getPorts())) != null) {
+            //already removed (e.g. found twice at a port it is attached to twice)
+            return;
+        }
+        record(() -> restoreEdge(edge));
+    }
+
+    /**
+     * call this method after the text of the label was changed
+     *
+     * @param label
+     * @param previousText
+     */
+    public void labelTextChanged(TextLabel label, String previousText) {
+        record(() -> label.setInputText(previousText));
+    }
+
+    /**
+     * Undoes all reported modifications in reverse order and restores the original order of all changed lists.
+     * After that, this journal cannot be used any more.
+     */
+    public void rollBack() {
+        if (rolledBack) {
+            throw new IllegalStateException("This journal was already rolled back.");
+        }
+        while (!undoActions.isEmpty()) {
+            undoActions.pop().run();
+        }
+        restoreOrders();
+        addedEdges.clear();
+        addedElements.clear();
+        rolledBack = true;
+    }
+
+    public boolean isRolledBack() {
+        return rolledBack;
+    }
+
+    public int size() {
+        return undoActions.size();
+    }
+
+    private void record(Runnable undoAction) {
+        if (rolledBack) {
+            throw new IllegalStateException("This journal was already rolled back.");
+        }
+        undoActions.push(undoAction);
+    }
+
+    private void saveOriginalVertices() {
+        if (originalVertices == null) {
+            originalVertices = new ArrayList<>(graph.getVertices());
+        }
+    }
+
+    private void saveOriginalVertexGroups() {
+        if (originalVertexGroups == null) {
+            originalVertexGroups = new ArrayList<>(graph.getVertexGroups());
+        }
+    }
+
+    private void saveOriginalContent(VertexGroup vertexGroup) {
+        originalContainedVertices.computeIfAbsent(vertexGroup,
+                key -> new ArrayList<>(vertexGroup.getContainedVertices()));
+        originalTouchingPairs.computeIfAbsent(vertexGroup, key -> new ArrayList<>(vertexGroup.getTouchingPairs()));
+        originalPortPairings.computeIfAbsent(vertexGroup, key -> new ArrayList<>(vertexGroup.getPortPairings()));
+    }
+
+    /**
+     * re-attaches the edge to its original ports (if it was detached from them by the removal) and adds it to the graph
+     */
+    private void restoreEdge(Edge edge) {
+        if (edge.getPorts().isEmpty()) {
+            for (Port port : originalPortsOfEdges.get(edge)) {
+                edge.addPort(port);
+            }
+        }
+        graph.addEdge(edge);
+    }
+
+    private void restoreOrders() {
+        //first the lists of the graph because moving an element there may also change the lists of this element,
+        // which are restored afterwards
+        if (originalVertexGroups != null) {
+            restoreOrder(graph.getVertexGroups(), originalVertexGroups, vertexGroup -> {
+                saveOriginalContent(vertexGroup);
+                graph.removeVertexGroup(vertexGroup);
+            }, graph::addVertexGroup);
+        }
+        if (originalVertices != null) {
+            restoreOrder(graph.getVertices(), originalVertices, vertex -> {
+                if (vertex.getVertexGroup() != null) {
+                    saveOriginalContent(vertex.getVertexGroup());
+                }
+                graph.removeVertex(vertex);
+            }, graph::addVertex);
+        }
+        for (Map.Entry<Vertex, List<PortComposition>> entry : originalPortCompositionsOfVertices.entrySet()) {
+            Vertex vertex = entry.getKey();
+            restoreOrder(vertex.getPortCompositions(), entry.getValue(), vertex::removePortComposition,
+                    vertex::addPortComposition);
+        }
+        for (Map.Entry<PortGroup, List<PortComposition>> entry : originalPortCompositionsOfPortGroups.entrySet()) {
+            PortGroup portGroup = entry.getKey();
+            restoreOrder(portGroup.getPortCompositions(), entry.getValue(), portGroup::removePortComposition,
+                    portGroup::addPortComposition);
+        }
+        for (Map.Entry<VertexGroup, List<Vertex>> entry : originalContainedVertices.entrySet()) {
+            VertexGroup vertexGroup = entry.getKey();
+            restoreOrder(vertexGroup.getContainedVertices(), entry.getValue(), vertexGroup::removeVertex,
+                    vertexGroup::addVertex);
+        }
+        for (Map.Entry<VertexGroup, List<TouchingPair>> entry : originalTouchingPairs.entrySet()) {
+            VertexGroup vertexGroup = entry.getKey();
+            restoreOrder(vertexGroup.getTouchingPairs(), entry.getValue(), vertexGroup::removeTouchingPair,
+                    vertexGroup::addTouchingPair);
+        }
+        for (Map.Entry<VertexGroup, List<PortPairing>> entry : originalPortPairings.entrySet()) {
+            VertexGroup vertexGroup = entry.getKey();
+            restoreOrder(vertexGroup.getPortPairings(), entry.getValue(), vertexGroup::removePortPairing,
+                    vertexGroup::addPortPairing);
+        }
+        //the edges of each port are in the order of the edges of the graph -> re-appending the edges in their
+        // original order restores also the order at their ports
+        if (originalEdges != null) {
+            restoreOrder(graph.getEdges(), originalEdges, edge -> {
+                originalPortsOfEdges.putIfAbsent(edge, new ArrayList<>(edge.getPorts()));
+                graph.removeEdge(edge);
+            }, this::restoreEdge);
+        }
+    }
+
+    /**
+     * Removes all elements from the first one that is not at its original index on and appends the original elements
+     * from there on again in their original order -- elements that were added while recording are left out.
+     * The order of a list that was changed only at its end is restored in time linear in the number of moved
+     * elements.
+     *
+     * @param list
+     *      current list of the plan (it may be a view, which changes by remove and append)
+     * @param original
+     * @param remove
+     * @param append
+     */
+    private <E> void restoreOrder(List<E> list, List<E> original, Consumer<E> remove, Consumer<E> append) {
+        List<E> target = new ArrayList<>(original.size());
+        for (E element : original) {
+            if (!addedElements.contains(element)) {
+                target.add(element);
+            }
+        }
+        int firstDifference = 0;
+        while (firstDifference < target.size() && firstDifference < list.size()
+                && list.get(firstDifference) == target.get(firstDifference)) {
+            ++firstDifference;
+        }
+        if (firstDifference == target.size() && firstDifference == list.size()) {
+            return;
+        }
+        for (E element : new ArrayList<>(list.subList(firstDifference, list.size()))) {
+            remove.accept(element);
+        }
+        for (E element : target.subList(firstDifference, target.size())) {
+            append.accept(element);
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package de.uniwue.informatik.praline.pseudocircuitplans.generatingnewplans;
+
+import de.uniwue.informatik.praline.datastructure.graphs.*;
+import de.uniwue.informatik.praline.datastructure.labels.Label;
+import de.uniwue.informatik.praline.datastructure.labels.LabeledObject;
+import de.uniwue.informatik.praline.datastructure.labels.TextLabel;
+import de.uniwue.informatik.praline.datastructure.placements.Orientation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Compact binary encoding of a praline {@link Graph}, which is much faster to load than its json.
+ * It contains the vertices with their ports and port groups, the vertex groups with their touching pairs and port
+ * pairings, the edges, the edge bundles and all text labels. Layout information (shapes, positions) is not contained.
+ * <br/>
+ * Format: "PPGS", version, string table, vertices, edges, vertex groups, edge bundles.
+ * All numbers are unsigned varints (7 bits per byte, least significant group first).
+ * Every string is written once into the string table and referenced by its number.
+ * Vertices, ports and edges are referenced by their number in the order in which they are written.
+ * <br/>
+ * Snapshot files (ending ".pgs") are memory mapped for reading. Use {@link MainConvertPlans} to convert plans between
+ * json and snapshots.
+ */
+public class GraphSnapshot {
+
+    public static final String FILE_ENDING = ".pgs";
+
+    private static final byte[] MAGIC = "PPGS".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int VERSION = 1;
+
+    private static final int TAG_PORT = 0;
+
+    private static final int TAG_PORT_GROUP = 1;
+
+    private static final Orientation[] ORIENTATIONS = Orientation.values();
+
+    public static boolean isSnapshotFile(String fileName) {
+        return fileName.endsWith(FILE_ENDING);
+    }
+
+    /**
+     * @param graph
+     * @return
+     *      binary snapshot of this graph
+     * @throws IOException
+     *      if the graph contains something that cannot be encoded, e.g. a label that is no {@link TextLabel}
+     */
+    public static byte[] write(Graph graph) throws IOException {
+        return new Encoder(graph).encode();
+    }
+
+    /**
+     * @param snapshot
+     *      e.g. created by {@link GraphSnapshot#write(Graph)} -- its remaining bytes are read
+     * @return
+     * @throws IOException
+     *      if this is no valid snapshot
+     */
+    public static Graph read(ByteBuffer snapshot) throws IOException {
+        try {
+            return new Decoder(snapshot.duplicate()).decode();
+        }
+        catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("The snapshot is truncated or corrupt.", e);
+        }
+    }
+
+    public static Graph read(File snapshotFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer mappedFile = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(mappedFile);
+        }
+    }
+
+    public static void save(Graph graph, String targetFilePath) throws IOException {
+        IOUtils.saveBytes(write(graph), targetFilePath);
+    }
+
+    private static class Encoder {
+        private Graph graph;
+        private Map<String, Integer> strings = new LinkedHashMap<>();
+        private Map<Vertex, Integer> vertexIds = new LinkedHashMap<>();
+        private Map<Port, Integer> portIds = new LinkedHashMap<>();
+        private Map<Edge, Integer> edgeIds = new LinkedHashMap<>();
+        private ByteSink body = new ByteSink();
+
+        private Encoder(Graph graph) {
+            this.graph = graph;
+        }
+
+        private byte[] encode() throws IOException {
+            body.writeVarint(graph.getVertices().size());
+            for (Vertex vertex : graph.getVertices()) {
+                vertexIds.put(vertex, vertexIds.size());
+                writeLabels(vertex);
+                writePortCompositions(vertex.getPortCompositions());
+            }
+            body.writeVarint(graph.getEdges().size());
+            for (Edge edge : graph.getEdges()) {
+                edgeIds.put(edge, edgeIds.size());
+                body.writeVarint(edge.getPorts().size());
+                for (Port port : edge.getPorts()) {
+                    body.writeVarint(getId(portIds, port));
+                }
+                writeLabels(edge);
+            }
+            writeVertexGroups(graph.getVertexGroups());
+            writeEdgeBundles(graph.getEdgeBundles());
+
+            ByteSink snapshot = new ByteSink();
+            snapshot.write(MAGIC);
+            snapshot.writeVarint(VERSION);
+            snapshot.writeVarint(strings.size());
+            for (String string : strings.keySet()) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                snapshot.writeVarint(bytes.length);
+                snapshot.write(bytes);
+            }
+            snapshot.write(body);
+            return snapshot.toByteArray();
+        }
+
+        private void writePortCompositions(Collection<PortComposition> portCompositions) throws IOException {
+            body.writeVarint(portCompositions.size());
+            for (PortComposition portComposition : portCompositions) {
+                if (portComposition instanceof Port) {
+                    Port port = (Port) portComposition;
+                    portIds.put(port, portIds.size());
+                    body.writeVarint(TAG_PORT);
+                    Orientation orientation = port.getOrientationAtVertex();
+                    body.writeVarint((orientation == null ? Orientation.FREE : orientation).ordinal());
+                    writeLabels(port);
+                }
+                else {
+                    PortGroup portGroup = (PortGroup) portComposition;
+                    body.writeVarint(TAG_PORT_GROUP);
+                    body.writeVarint(portGroup.isOrdered() ? 1 : 0);
+                    writePortCompositions(portGroup.getPortCompositions());
+                }
+            }
+        }
+
+        private void writeVertexGroups(Collection<VertexGroup> vertexGroups) throws IOException {
+            body.writeVarint(vertexGroups.size());
+            for (VertexGroup vertexGroup : vertexGroups) {
+                body.writeVarint(vertexGroup.getContainedVertices().size());
+                for (Vertex vertex : vertexGroup.getContainedVertices()) {
+                    body.writeVarint(getId(vertexIds, vertex));
+                }
+                body.writeVarint(vertexGroup.getTouchingPairs().size());
+                for (TouchingPair touchingPair : vertexGroup.getTouchingPairs()) {
+                    for (Vertex vertex : touchingPair.getVertices()) {
+                        body.writeVarint(getId(vertexIds, vertex));
+                    }
+                }
+                body.writeVarint(vertexGroup.getPortPairings().size());
+                for (PortPairing portPairing : vertexGroup.getPortPairings()) {
+                    body.writeVarint(getId(portIds, portPairing.getPort0()));
+                    body.writeVarint(getId(portIds, portPairing.getPort1()));
+                }
+                writeLabels(vertexGroup);
+                writeVertexGroups(vertexGroup.getContainedVertexGroups() == null ? Collections.emptyList() :
+                        vertexGroup.getContainedVertexGroups());
+            }
+        }
+
+        private void writeEdgeBundles(Collection<EdgeBundle> edgeBundles) throws IOException {
+            List<EdgeBundle> nonNullEdgeBundles = new ArrayList<>(edgeBundles.size());
+            for (EdgeBundle edgeBundle : edgeBundles) {
+                if (edgeBundle != null) {
+                    nonNullEdgeBundles.add(edgeBundle);
+                }
+            }
+            body.writeVarint(nonNullEdgeBundles.size());
+            for (EdgeBundle edgeBundle : nonNullEdgeBundles) {
+                body.writeVarint(edgeBundle.getContainedEdges().size());
+                for (Edge edge : edgeBundle.getContainedEdges()) {
+                    body.writeVarint(getId(edgeIds, edge));
+                }
+                writeLabels(edgeBundle);
+                writeEdgeBundles(edgeBundle.getContainedEdgeBundles() == null ? Collections.emptyList() :
+                        edgeBundle.getContainedEdgeBundles());
+            }
+        }
+
+        /**
+         * number of labels, their texts and the number of the main label + 1 (0 if there is none)
+         */
+        private void writeLabels(LabeledObject labeledObject) throws IOException {
+            List<Label> labels = new ArrayList<>(labeledObject.getLabelManager().getLabels());
+            body.writeVarint(labels.size());
+            for (Label label : labels) {
+                if (!(label instanceof TextLabel)) {
+                    throw new IOException("Labels of type " + label.getClass().getSimpleName() + " are not supported" +
+                            " by snapshots.");
+                }
+                String text = ((TextLabel) label).getInputText();
+                body.writeVarint(text == null ? 0 : 1 + strings.computeIfAbsent(text, s -> strings.size()));
+            }
+            body.writeVarint(labels.indexOf(labeledObject.getLabelManager().getMainLabel()) + 1);
+        }
+
+        private static <E> int getId(Map<E, Integer> ids, E element) throws IOException {
+            Integer id = ids.get(element);
+            if (id == null) {
+                throw new IOException(element + " is referenced but not contained in the graph.");
+            }
+            return id;
+        }
+    }
+
+    private static class Decoder {
+        private ByteBuffer snapshot;
+        private String[] strings;
+        private List<Vertex> vertices;
+        private List<Port> ports = new ArrayList<>();
+        private List<Edge> edges;
+
+        private Decoder(ByteBuffer snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        private Graph decode() throws IOException {
+            byte[] magic = new byte[MAGIC.length];
+            snapshot.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("This is no graph snapshot.");
+            }
+            int version = readVarint();
+            if (version != VERSION) {
+                throw new IOException("Graph snapshots of version " + version + " are not supported.");
+            }
+            strings = new String[readVarint()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[readVarint()];
+                snapshot.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            Graph graph = new Graph();
+            int numberOfVertices = readVarint();
+            vertices = new ArrayList<>(numberOfVertices);
+            for (int i = 0; i < numberOfVertices; i++) {
+                List<Label> labels = new ArrayList<>();
+                Label mainLabel = readLabels(labels);
+                Vertex vertex = new Vertex(readPortCompositions(), labels);
+                setMainLabel(vertex, mainLabel);
+                vertices.add(vertex);
+                graph.addVertex(vertex);
+            }
+            int numberOfEdges = readVarint();
+            edges = new ArrayList<>(numberOfEdges);
+            for (int i = 0; i < numberOfEdges; i++) {
+                int numberOfPorts = readVarint();
+                List<Port> portsOfEdge = new ArrayList<>(numberOfPorts);
+                for (int j = 0; j < numberOfPorts; j++) {
+                    portsOfEdge.add(ports.get(readVarint()));
+                }
+                List<Label> labels = new ArrayList<>();
+                Label mainLabel = readLabels(labels);
+                Edge edge = new Edge(portsOfEdge, labels, null);
+                setMainLabel(edge, mainLabel);
+                edges.add(edge);
+                graph.addEdge(edge);
+            }
+            for (VertexGroup vertexGroup : readVertexGroups()) {
+                graph.addVertexGroup(vertexGroup);
+            }
+            for (EdgeBundle edgeBundle : readEdgeBundles()) {
+                graph.addEdgeBundle(edgeBundle);
+            }
+            return graph;
+        }
+
+        private List<PortComposition> readPortCompositions() throws IOException {
+            int numberOfPortCompositions = readVarint();
+            List<PortComposition> portCompositions = new ArrayList<>(numberOfPortCompositions);
+            for (int i = 0; i < numberOfPortCompositions; i++) {
+                int tag = readVarint();
+                if (tag == TAG_PORT) {
+                    Orientation orientation = ORIENTATIONS[readVarint()];
+                    List<Label> labels = new ArrayList<>();
+                    Label mainLabel = readLabels(labels);
+                    Port port = new Port(Collections.emptyList(), labels);
+                    setMainLabel(port, mainLabel);
+                    port.setOrientationAtVertex(orientation);
+                    ports.add(port);
+                    portCompositions.add(port);
+                }
+                else if (tag == TAG_PORT_GROUP) {
+                    boolean ordered = readVarint() == 1;
+                    portCompositions.add(new PortGroup(readPortCompositions(), ordered));
+                }
+                else {
+                    throw new IOException("Unknown port composition " + tag + " in snapshot.");
+                }
+            }
+            return portCompositions;
+        }
+
+        private List<VertexGroup> readVertexGroups() throws IOException {
+            int numberOfVertexGroups = readVarint();
+            List<VertexGroup> vertexGroups = new ArrayList<>(numberOfVertexGroups);
+            for (int i = 0; i < numberOfVertexGroups; i++) {
+                int numberOfContainedVertices = readVarint();
+                List<Vertex> containedVertices = new ArrayList<>(numberOfContainedVertices);
+                for (int j = 0; j < numberOfContainedVertices; j++) {
+                    containedVertices.add(vertices.get(readVarint()));
+                }
+                VertexGroup vertexGroup = new VertexGroup(containedVertices);
+                int numberOfTouchingPairs = readVarint();
+                for (int j = 0; j < numberOfTouchingPairs; j++) {
+                    Vertex vertex0 = vertices.get(readVarint());
+                    Vertex vertex1 = vertices.get(readVarint());
+                    vertexGroup.addTouchingPair(new TouchingPair(vertex0, vertex1));
+                }
+                int numberOfPortPairings = readVarint();
+                for (int j = 0; j < numberOfPortPairings; j++) {
+                    Port port0 = ports.get(readVarint());
+                    Port port1 = ports.get(readVarint());
+                    vertexGroup.addPortPairing(new PortPairing(port0, port1));
+                }
+                readLabels(vertexGroup);
+                for (VertexGroup containedVertexGroup : readVertexGroups()) {
+                    vertexGroup.addVertexGroup(containedVertexGroup);
+                }
+                vertexGroups.add(vertexGroup);
+            }
+            return vertexGroups;
+        }
+
+        private List<EdgeBundle> readEdgeBundles() throws IOException {
+            int numberOfEdgeBundles = readVarint();
+            List<EdgeBundle> edgeBundles = new ArrayList<>(numberOfEdgeBundles);
+            for (int i = 0; i < numberOfEdgeBundles; i++) {
+                int numberOfContainedEdges = readVarint();
+                List<Edge> containedEdges = new ArrayList<>(numberOfContainedEdges);
+                for (int j = 0; j < numberOfContainedEdges; j++) {
+                    containedEdges.add(edges.get(readVarint()));
+                }
+                EdgeBundle edgeBundle = new EdgeBundle(containedEdges, Collections.emptyList());
+                readLabels(edgeBundle);
+                for (EdgeBundle containedEdgeBundle : readEdgeBundles()) {
+                    edgeBundle.addEdgeBundle(containedEdgeBundle);
+                }
+                edgeBundles.add(edgeBundle);
+            }
+            return edgeBundles;
+        }
+
+        /**
+         * @param labels
+         *      the read labels are added to this list
+         * @return
+         *      the main label or null
+         */
+        private Label readLabels(List<Label> labels) {
+            int numberOfLabels = readVarint();
+            for (int i = 0; i < numberOfLabels; i++) {
+                int stringId = readVarint();
+                labels.add(new TextLabel(stringId == 0 ? null : strings[stringId - 1]));
+            }
+            int mainLabelIndex = readVarint();
+            return mainLabelIndex == 0 ? null : labels.get(mainLabelIndex - 1);
+        }
+
+        /**
+         * for objects created without labels
+         */
+        private void readLabels(LabeledObject labeledObject) {
+            List<Label> labels = new ArrayList<>();
+            Label mainLabel = readLabels(labels);
+            for (Label label : labels) {
+                labeledObject.getLabelManager().addLabel(label);
+            }
+            setMainLabel(labeledObject, mainLabel);
+        }
+
+        private static void setMainLabel(LabeledObject labeledObject, Label mainLabel) {
+            if (mainLabel != null && mainLabel != labeledObject.getLabelManager().getMainLabel()) {
+                labeledObject.getLabelManager().setMainLabel(mainLabel);
+            }
+        }
+
+        private int readVarint() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = snapshot.get();
+                value |= (b & 0x7f) << shift;
+                shift += 7;
+            }
+            while (b < 0);
+            return value;
+        }
+    }
+
+    /**
+     * growing byte array
+     */
+    private static class ByteSink {
+        private byte[] bytes = new byte[1 << 12];
+        private int size = 0;
+
+        private void writeVarint(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7f) != 0) {
+                bytes[size++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        private void write(byte[] values) {
+            ensureCapacity(values.length);
+            System.arraycopy(values, 0, bytes, size, values.length);
+            size += values.length;
+        }
+
+        private void write(ByteSink other) {
+            ensureCapacity(other.size);
+            System.arraycopy(other.bytes, 0, bytes, size, other.size);
+            size += other.size;
+        }
+
+        private void ensureCapacity(int additionalBytes) {
+            if (size + additionalBytes > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, size + additionalBytes));
+            }
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+}
@@ -1,15 +1,231 @@
 package de.uniwue.informatik.praline.pseudocircuitplans.generatingnewplans;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import de.uniwue.informatik.praline.datastructure.graphs.Graph;
 import de.uniwue.informatik.praline.datastructure.utils.Serialization;
 
-import java.io.FileWriter;
-import java.io.IOException;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
 
 public class IOUtils {
+
+    /**
+     * The praline data structure is described by its Jackson annotations, so this mapper should read and write the
+     * same json as {@link Serialization}, but it can also work on byte arrays and streams.
+     * This is checked on the first plan that is read or written (see
+     * {@link IOUtils#checkAgainstSerialization(Graph)}). Like {@link Serialization}, it fails on unknown properties,
+     * s.t. no field of a later plan is dropped silently.
+     */
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * null while not checked yet; false if {@link IOUtils#OBJECT_MAPPER} writes other json than {@link Serialization}
+     * -- then all plans are written by {@link Serialization}
+     */
+    private static volatile Boolean writesLikeSerialization;
+
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * @param inputStream
+     *      json of a graph -- it is not closed
+     * @return
+     * @throws IOException
+     */
+    public static Graph readGraph(InputStream inputStream) throws IOException {
+        return checkAgainstSerialization(OBJECT_MAPPER.readValue(new FilterInputStream(inputStream) {
+            @Override
+            public void close() {
+                //the caller closes it
+            }
+        }, Graph.class));
+    }
+
+    /**
+     * The graph is streamed as UTF-8 into a temporary file next to the target file, which is renamed to the target
+     * file afterwards. So the whole json is never kept in memory and there is never a partially written file at
+     * targetFilePath.
+     *
+     * @param graph
+     * @param targetFilePath
+     * @throws IOException
+     */
     public static void saveGraphAsJson(Graph graph, String targetFilePath) throws IOException {
-        FileWriter fileWriter = new FileWriter(targetFilePath);
-        fileWriter.write(Serialization.write(graph));
-        fileWriter.close();
+        checkAgainstSerialization(graph);
+        if (!writesLikeSerialization) {
+            saveJson(Serialization.write(graph).getBytes(StandardCharsets.UTF_8), targetFilePath);
+            return;
+        }
+        Path targetFile = Paths.get(targetFilePath);
+        Path temporaryFile = getTemporaryFile(targetFile);
+        try (OutputStream outputStream =
+                     new BufferedOutputStream(Files.newOutputStream(temporaryFile), OUTPUT_BUFFER_SIZE)) {
+            OBJECT_MAPPER.writeValue(outputStream, graph);
+        }
+        catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporaryFile);
+            throw e;
+        }
+        moveToTarget(temporaryFile, targetFile);
+    }
+
+    /**
+     * Like {@link IOUtils#saveGraphAsJson(Graph, String)}, there is never a partially written file at targetFilePath.
+     *
+     * @param json
+     *      json encoded in UTF-8, e.g., created by {@link IOUtils#writeGraphAsBytes(Graph)}
+     * @param targetFilePath
+     * @throws IOException
+     */
+    public static void saveJson(byte[] json, String targetFilePath) throws IOException {
+        saveBytes(json, targetFilePath);
+    }
+
+    /**
+     * Like {@link IOUtils#saveGraphAsJson(Graph, String)}, there is never a partially written file at targetFilePath.
+     *
+     * @param bytes
+     * @param targetFilePath
+     * @throws IOException
+     */
+    public static void saveBytes(byte[] bytes, String targetFilePath) throws IOException {
+        Path targetFile = Paths.get(targetFilePath);
+        Path temporaryFile = getTemporaryFile(targetFile);
+        try {
+            Files.write(temporaryFile, bytes);
+        }
+        catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporaryFile);
+            throw e;
+        }
+        moveToTarget(temporaryFile, targetFile);
+    }
+
+    /**
+     * the temporary file does not end with ".json", so it is never read as a plan
+     */
+    private static Path getTemporaryFile(Path targetFile) {
+        return targetFile.resolveSibling(targetFile.getFileName() + ".part");
+    }
+
+    private static void moveToTarget(Path temporaryFile, Path targetFile) throws IOException {
+        try {
+            Files.move(temporaryFile, targetFile, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporaryFile, targetFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * @param graph
+     * @return
+     *      json of this graph encoded in UTF-8
+     * @throws IOException
+     */
+    public static byte[] writeGraphAsBytes(Graph graph) throws IOException {
+        checkAgainstSerialization(graph);
+        if (!writesLikeSerialization) {
+            return Serialization.write(graph).getBytes(StandardCharsets.UTF_8);
+        }
+        return OBJECT_MAPPER.writeValueAsBytes(graph);
+    }
+
+    /**
+     * @param json
+     *      json of a graph encoded in UTF-8, e.g., created by {@link IOUtils#writeGraphAsBytes(Graph)}
+     * @return
+     * @throws IOException
+     */
+    public static Graph readGraphFromBytes(byte[] json) throws IOException {
+        return checkAgainstSerialization(OBJECT_MAPPER.readValue(json, Graph.class));
+    }
+
+    /**
+     * Compares {@link IOUtils#OBJECT_MAPPER} with {@link Serialization} once, on the first plan that is read or
+     * written: the json of both must be equal byte for byte and reading the json of the mapper and writing it again by
+     * {@link Serialization} must give the same bytes again. If only the written json differs (e.g. by the
+     * formatting), all plans are written by {@link Serialization} from then on.
+     *
+     * @param graph
+     * @return
+     *      graph
+     * @throws IOException
+     *      if reading the json of the mapper does not give the same plan again
+     */
+    private static Graph checkAgainstSerialization(Graph graph) throws IOException {
+        if (writesLikeSerialization != null) {
+            return graph;
+        }
+        synchronized (IOUtils.class) {
+            if (writesLikeSerialization == null) {
+                byte[] jsonOfSerialization = Serialization.write(graph).getBytes(StandardCharsets.UTF_8);
+                byte[] jsonOfMapper = OBJECT_MAPPER.writeValueAsBytes(graph);
+                byte[] roundTrip = Serialization.write(OBJECT_MAPPER.readValue(jsonOfMapper, Graph.class))
+                        .getBytes(StandardCharsets.UTF_8);
+                if (!Arrays.equals(roundTrip, jsonOfSerialization)) {
+                    throw new IOException("Plans are not read like by praline's Serialization.");
+                }
+                writesLikeSerialization = Arrays.equals(jsonOfMapper, jsonOfSerialization);
+                if (!writesLikeSerialization) {
+                    System.out.println("Warning! The json differs from praline's Serialization, so all plans are " +
+                            "written by it (without streaming).");
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * deep copy of a graph by serializing it and directly deserializing it again (in memory)
+     *
+     * @param graph
+     * @return
+     * @throws IOException
+     */
+    public static Graph copyGraph(Graph graph) throws IOException {
+        return readGraphFromBytes(writeGraphAsBytes(graph));
+    }
+
+    /**
+     * reads the remaining bytes of a buffer (e.g. of a memory mapped file)
+     */
+    static class ByteBufferInputStream extends InputStream {
+        private ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int numberOfReadBytes = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, numberOfReadBytes);
+            return numberOfReadBytes;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
     }
 }
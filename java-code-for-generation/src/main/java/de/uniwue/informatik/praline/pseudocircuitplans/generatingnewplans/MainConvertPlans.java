@@ -0,0 +1,50 @@
+package de.uniwue.informatik.praline.pseudocircuitplans.generatingnewplans;
+
+import de.uniwue.informatik.praline.datastructure.graphs.Graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Converts all plans of a {@link PlanSource} (json or snapshots) into a directory of {@link GraphSnapshot}s or into a
+ * directory of json files.
+ */
+public class MainConvertPlans {
+
+    /**
+     * directory, archive or json file (see {@link PlanSource})
+     */
+    private final static String SOURCE_PATH = "data" + File.separator + "praline-package-2020-05-18";
+
+    /**
+     * if true, the plans are saved as snapshots (".pgs"), otherwise as json files
+     */
+    private final static boolean TO_SNAPSHOT = true;
+
+    private final static String TARGET_PATH =
+            "data" + File.separator + "praline-package-2020-05-18" + (TO_SNAPSHOT ? "-snapshots" : "-json");
+
+    private final static int NUMBER_OF_THREADS = Runtime.getRuntime().availableProcessors();
+
+    public static void main(String[] args) throws IOException {
+        PlanSource planSource = PlanSource.open(SOURCE_PATH);
+        new File(TARGET_PATH).mkdirs();
+        AtomicInteger counter = new AtomicInteger();
+        long start = System.nanoTime();
+        planSource.readAll(plan -> {
+            Graph graph = plan.readGraph();
+            String planName = plan.getName().substring(0, plan.getName().length() - ".json".length());
+            if (TO_SNAPSHOT) {
+                GraphSnapshot.save(graph, TARGET_PATH + File.separator + planName + GraphSnapshot.FILE_ENDING);
+            }
+            else {
+                IOUtils.saveGraphAsJson(graph, TARGET_PATH + File.separator + planName + ".json");
+            }
+            System.out.println("Converted " + plan.getName() + " (" + counter.incrementAndGet() + ")");
+            return null;
+        }, NUMBER_OF_THREADS);
+        System.out.println("Converted " + counter.get() + " plans in " + (System.nanoTime() - start) / 1000000 +
+                " ms.");
+    }
+}
@@ -1,7 +1,6 @@
 package de.uniwue.informatik.praline.pseudocircuitplans.generatingnewplans;
 
 import de.uniwue.informatik.praline.datastructure.graphs.*;
-import de.uniwue.informatik.praline.datastructure.utils.Serialization;
 import de.uniwue.informatik.praline.pseudocircuitplans.properties.JungUtils;
 
 import java.io.File;
@@ -9,37 +8,38 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MainExtractLargestComponent {
 
+    /**
+     * directory, archive or json file (see {@link PlanSource})
+     */
     private final static String SOURCE_PATH = "data" + File.separator + "praline-package-2020-05-18";
 
     private final static String TARGET_PATH = "data" + File.separator + "largest-comp-praline-package-2020-05-18";
 
     private final static String FILE_PREFIX = "lc-";
 
+    private final static int NUMBER_OF_THREADS = Runtime.getRuntime().availableProcessors();
+
     public static void main(String[] args) throws IOException {
-        File sourceDir = new File(SOURCE_PATH);
-        if (!sourceDir.exists() || !sourceDir.isDirectory()) {
-            throw new IOException(SOURCE_PATH + " is no directory or does not exist. Abort.");
-        }
+        PlanSource planSource = PlanSource.open(SOURCE_PATH);
         File targetDir = new File(TARGET_PATH);
         if (!targetDir.exists()) {
             targetDir.mkdirs();
         }
-        //go through all files and if it is a json, it should be a circuit plan and we read it
-        int counter = 0;
-        File[] files = sourceDir.listFiles();
-        for (File file : files) {
-            System.out.println("Read file " + file.getName() + " (" + ++counter + "/" + files.length + ")");
-            if (file.isFile() && file.getName().endsWith(".json")) {
-                extractAndSaveGraphOfLargestComponent(file);
-            }
-        }
+        //go through all plans of the source (directory or archive)
+        AtomicInteger counter = new AtomicInteger();
+        planSource.readAll(plan -> {
+            System.out.println("Read file " + plan.getName() + " (" + counter.incrementAndGet() + ")");
+            extractAndSaveGraphOfLargestComponent(plan);
+            return null;
+        }, NUMBER_OF_THREADS);
     }
 
-    private static void extractAndSaveGraphOfLargestComponent(File jsonFile) throws IOException {
-        Graph graph = Serialization.read(jsonFile, Graph.class);
+    private static void extractAndSaveGraphOfLargestComponent(PlanSource.Entry plan) throws IOException {
+        Graph graph = plan.readGraph();
 
         Set<Set<JungUtils.PseudoVertex>> connectedComponents = JungUtils.getConnectedComponents(graph);
         //remove largest component from our collection. We will keep it.
@@ -61,7 +61,7 @@ public class MainExtractLargestComponent {
             }
         }
 
-        String targetFilePath = TARGET_PATH + File.separator + FILE_PREFIX + jsonFile.getName();
+        String targetFilePath = TARGET_PATH + File.separator + FILE_PREFIX + plan.getName();
         IOUtils.saveGraphAsJson(graph, targetFilePath);
         System.out.println("Saved " + targetFilePath);
     }
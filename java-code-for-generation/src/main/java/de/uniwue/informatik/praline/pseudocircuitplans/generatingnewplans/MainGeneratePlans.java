@@ -3,7 +3,7 @@ package de.uniwue.informatik.praline.pseudocircuitplans.generatingnewplans;
 import de.uniwue.informatik.praline.datastructure.graphs.*;
 import de.uniwue.informatik.praline.datastructure.labels.LabeledObject;
 import de.uniwue.informatik.praline.datastructure.labels.TextLabel;
-import de.uniwue.informatik.praline.datastructure.utils.Serialization;
+import de.uniwue.informatik.praline.pseudocircuitplans.analyzingoriginalplans.MainReadPlans;
 import de.uniwue.informatik.praline.pseudocircuitplans.properties.*;
 import org.apache.commons.math3.distribution.NormalDistribution;
 import org.javatuples.Pair;
@@ -11,10 +11,13 @@ import org.javatuples.Pair;
 import java.io.*;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.*;
 
 public class MainGeneratePlans {
 
+    /**
+     * directory, archive or json file (see {@link PlanSource})
+     */
     private final static String PATH_ORIGINAL_PLANS =
 //            "data/denkbares_08_06_2021/praline";
 //            "data" + File.separator + "praline-readable-2020-09-04";
@@ -30,6 +33,13 @@ public class MainGeneratePlans {
     private final static String PATH_GENERATED_PLANS =
             "data" + File.separator + "generated_" + DATE_FORMAT.format(new Date());
 
+    /**
+     * If true, all generated plans are appended to the corpus file {@link MainGeneratePlans#PATH_GENERATED_PLANS} +
+     * ".ndjson" (see {@link PlanCorpus}) instead of saving each of them as a separate file in the directory
+     * {@link MainGeneratePlans#PATH_GENERATED_PLANS}.
+     */
+    private final static boolean WRITE_TO_CORPUS = false;
+
     private final static int NUMBER_OF_GENERATED_PLANS_PER_ORIGINAL = 3;
 
     private final static int SEED = 945395365;
@@ -46,85 +56,296 @@ public class MainGeneratePlans {
 
     private final static int NUMBER_OF_CANDIDATES_FOR_EDGE_INSERTION = 1000;
 
-    private static int generatedPlansCounter = 0;
+    /**
+     * If true, the spread of the target values around the values of the original plan is derived from the
+     * interquartile range of the values of all original plans instead of their standard deviation, s.t. a few
+     * outlier plans do not widen it
+     */
+    private final static boolean USE_INTERQUARTILE_RANGE_AS_SPREAD = false;
 
-    public static void main(String[] args) throws IOException {
-        File sourceDir = new File(PATH_ORIGINAL_PLANS);
-        if (!sourceDir.exists() || !sourceDir.isDirectory()) {
-            throw new IOException(PATH_ORIGINAL_PLANS + " is no directory or does not exist. Abort.");
-        }
-        //go through all files and if it is a json, it should be a circuit plan and we read it
+    /**
+     * interquartile range of a normal distribution with standard deviation 1
+     */
+    private final static double INTERQUARTILE_RANGE_OF_STANDARD_NORMAL_DISTRIBUTION = 1.349;
+
+    /**
+     * statistic parameters of the distribution of each plan for which target values are drawn -- the parameters
+     * before the percentiles, s.t. the same seed draws the same random numbers as before they were added
+     */
+    private final static Set<StatisticParameter> TARGET_STATISTIC_PARAMETERS =
+            EnumSet.range(StatisticParameter.MIN, StatisticParameter.COUNT_MODE);
+
+    /**
+     * If true, every new plan is generated directly on the preprocessed original plan and all modifications are rolled
+     * back after the new plan was saved (see {@link GraphEditJournal}).
+     * If false, every new plan is generated on a deep copy of the preprocessed original plan.
+     */
+    private final static boolean USE_EDIT_JOURNAL = true;
+
+    /**
+     * Each generation worker generates all new plans of one original plan at a time.
+     * With more than 1 worker, the generated plans are not reproducible by {@link MainGeneratePlans#SEED} any more.
+     */
+    private final static int NUMBER_OF_GENERATION_THREADS = 1;
+
+    private final static int NUMBER_OF_WRITER_THREADS = 2;
+
+    /**
+     * if true, the property values of the original plans are taken from (and stored in) a {@link PropertyCache}
+     */
+    private final static boolean USE_PROPERTY_CACHE = true;
+
+    private final static PropertyCache PROPERTY_CACHE = new PropertyCache(PropertyCache.DEFAULT_DIRECTORY);
+
+    /**
+     * threads parsing and analyzing the original plans
+     */
+    private final static int NUMBER_OF_READER_THREADS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * if true, the graphs of the original plans are released after their values are computed and each original is
+     * read again right before new plans are generated from it, s.t. not all original plans are in memory at the same
+     * time
+     */
+    private final static boolean RELEASE_ORIGINAL_GRAPHS = true;
+
+    /**
+     * capacity of each queue between two stages of the {@link GenerationPipeline}
+     */
+    private final static int PIPELINE_QUEUE_CAPACITY = 16;
+
+    /**
+     * If true, every generated plan is analyzed in memory right after it was generated and the statistics of all
+     * generated plans are compared with those of the original plans at the end (like by
+     * {@link de.uniwue.informatik.praline.pseudocircuitplans.comparingTwoPlanSets.MainComparePlans}), s.t. tuning
+     * {@link MainGeneratePlans#q} or the spread in findStandardDeviation does not require writing, reading and parsing
+     * all generated plans.
+     */
+    private final static boolean COMPARE_WITH_ORIGINAL_PLANS = false;
+
+    /**
+     * if false, the generated plans are not saved -- only useful with
+     * {@link MainGeneratePlans#COMPARE_WITH_ORIGINAL_PLANS}
+     */
+    private final static boolean SAVE_GENERATED_PLANS = true;
+
+    /**
+     * paths that were already assigned to a generated plan, which may not be saved yet
+     */
+    private final static Set<String> ASSIGNED_FILE_PATHS = ConcurrentHashMap.newKeySet();
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        //go through all plans of the source (directory or archive) and read them
         //by that we collect our data and compute our statistics at first
+        PlanSource planSource = PlanSource.open(PATH_ORIGINAL_PLANS).filter(name ->
+                !PATH_ORIGINAL_PLANS.contains("readable") || name.endsWith("-praline.json"));
         DataSetProperties originalPlansProperties = new DataSetProperties();
-        for (File file : sourceDir.listFiles()) {
-            if (file.isFile() && file.getName().endsWith(".json") &&
-                    (!PATH_ORIGINAL_PLANS.contains("readable") || file.getName().endsWith("-praline.json"))) {
-                originalPlansProperties.add(gatherDataOfPlan(file));
-            }
-        }
+        originalPlansProperties.addAll(planSource.readAll(MainGeneratePlans::gatherDataOfPlan,
+                NUMBER_OF_READER_THREADS));
+
+        //the statistics of the original plans are needed for every new plan -> compute them only once
+        DataSetStatistics originalPlansStatistics = PrecomputedStatistics.compute(originalPlansProperties,
+                PropertyManager.getAllProperties(), NUMBER_OF_READER_THREADS);
+        DataSetProperties generatedPlansProperties = COMPARE_WITH_ORIGINAL_PLANS ? new DataSetProperties() : null;
 
         //now compute for each original plan the specified number of artificial new plans and save them
-        new File(PATH_GENERATED_PLANS).mkdirs();
+        //generation workers -> validation -> writers
+        PlanCorpus targetCorpus = null;
+        GenerationPipeline pipeline = null;
+        if (SAVE_GENERATED_PLANS) {
+            if (WRITE_TO_CORPUS) {
+                targetCorpus = PlanCorpus.openForAppending(PATH_GENERATED_PLANS + PlanCorpus.FILE_ENDING);
+            }
+            else {
+                new File(PATH_GENERATED_PLANS).mkdirs();
+            }
+            pipeline = new GenerationPipeline(PIPELINE_QUEUE_CAPACITY, NUMBER_OF_WRITER_THREADS, targetCorpus);
+        }
+        GenerationPipeline finalPipeline = pipeline;
+        ExecutorService generationWorkers = Executors.newFixedThreadPool(NUMBER_OF_GENERATION_THREADS);
+        List<Future<?>> generationTasks = new ArrayList<>(originalPlansProperties.size());
         for (PropertySheet originalPlanSheet : originalPlansProperties) {
-            for (int i = 0; i < NUMBER_OF_GENERATED_PLANS_PER_ORIGINAL; i++) {
-                generateNewPlans(originalPlanSheet, originalPlansProperties);
+            generationTasks.add(generationWorkers.submit(() -> {
+                generateNewPlansOfOriginal(originalPlanSheet, originalPlansStatistics, finalPipeline,
+                        generatedPlansProperties);
+                return null;
+            }));
+        }
+        generationWorkers.shutdown();
+        try {
+            for (Future<?> generationTask : generationTasks) {
+                generationTask.get();
             }
         }
-    }
+        catch (ExecutionException e) {
+            generationWorkers.shutdownNow();
+            throw new IOException("Generating new plans failed.", e.getCause());
+        }
+        finally {
+            try {
+                if (pipeline != null) {
+                    pipeline.close();
+                }
+            }
+            finally {
+                if (targetCorpus != null) {
+                    targetCorpus.close();
+                }
+            }
+        }
+        if (pipeline != null) {
+            System.out.println(pipeline.getStatistics());
+        }
 
-    private static PropertySheet gatherDataOfPlan(File jsonFile) throws IOException {
-        Graph plan = Serialization.read(jsonFile, Graph.class);
+        if (generatedPlansProperties != null) {
+            //text output for the complete statistics
+            System.out.println();
+            System.out.println("Evaluated " + PATH_ORIGINAL_PLANS + "(" + originalPlansProperties.size() +
+                    " plans) | generated plans in memory(" + generatedPlansProperties.size() + " plans).");
+            System.out.println();
+            System.out.println("Statistics:");
+            System.out.println();
+            MainReadPlans.textOutputStatistics(originalPlansProperties, generatedPlansProperties);
+        }
+    }
 
-        System.out.println("read plan " + jsonFile.getName());
+    /**
+     * @param originalPlanSheet
+     * @param originalPlansStatistics
+     * @param pipeline
+     *      if not null, the new plans are saved by it
+     * @param generatedPlansProperties
+     *      if not null, the values of the new plans are added to it
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private static void generateNewPlansOfOriginal(PropertySheet originalPlanSheet,
+                                                   DataSetStatistics originalPlansStatistics,
+                                                   GenerationPipeline pipeline,
+                                                   DataSetProperties generatedPlansProperties)
+            throws IOException, InterruptedException {
+        //all that does not depend on random choices is done only once per original plan
+        PreparedOriginal preparedOriginal = new PreparedOriginal(originalPlanSheet);
+        GenerationPipeline.GeneratedPlan previousPlan = null;
+        for (int i = 0; i < NUMBER_OF_GENERATED_PLANS_PER_ORIGINAL; i++) {
+            if (USE_EDIT_JOURNAL && previousPlan != null) {
+                //the journaled working copy of the previous plan must be rolled back first
+                previousPlan.awaitRelease();
+            }
+            long start = System.nanoTime();
+            PreparedOriginal.WorkingCopy workingCopy = USE_EDIT_JOURNAL ?
+                    preparedOriginal.newJournaledWorkingCopy() : preparedOriginal.newWorkingCopy();
+            boolean submitted = false;
+            try {
+                if (generateNewPlans(preparedOriginal, workingCopy, originalPlansStatistics)) {
+                    //assigned also if the plan is not saved, s.t. the same random choices are made in both cases
+                    String filePath = assignNewFilePath();
+                    long generationTime = System.nanoTime() - start;
+                    if (generatedPlansProperties != null) {
+                        //before the working copy is released (and rolled back)
+                        PropertySheet generatedPlanSheet = analyzeGeneratedPlan(workingCopy.getPlan());
+                        synchronized (generatedPlansProperties) {
+                            generatedPlansProperties.add(generatedPlanSheet);
+                        }
+                    }
+                    if (pipeline != null) {
+                        previousPlan = new GenerationPipeline.GeneratedPlan(workingCopy, filePath, generationTime);
+                        pipeline.submit(previousPlan);
+                        submitted = true;
+                    }
+                }
+            }
+            finally {
+                //otherwise it is released by the pipeline
+                if (!submitted) {
+                    workingCopy.release();
+                }
+            }
+        }
+    }
 
+    /**
+     * @return
+     *      the values of all properties of the generated plan, without the plan
+     */
+    private static PropertySheet analyzeGeneratedPlan(Graph plan) {
         PropertySheet propertySheet = new PropertySheet(plan);
         for (Property property : PropertyManager.getAllProperties()) {
             propertySheet.addValue(new PropertyValue<>(property, plan));
         }
+        propertySheet.releaseGraph();
+        return propertySheet;
+    }
+
+    private static PropertySheet gatherDataOfPlan(PlanSource.Entry planEntry) throws IOException {
+        //take what is in the cache and read the plan only if a value is missing or the plan is kept in memory
+        String contentHash = USE_PROPERTY_CACHE ? planEntry.computeContentHash() : null;
+        PropertySheet cachedValues = USE_PROPERTY_CACHE ?
+                PROPERTY_CACHE.load(contentHash, PropertyManager.getAllProperties()) : new PropertySheet(null);
+        boolean allValuesCached = true;
+        for (Property property : PropertyManager.getAllProperties()) {
+            if (!cachedValues.hasValue(property)) {
+                allValuesCached = false;
+            }
+        }
+        Graph plan = allValuesCached && RELEASE_ORIGINAL_GRAPHS ? null : planEntry.readGraph();
+
+        System.out.println("read plan " + planEntry.getName());
+
+        PropertySheet propertySheet = new PropertySheet(plan);
+        boolean computedNewValues = false;
+        for (Property property : PropertyManager.getAllProperties()) {
+            if (cachedValues.hasValue(property)) {
+                propertySheet.addValue(PropertyValue.createPrecomputedValue(property,
+                        cachedValues.getPropertyValue(property)));
+            }
+            else {
+                propertySheet.addValue(new PropertyValue<>(property, plan));
+                computedNewValues = true;
+            }
+        }
+        if (USE_PROPERTY_CACHE && computedNewValues) {
+            PROPERTY_CACHE.store(contentHash, propertySheet);
+        }
 
+        propertySheet.setOrigin(planEntry.getPlanId(), planEntry.createGraphLoader());
+        if (RELEASE_ORIGINAL_GRAPHS) {
+            propertySheet.releaseGraph();
+        }
         return propertySheet;
     }
 
 
     /**
      *
-     * @param originalPlanSheet
-     * @param originalPlansProperties
+     * @param preparedOriginal
+     * @param workingCopy
+     *      working copy of preparedOriginal, where isolated vertices are already removed -- it becomes the new plan
+     * @param originalPlansStatistics
      * @return
      *      success
      * @throws IOException
      */
-    private static boolean generateNewPlans(PropertySheet originalPlanSheet, DataSetProperties originalPlansProperties)
-            throws IOException {
-
-        //clone original graph by serializing it and directly deserializing it again
-        // TODO: do it more clever without using files
-        File dummyFile = new File("target" + File.separator + "dummyFileToBeDeleted.json");
-        if (!dummyFile.exists()) {
-            dummyFile.createNewFile();
-        }
-        FileOutputStream fos = new FileOutputStream(dummyFile, false);
-        BufferedWriter br = new BufferedWriter(new OutputStreamWriter(fos));
-        br.write(Serialization.write(originalPlanSheet.getGraph()));
-        br.flush();
-        br.close();
-        fos.flush();
-        fos.close();
-        Graph newPlan = Serialization.read(dummyFile, Graph.class);
-        dummyFile.delete();
+    private static boolean generateNewPlans(PreparedOriginal preparedOriginal, PreparedOriginal.WorkingCopy workingCopy,
+                                            DataSetStatistics originalPlansStatistics) throws IOException {
+
+        Graph newPlan = workingCopy.getPlan();
+        PropertySheet originalPlanSheet = preparedOriginal.getOriginalPlanSheet();
+
+        //all modifications of newPlan are reported to this journal
+        GraphEditJournal journal = workingCopy.getJournal();
+
+        //all vertex (group) types are looked up here and it is kept up to date by all following modifications
+        VertexClassificationCache classification = workingCopy.getClassification();
 
 
         ////////////
         // Phase 0: save current labels
         ////////////
-        List<String> vertexLabelTexts =
-                newPlan.getVertices().stream().filter(v -> !ImplicitCharacteristics.isSplice(v, newPlan)).map(v ->
-                        ((TextLabel) v.getLabelManager().getMainLabel()).getInputText()).collect(Collectors.toList());
+        List<String> vertexLabelTexts = preparedOriginal.getVertexLabelTexts();
         LinkedList<String> vertexLabelTextsUnused = new LinkedList<>(vertexLabelTexts);
         Collections.shuffle(vertexLabelTextsUnused, RANDOM); //create a random order in which the label texts will be re-assigned
-        List<String> edgeLabelTexts =
-                newPlan.getEdges().stream().map(e -> ((TextLabel) e.getLabelManager().getMainLabel()).getInputText())
-                        .collect(Collectors.toList());
+        List<String> edgeLabelTexts = preparedOriginal.getEdgeLabelTexts();
         LinkedList<String> edgeLabelTextsUnused = new LinkedList<>(edgeLabelTexts);
         Collections.shuffle(edgeLabelTextsUnused, RANDOM); //create a random order in which the label texts will be re-assigned
 
@@ -136,7 +357,7 @@ public class MainGeneratePlans {
         //Compute a random value for all properties. Some make absolutely no sense -- in particular for
         // some StatisticParameters for a NumberDistributionProperty. We will just ignore them.
         Pair<Map<NumericalProperty, Number>, Map<NumberDistributionProperty, Map<StatisticParameter, Number>>>
-                targetValueMaps = determineTargetValues(originalPlanSheet, originalPlansProperties);
+                targetValueMaps = determineTargetValues(originalPlanSheet, originalPlansStatistics);
         Map<NumericalProperty, Number> numericalTargetValues = targetValueMaps.getValue0();
         Map<NumberDistributionProperty, Map<StatisticParameter, Number>> numberDistributionTargetValues =
                 targetValueMaps.getValue1();
@@ -260,52 +481,32 @@ public class MainGeneratePlans {
         // Phase 2: remove a portion of q of all elements
         ////////////
 
-        // 0. remove all connected components of size 1, i.e., isolated vertices. Why they are there at all?
-        Set<Set<JungUtils.PseudoVertex>> connectedComponents = JungUtils.getConnectedComponents(newPlan);
-        for (Set<JungUtils.PseudoVertex> connectedComponent : connectedComponents) {
-            if (connectedComponent.size() == 1) {
-                for (JungUtils.PseudoVertex pseudoVertex : connectedComponent) {
-                    if (pseudoVertex.getVertexObject() instanceof Vertex) {
-                        removeVertexCleanly(newPlan, (Vertex) pseudoVertex.getVertexObject());
-                    }
-                    else if (pseudoVertex.getVertexObject() instanceof VertexGroup) {
-                        VertexGroup vertexGroup = (VertexGroup) pseudoVertex.getVertexObject();
-                        for (Vertex containedVertex :
-                                new ArrayList<>(vertexGroup.getAllRecursivelyContainedVertices())) {
-                            removeVertexCleanly(newPlan, containedVertex);
-                        }
-                        newPlan.removeVertexGroup(vertexGroup);
-                    }
-                }
-                //subtract this component from the target value
-                targetValueConnectedComponents = Math.max(1, targetValueConnectedComponents - 1);
-            }
+        //from now on, all insertions and removals of edges are reported to this counter
+        StructureCounter structureCounter = workingCopy.getStructureCounter();
+
+        // 0. all connected components of size 1, i.e., isolated vertices, were already removed from the working copy
+        for (int i = 0; i < preparedOriginal.getNumberOfRemovedIsolatedComponents(); i++) {
+            //subtract this component from the target value
+            targetValueConnectedComponents = Math.max(1, targetValueConnectedComponents - 1);
         }
 
-        //specify vertices and vertex groups
+        //specify vertices and vertex groups (already classified in the working copy)
 
-        Map<VertexType, List<Vertex>> verticesByType = separateVertices(newPlan);
-        List<Vertex> splices = verticesByType.get(VertexType.SPLICE);
-        List<Vertex> soloVertices = verticesByType.get(VertexType.SOLO_VERTEX);
+        List<Vertex> splices = workingCopy.getVertices(VertexType.SPLICE);
+        List<Vertex> soloVertices = workingCopy.getVertices(VertexType.SOLO_VERTEX);
 
-        Map<VertexGroupType, List<VertexGroup>> vertexGroupsByType = separateVertexGroups(newPlan);
-        List<VertexGroup> connectors = vertexGroupsByType.get(VertexGroupType.CONNECTOR);
-        List<VertexGroup> deviceConnectors = vertexGroupsByType.get(VertexGroupType.DEVICE_CONNECTOR);
+        List<VertexGroup> connectors = workingCopy.getVertexGroups(VertexGroupType.CONNECTOR);
+        List<VertexGroup> deviceConnectors = workingCopy.getVertexGroups(VertexGroupType.DEVICE_CONNECTOR);
 
         // A. splices
 
-        //all splices set empty text for port labels
-        for (Vertex splice : splices) {
-            for (Port port : splice.getPorts()) {
-                ((TextLabel) port.getLabelManager().getMainLabel()).setInputText("");
-            }
-        }
+        //all splices have already empty text for port labels in the working copy
         //remove q splices
         int numberSplicesRemoved = Math.max((int) ((double) splices.size() * q + 1.0),
                 splices.size() - targetValueSplices);
         List<Vertex> splicesToBeRemoved = selectRandomly(splices, numberSplicesRemoved);
         for (Vertex splice : splicesToBeRemoved) {
-            removeVertexCleanly(newPlan, splice);
+            removeVertexCleanly(newPlan, splice, structureCounter, classification, journal);
             splices.remove(splice);
         }
 
@@ -315,7 +516,7 @@ public class MainGeneratePlans {
                 soloVertices.size() - targetValueSoloVertices);
         List<Vertex> soloVerticesToBeRemoved = selectRandomly(soloVertices, numberSoloVerticesRemoved);
         for (Vertex vertex : soloVerticesToBeRemoved) {
-            removeVertexCleanly(newPlan, vertex);
+            removeVertexCleanly(newPlan, vertex, structureCounter, classification, journal);
             soloVertices.remove(vertex);
         }
         //remove q ports from solo vertices
@@ -333,7 +534,7 @@ public class MainGeneratePlans {
         List<Port> portsToBeRemoved = selectRandomly(soloPortsForRemoval, numberPortsSoloVerticesRemoved);
         for (Port p : portsToBeRemoved) {
             portsSoloVertices.remove(p);
-            removePortCleanly(newPlan, p);
+            removePortCleanly(newPlan, p, structureCounter, classification, journal);
         }
 
         // C. connectors
@@ -342,9 +543,11 @@ public class MainGeneratePlans {
                 connectors.size() - targetValueConnectors);
         List<VertexGroup> connectorsToBeRemoved = selectRandomly(connectors, numberConnectorsRemoved);
         for (VertexGroup connector : connectorsToBeRemoved) {
+            journal.vertexGroupRemoved(connector);
             newPlan.removeVertexGroup(connector);
+            classification.invalidate(connector);
             for (Vertex containedVertex : connector.getContainedVertices()) {
-                removeVertexCleanly(newPlan, containedVertex);
+                removeVertexCleanly(newPlan, containedVertex, structureCounter, classification, journal);
             }
             connectors.remove(connector);
         }
@@ -373,10 +576,12 @@ public class MainGeneratePlans {
             for (VertexGroup vertexGroup : newPlan.getVertexGroups()) {
                 if (vertexGroup.getPortPairings().contains(pp)) {
                     //remove reference to port pairing
+                    journal.portPairingRemoved(vertexGroup, pp);
                     vertexGroup.removePortPairing(pp);
+                    classification.invalidate(vertexGroup);
                     //and remove both individual ports
                     for (Port port : pp.getPorts()) {
-                        removePortCleanly(newPlan, port);
+                        removePortCleanly(newPlan, port, structureCounter, classification, journal);
                         pairedPorts.remove(port);
                     }
                     break;
@@ -401,7 +606,7 @@ public class MainGeneratePlans {
                 numberUnpairedPortsConnectorsRemoved);
         for (Port p : unpairedPortsToBeRemoved) {
             unpairedPortsConnectors.remove(p);
-            removePortCleanly(newPlan, p);
+            removePortCleanly(newPlan, p, structureCounter, classification, journal);
         }
 
         // D. device connectors
@@ -410,9 +615,11 @@ public class MainGeneratePlans {
                 deviceConnectors.size() - targetValueDeviceConnectors);
         List<VertexGroup> deviceConnectorsToBeRemoved = selectRandomly(deviceConnectors, numberDeviceConnectorsRemoved);
         for (VertexGroup deviceConnector : deviceConnectorsToBeRemoved) {
+            journal.vertexGroupRemoved(deviceConnector);
             newPlan.removeVertexGroup(deviceConnector);
+            classification.invalidate(deviceConnector);
             for (Vertex containedVertex : deviceConnector.getContainedVertices()) {
-                removeVertexCleanly(newPlan, containedVertex);
+                removeVertexCleanly(newPlan, containedVertex, structureCounter, classification, journal);
             }
             deviceConnectors.remove(deviceConnector);
         }
@@ -424,10 +631,10 @@ public class MainGeneratePlans {
         for (VertexGroup deviceConnector : deviceConnectors) {
             ArrayList<Vertex> deviceConnectorVerticesOfThisDeviceConnector = new ArrayList<>();
             for (Vertex containedVertex : deviceConnector.getContainedVertices()) {
-                if (ImplicitCharacteristics.isOfType(VertexType.DEVICE_CONNECTOR_VERTEX, containedVertex, newPlan)) {
+                if (classification.isOfType(VertexType.DEVICE_CONNECTOR_VERTEX, containedVertex)) {
                     deviceConnectorVerticesOfThisDeviceConnector.add(containedVertex);
                 }
-                else if (ImplicitCharacteristics.isOfType(VertexType.DEVICE_VERTEX, containedVertex, newPlan)) {
+                else if (classification.isOfType(VertexType.DEVICE_VERTEX, containedVertex)) {
                     allDeviceVertices.add(containedVertex);
                 }
             }
@@ -443,7 +650,7 @@ public class MainGeneratePlans {
                 numberDeviceConnectorVerticesRemoved);
         for (Vertex deviceConnectorToBeRemoved : deviceConnectorVerticesToBeRemoved) {
             allDeviceConnectorVertices.remove(deviceConnectorToBeRemoved);
-            removeVertexCleanly(newPlan, deviceConnectorToBeRemoved);
+            removeVertexCleanly(newPlan, deviceConnectorToBeRemoved, structureCounter, classification, journal);
         }
         //remove q port pairings from device connectors
         //first find all port pairings of device connectors
@@ -460,7 +667,7 @@ public class MainGeneratePlans {
             // pairing for each device connector vertex
             portPairingsDeviceConnectorsForRemoval.addAll(portPairingsOfThisDeviceConnector);
             for (Vertex containedVertex : deviceConnector.getContainedVertices()) {
-                if (ImplicitCharacteristics.isOfType(VertexType.DEVICE_CONNECTOR_VERTEX, containedVertex, newPlan)) {
+                if (classification.isOfType(VertexType.DEVICE_CONNECTOR_VERTEX, containedVertex)) {
                     ArrayList<Port> pairedPortsOfThisVertex = new ArrayList<>();
                     for (Port port : containedVertex.getPorts()) {
                         if (pairedPorts.contains(port)) {
@@ -484,10 +691,12 @@ public class MainGeneratePlans {
             for (VertexGroup vertexGroup : newPlan.getVertexGroups()) {
                 if (vertexGroup.getPortPairings().contains(pp)) {
                     //remove reference to port pairing
+                    journal.portPairingRemoved(vertexGroup, pp);
                     vertexGroup.removePortPairing(pp);
+                    classification.invalidate(vertexGroup);
                     //and remove both individual ports
                     for (Port port : pp.getPorts()) {
-                        removePortCleanly(newPlan, port);
+                        removePortCleanly(newPlan, port, structureCounter, classification, journal);
                         pairedPorts.remove(port);
                     }
                     break;
@@ -513,7 +722,7 @@ public class MainGeneratePlans {
                 numberUnpairedPortsDeviceConnectorsRemoved);
         for (Port p : unpairedPortsToBeRemoved) {
             unpairedPortsDeviceConnectors.remove(p);
-            removePortCleanly(newPlan, p);
+            removePortCleanly(newPlan, p, structureCounter, classification, journal);
         }
 
         // E. remove q edges
@@ -521,14 +730,15 @@ public class MainGeneratePlans {
         //remove all edges of degree at most 1 (they should not even be there! what are they actually?!)
         for (Edge edge : new ArrayList<>(newPlan.getEdges())) {
             if (edge.getPorts().size() <= 1) {
-                newPlan.removeEdge(edge);
+                removeEdge(newPlan, edge, structureCounter, classification, journal);
             }
         }
         //select q of all edges for removal
         LinkedList<Edge> edges = new LinkedList<>(newPlan.getEdges());
         int numberEdgesRemoved = Math.max((int) ((double) edges.size() * q + 1.0),
                 edges.size() - targetValueEdges);
-        List<Edge> edgesToBeRemoved = selectRandomly(newPlan.getEdges(), numberEdgesRemoved);
+        //an edge may be drawn again below for its degree -- remove it (and report it to the counters) only once
+        Set<Edge> edgesToBeRemoved = new LinkedHashSet<>(selectRandomly(newPlan.getEdges(), numberEdgesRemoved));
 
         //check for all degrees of hyperedges that we do not have too many
         LinkedHashMap<Integer, List<Edge>> edgesOfDegI = new LinkedHashMap<>();
@@ -554,7 +764,7 @@ public class MainGeneratePlans {
 
         //remove edges
         for (Edge e : edgesToBeRemoved) {
-            newPlan.removeEdge(e);
+            removeEdge(newPlan, e, structureCounter, classification, journal);
             edges.remove(e);
         }
 
@@ -562,14 +772,12 @@ public class MainGeneratePlans {
         // F. dissolve q edge bundles
 
         //TODO: for now we just remove all edge bundles. This step has to be added later!
-        for (EdgeBundle edgeBundle : new ArrayList<>(newPlan.getEdgeBundles())) {
-            newPlan.removeEdgeBundle(edgeBundle); //change this for-loop!
-        }
+        //all edge bundles were already removed in the working copy (see PreparedOriginal) -- change this there!
 
         // G. change labels
 
-        changeLabelsRandomly(newPlan.getVertices(), splices, vertexLabelTextsUnused, vertexLabelTexts);
-        changeLabelsRandomly(newPlan.getEdges(), null, edgeLabelTextsUnused, edgeLabelTexts);
+        changeLabelsRandomly(newPlan.getVertices(), splices, vertexLabelTextsUnused, vertexLabelTexts, journal);
+        changeLabelsRandomly(newPlan.getEdges(), null, edgeLabelTextsUnused, edgeLabelTexts, journal);
 
         ////////////
         // Phase 3: insert new elements to reach the target values (precisely or approximately)
@@ -586,6 +794,7 @@ public class MainGeneratePlans {
             Vertex newSplice = new Vertex(Collections.singleton(splicePort), Collections.singleton(spliceLabel));
             splices.add(newSplice);
             newPlan.addVertex(newSplice);
+            journal.vertexAdded(newSplice);
         }
 
         // B. solo vertices
@@ -597,22 +806,23 @@ public class MainGeneratePlans {
             int numberOfNewPorts = determineNumberOfNewElements(targetValuePortsSoloVertices, targetValueSoloVertices,
                     portsSoloVertices.size(), soloVertices.size(), targetValueStandardDeviationPortsPerSoloVertex);
             for (int i = 0; i < numberOfNewPorts; i++) {
-                addNewPort(newSoloVertex, portsSoloVertices);
+                addNewPort(newSoloVertex, portsSoloVertices, classification, journal);
             }
 
             soloVertices.add(newSoloVertex);
             newPlan.addVertex(newSoloVertex);
+            journal.vertexAdded(newSoloVertex);
         }
         //add ports randomly to solo vertices
         //TODO do something more clever than random, so strive for a specific distribution that is similar to an
         // original distribution
         while (portsSoloVertices.size() < targetValuePortsSoloVertices && !soloVertices.isEmpty()) {
             Vertex soloVertex = selectRandomly(soloVertices, 1).get(0);
-            addNewPort(soloVertex, portsSoloVertices);
+            addNewPort(soloVertex, portsSoloVertices, classification, journal);
         }
         //reset port label text of solo vertices
         for (Vertex soloVertex : soloVertices) {
-            resetPortLabelText(soloVertex, 0);
+            resetPortLabelText(soloVertex, 0, journal);
         }
 
         // C. connectors
@@ -624,21 +834,26 @@ public class MainGeneratePlans {
                 Vertex newConnectorVertex = new Vertex(null, Collections.singleton(vertexLabel));
                 verticesOfNewConnector.add(newConnectorVertex);
                 newPlan.addVertex(newConnectorVertex);
+                journal.vertexAdded(newConnectorVertex);
             }
             VertexGroup newConnector = new VertexGroup(verticesOfNewConnector);
-            newConnector.addTouchingPair(new TouchingPair(verticesOfNewConnector.get(0),
-                    verticesOfNewConnector.get(1)));
+            TouchingPair newTouchingPair = new TouchingPair(verticesOfNewConnector.get(0),
+                    verticesOfNewConnector.get(1));
+            newConnector.addTouchingPair(newTouchingPair);
+            journal.touchingPairAdded(newConnector, newTouchingPair);
             //init every connector with at least one port pairing
             int numberOfNewPortPairings = determineNumberOfNewElements(targetValuePortPairingsConnectors,
                     targetValueConnectors, portPairingsConnectors.size(), connectors.size(),
                     targetValueStandardDeviationPortPairingsPerConnector);
             for (int i = 0; i < numberOfNewPortPairings; i++) {
                 portPairingsConnectors.add(addNewPortPairing(newConnector, verticesOfNewConnector, pairedPorts,
-                        newPlan));
+                        classification, journal));
             }
 
             connectors.add(newConnector);
             newPlan.addVertexGroup(newConnector);
+            journal.vertexGroupAdded(newConnector);
+            classification.invalidate(newConnector);
         }
         //add port pairings randomly to connectors
         //TODO do something more clever than random, so strive for a specific distribution that is similar to an
@@ -646,7 +861,8 @@ public class MainGeneratePlans {
         while (portPairingsConnectors.size() < targetValuePortPairingsConnectors && !connectors.isEmpty()) {
             VertexGroup connector = selectRandomly(connectors, 1).get(0);
             portPairingsConnectors.add(
-                    addNewPortPairing(connector, connector.getContainedVertices(), pairedPorts, newPlan));
+                    addNewPortPairing(connector, connector.getContainedVertices(), pairedPorts, classification,
+                            journal));
         }
         //add unpaired ports randomly to connector vertices
         //TODO do something more clever than random, so strive for a specific distribution that is similar to an
@@ -654,11 +870,11 @@ public class MainGeneratePlans {
         while (unpairedPortsConnectors.size() < targetValueUnpairedPortsConnectors && !connectors.isEmpty()) {
             VertexGroup connector = selectRandomly(connectors, 1).get(0);
             Vertex connectorVertex = selectRandomly(connector.getContainedVertices(), 1).get(0);
-            addNewPort(connectorVertex, unpairedPortsConnectors);
+            addNewPort(connectorVertex, unpairedPortsConnectors, classification, journal);
         }
         //reset port label text of connectors
         for (VertexGroup connector : connectors) {
-            resetPortLabelText(connector, 0, unpairedPortsConnectors);
+            resetPortLabelText(connector, 0, unpairedPortsConnectors, journal);
         }
 
         // D. device connectors
@@ -674,11 +890,14 @@ public class MainGeneratePlans {
             TextLabel deviceLabel = new TextLabel(getNextLabelText(vertexLabelTextsUnused, vertexLabelTexts));
             Vertex newDeviceVertex = new Vertex(null, Collections.singleton(deviceLabel));
             newPlan.addVertex(newDeviceVertex);
+            journal.vertexAdded(newDeviceVertex);
             allDeviceVertices.add(newDeviceVertex);
 
             VertexGroup newDeviceConnector = new VertexGroup(Collections.singleton(newDeviceVertex));
             deviceConnectors.add(newDeviceConnector);
             newPlan.addVertexGroup(newDeviceConnector);
+            journal.vertexGroupAdded(newDeviceConnector);
+            classification.invalidate(newDeviceConnector);
 
             //create device connector vertices of new device connector
             for (int i = 0; i < Math.max(1, numberOfNewVerticesOfDeviceConnector - 1); i++) {
@@ -686,9 +905,14 @@ public class MainGeneratePlans {
                         getNextLabelText(vertexLabelTextsUnused, vertexLabelTexts));
                 Vertex newDeviceConnectorVertex = new Vertex(null, Collections.singleton(deviceConnectorVertexLabel));
                 newPlan.addVertex(newDeviceConnectorVertex);
+                journal.vertexAdded(newDeviceConnectorVertex);
 
                 newDeviceConnector.addVertex(newDeviceConnectorVertex);
-                newDeviceConnector.addTouchingPair(new TouchingPair(newDeviceVertex, newDeviceConnectorVertex));
+                journal.vertexAddedToVertexGroup(newDeviceConnector, newDeviceConnectorVertex);
+                TouchingPair newTouchingPair = new TouchingPair(newDeviceVertex, newDeviceConnectorVertex);
+                newDeviceConnector.addTouchingPair(newTouchingPair);
+                journal.touchingPairAdded(newDeviceConnector, newTouchingPair);
+                classification.invalidate(newDeviceConnector);
 
 
                 //init every device connector vertex with at least one port pairing
@@ -697,7 +921,8 @@ public class MainGeneratePlans {
                         allDeviceConnectorVertices.size(), targetValueStandardDeviationPortPairingsPerDeviceConnectorVertex);
                 for (int j = 0; j < numberOfNewPortPairings; j++) {
                     portPairingsDeviceConnectors.add(addNewPortPairing(newDeviceConnector,
-                            Arrays.asList(newDeviceVertex, newDeviceConnectorVertex), pairedPorts, newPlan));
+                            Arrays.asList(newDeviceVertex, newDeviceConnectorVertex), pairedPorts, classification,
+                            journal));
                 }
 
                 allDeviceConnectorVertices.add(newDeviceConnectorVertex);
@@ -712,12 +937,17 @@ public class MainGeneratePlans {
             Vertex newDeviceConnectorVertex = new Vertex(null,
                     Collections.singleton(new TextLabel(getNextLabelText(vertexLabelTextsUnused, vertexLabelTexts))));
             newPlan.addVertex(newDeviceConnectorVertex);
+            journal.vertexAdded(newDeviceConnectorVertex);
             allDeviceConnectorVertices.add(newDeviceConnectorVertex);
             deviceConnector.addVertex(newDeviceConnectorVertex);
-            deviceConnector.addTouchingPair(new TouchingPair(deviceVertex, newDeviceConnectorVertex));
+            journal.vertexAddedToVertexGroup(deviceConnector, newDeviceConnectorVertex);
+            TouchingPair newTouchingPair = new TouchingPair(deviceVertex, newDeviceConnectorVertex);
+            deviceConnector.addTouchingPair(newTouchingPair);
+            journal.touchingPairAdded(deviceConnector, newTouchingPair);
+            classification.invalidate(deviceConnector);
             //add a port pairing between them
             portPairingsDeviceConnectors.add(addNewPortPairing(deviceConnector, Arrays.asList(deviceVertex,
-                    newDeviceConnectorVertex), pairedPorts, newPlan));
+                    newDeviceConnectorVertex), pairedPorts, classification, journal));
         }
         //add port pairings randomly to device connectors
         //TODO do something more clever than random, so strive for a specific distribution that is similar to an
@@ -732,7 +962,7 @@ public class MainGeneratePlans {
                 deviceConnectorVertex = selectRandomly(deviceConnector.getContainedVertices(), 1).get(0);
             }
             portPairingsDeviceConnectors.add(addNewPortPairing(deviceConnector,  Arrays.asList(deviceVertex,
-                    deviceConnectorVertex), pairedPorts, newPlan));
+                    deviceConnectorVertex), pairedPorts, classification, journal));
         }
         //add unpaired ports randomly to vertices of device connector
         //TODO do something more clever than random, so strive for a specific distribution that is similar to an
@@ -741,11 +971,11 @@ public class MainGeneratePlans {
                 && !deviceConnectors.isEmpty()) {
             VertexGroup deviceConnector = selectRandomly(deviceConnectors, 1).get(0);
             Vertex vertexOfDeviceConnector = selectRandomly(deviceConnector.getContainedVertices(), 1).get(0);
-            addNewPort(vertexOfDeviceConnector, unpairedPortsDeviceConnectors);
+            addNewPort(vertexOfDeviceConnector, unpairedPortsDeviceConnectors, classification, journal);
         }
         //reset port label text of connectors
         for (VertexGroup deviceConnector : deviceConnectors) {
-            resetPortLabelText(deviceConnector, 0, unpairedPortsDeviceConnectors);
+            resetPortLabelText(deviceConnector, 0, unpairedPortsDeviceConnectors, journal);
         }
 
         // E. insert edges
@@ -807,7 +1037,7 @@ public class MainGeneratePlans {
         }
 
         //first connect different connected components to reach the target value for connected components
-        connectedComponents = JungUtils.getConnectedComponents(newPlan);
+        Set<Set<JungUtils.PseudoVertex>> connectedComponents = JungUtils.getConnectedComponents(newPlan);
         while (connectedComponents.size() > targetValueConnectedComponents) {
             List<Set<JungUtils.PseudoVertex>> componentsToBeConnected =
                     selectRandomly(new ArrayList<>(connectedComponents), 2);
@@ -840,13 +1070,14 @@ public class MainGeneratePlans {
             }
             //select a port from both selected components
             Port port0 = portsComponents.get(0).isEmpty() ? getPortThatCanHaveEdges(componentsToBeConnected.get(0),
-                    newPlan) : selectRandomly(portsComponents.get(0), 1).get(0);
+                    classification) : selectRandomly(portsComponents.get(0), 1).get(0);
             Port port1 = portsComponents.get(1).isEmpty() ? getPortThatCanHaveEdges(componentsToBeConnected.get(1),
-                    newPlan) : selectRandomly(portsComponents.get(1), 1).get(0);
-            addNewEdge(newPlan, Arrays.asList(port0, port1), edges, edgeLabelTextsUnused, edgeLabelTexts);
+                    classification) : selectRandomly(portsComponents.get(1), 1).get(0);
+            addNewEdge(newPlan, Arrays.asList(port0, port1), edges, edgeLabelTextsUnused, edgeLabelTexts,
+                    structureCounter, classification, journal);
             --missingEdges;
-            updatePortLists(port0, regularPortsWithoutEdgeUnassigned, numberOfEdges2RegularPort, newPlan);
-            updatePortLists(port1, regularPortsWithoutEdgeUnassigned, numberOfEdges2RegularPort, newPlan);
+            updatePortLists(port0, regularPortsWithoutEdgeUnassigned, numberOfEdges2RegularPort, classification);
+            updatePortLists(port1, regularPortsWithoutEdgeUnassigned, numberOfEdges2RegularPort, classification);
 
             //unify components
             connectedComponents.remove(componentsToBeConnected.get(0));
@@ -906,7 +1137,7 @@ public class MainGeneratePlans {
 //            portsToGetAnEdge.addAll(portsToGetMoreEdges);
         }
         //and for all splices
-        int currSpliceEdgeIncidences = countSpliceEdgeIncidences(newPlan);
+        int currSpliceEdgeIncidences = structureCounter.getSpliceEdgeIncidences();
         int addedSpliceEdgeIncidences = 0;
         while (currSpliceEdgeIncidences + addedSpliceEdgeIncidences < targetValueSpliceEdgeIncidences
                 && !splicePorts.isEmpty()) {
@@ -921,10 +1152,10 @@ public class MainGeneratePlans {
         LinkedHashMap<Integer, Integer> existingEdgesOfDegI = new LinkedHashMap<>();
         LinkedHashMap<Integer, Integer> missingEdgesOfDegI = new LinkedHashMap<>();
         for (int i = 0; i < targetValueHyperedgesOfDegreeI.length; i++) {
-            missingEdgeIncidences += i * Math.max(0,
-                    targetValueHyperedgesOfDegreeI[i] - countHyperedgesOfDegreeI(newPlan, i));
-            existingEdgesOfDegI.put(i, countHyperedgesOfDegreeI(newPlan, i));
-            missingEdgesOfDegI.put(i, targetValueHyperedgesOfDegreeI[i] - countHyperedgesOfDegreeI(newPlan, i));
+            int currEdgesOfDegI = structureCounter.getHyperedgesOfDegree(i);
+            missingEdgeIncidences += i * Math.max(0, targetValueHyperedgesOfDegreeI[i] - currEdgesOfDegI);
+            existingEdgesOfDegI.put(i, currEdgesOfDegI);
+            missingEdgesOfDegI.put(i, targetValueHyperedgesOfDegreeI[i] - currEdgesOfDegI);
         }
         if (availablePortIncidences != missingEdgeIncidences) {
             //TODO: bad case, occurs sometimes (maybe 1 of 20 times a plan is generated)
@@ -938,10 +1169,11 @@ public class MainGeneratePlans {
         //TODO: care about more the structural properties (currently only multi-edges) then also connectedness, ...
         //add hyperedges with deg >= 3
         for (int i = targetValueHyperedgesOfDegreeI.length - 1; i >= 3; i--) {
-            int currEdgesOfDegI = countHyperedgesOfDegreeI(newPlan, i);
+            int currEdgesOfDegI = structureCounter.getHyperedgesOfDegree(i);
             while (targetValueHyperedgesOfDegreeI[i] > currEdgesOfDegI) {
                 boolean success = findAndInsertNewEdge(newPlan, portsToGetAnEdge, i, edges,
-                        targetValueMeanParallelEdges, targetValueSelfLoops, edgeLabelTextsUnused, edgeLabelTexts);
+                        targetValueMeanParallelEdges, targetValueSelfLoops, edgeLabelTextsUnused, edgeLabelTexts,
+                        structureCounter, classification, journal);
                 if (!success) {
                     break;
                 }
@@ -952,7 +1184,8 @@ public class MainGeneratePlans {
         //add edges of deg 2
         while (missingEdges > 0) {
             boolean success = findAndInsertNewEdge(newPlan, portsToGetAnEdge, 2, edges,
-                    targetValueMeanParallelEdges, targetValueSelfLoops, edgeLabelTextsUnused, edgeLabelTexts);
+                    targetValueMeanParallelEdges, targetValueSelfLoops, edgeLabelTextsUnused, edgeLabelTexts,
+                    structureCounter, classification, journal);
             if (!success) {
                 break;
             }
@@ -964,7 +1197,7 @@ public class MainGeneratePlans {
         //TODO
 
         ////////////
-        // Save plan
+        // Check plan (it is saved by the GenerationPipeline)
         ////////////
 
         if (newPlan.getVertices().isEmpty()) {
@@ -972,6 +1205,10 @@ public class MainGeneratePlans {
             return false;
         }
 
+        return true;
+    }
+
+    private static String assignNewFilePath() {
         String fileId;
         String fileName;
         String filePath;
@@ -980,17 +1217,8 @@ public class MainGeneratePlans {
             fileName = "praline-pseudo-plan-" + fileId + ".json";
             filePath = PATH_GENERATED_PLANS + File.separator + fileName;
         }
-        while (new File(filePath).exists());
-        IOUtils.saveGraphAsJson(newPlan, filePath);
-
-        System.out.println("generated new plan " + (++generatedPlansCounter));
-
-        Set<Set<JungUtils.PseudoVertex>> connectedComponentsFinally = JungUtils.getConnectedComponents(newPlan);
-        if (connectedComponentsFinally.size() > 1) {
-            System.out.println("Warning! " + filePath + " has more than 1 connected component.");
-        }
-
-        return true;
+        while (new File(filePath).exists() || !ASSIGNED_FILE_PATHS.add(filePath));
+        return filePath;
     }
 
     private static <E> int countOccurrences(List<E> list, E element) {
@@ -1004,8 +1232,9 @@ public class MainGeneratePlans {
     }
 
     private static void updatePortLists(Port port, List<Port> regularPortsWithoutEdgeUnassigned,
-                                        Map<Integer, List<Port>> numberOfEdges2RegularPort, Graph graph) {
-        if (ImplicitCharacteristics.isSplice(port.getVertex(), graph)) {
+                                        Map<Integer, List<Port>> numberOfEdges2RegularPort,
+                                        VertexClassificationCache classification) {
+        if (classification.isSplice(port.getVertex())) {
             return;
         }
         if (regularPortsWithoutEdgeUnassigned.contains(port)) {
@@ -1021,18 +1250,19 @@ public class MainGeneratePlans {
         }
     }
 
-    private static Port getPortThatCanHaveEdges(Set<JungUtils.PseudoVertex> pseudoVertices, Graph graph) {
+    private static Port getPortThatCanHaveEdges(Set<JungUtils.PseudoVertex> pseudoVertices,
+                                                VertexClassificationCache classification) {
         for (JungUtils.PseudoVertex pseudoVertex : pseudoVertices) {
             Object vertexObject = pseudoVertex.getVertexObject();
             if (vertexObject instanceof Vertex) {
-                Port somePortWithEdges = getPortThatCanHaveEdges((Vertex) vertexObject, graph);
+                Port somePortWithEdges = getPortThatCanHaveEdges((Vertex) vertexObject, classification);
                 if (somePortWithEdges != null) {
                     return somePortWithEdges;
                 }
             }
             else if (vertexObject instanceof VertexGroup) {
                 for (Vertex containedVertex : ((VertexGroup) vertexObject).getContainedVertices()) {
-                    Port somePortWithEdges = getPortThatCanHaveEdges(containedVertex, graph);
+                    Port somePortWithEdges = getPortThatCanHaveEdges(containedVertex, classification);
                     if (somePortWithEdges != null) {
                         return somePortWithEdges;
                     }
@@ -1042,8 +1272,8 @@ public class MainGeneratePlans {
         return null;
     }
 
-    private static Port getPortThatCanHaveEdges(Vertex vertex, Graph graph) {
-        if (ImplicitCharacteristics.isDeviceVertex(vertex, graph) || vertex.getPorts().isEmpty()) {
+    private static Port getPortThatCanHaveEdges(Vertex vertex, VertexClassificationCache classification) {
+        if (classification.isDeviceVertex(vertex) || vertex.getPorts().isEmpty()) {
             return null;
         }
         return vertex.getPorts().iterator().next();
@@ -1058,6 +1288,9 @@ public class MainGeneratePlans {
      * @param targetValueMeanParallelEdges
      * @param edgeLabelTextsUnused
      * @param edgeLabelTexts
+     * @param structureCounter
+     * @param classification
+     * @param journal
      * @return
      *      success
      */
@@ -1065,7 +1298,10 @@ public class MainGeneratePlans {
                                                 Collection<Edge> setOfAlreadyExistingEdges,
                                                 double targetValueMeanParallelEdges, int targetValueSelfLoops,
                                                 LinkedList<String> edgeLabelTextsUnused,
-                                                Collection<String> edgeLabelTexts) {
+                                                Collection<String> edgeLabelTexts,
+                                                StructureCounter structureCounter,
+                                                VertexClassificationCache classification,
+                                                GraphEditJournal journal) {
         List<Collection<Port>> candidatesForNewEdge = generateCandidatesForNewEdge(portsToGetAnEdge, numberOfPorts);
         //if no edges available return fail
         if (candidatesForNewEdge == null) {
@@ -1076,14 +1312,15 @@ public class MainGeneratePlans {
         Collection<Port> bestCandidate = null;
         for (Collection<Port> candidate : candidatesForNewEdge) {
             double badnessCandidate = evaluateInsertionOfEdge(graph, candidate, targetValueMeanParallelEdges,
-                    targetValueSelfLoops, edgeLabelTextsUnused, edgeLabelTexts);
+                    targetValueSelfLoops, edgeLabelTextsUnused, edgeLabelTexts, structureCounter);
             if (badnessCandidate < bestBadness) {
                 bestBadness = badnessCandidate;
                 bestCandidate = candidate;
             }
         }
 
-        addNewEdge(graph, bestCandidate, setOfAlreadyExistingEdges, edgeLabelTextsUnused, edgeLabelTexts);
+        addNewEdge(graph, bestCandidate, setOfAlreadyExistingEdges, edgeLabelTextsUnused, edgeLabelTexts,
+                structureCounter, classification, journal);
         for (Port port : bestCandidate) {
             portsToGetAnEdge.remove(port);
         }
@@ -1097,15 +1334,18 @@ public class MainGeneratePlans {
      * @param targetValueMeanParallelEdges
      * @param edgeLabelTextsUnused
      * @param edgeLabelTexts
+     * @param structureCounter
      * @return
      *      badness of insertion (0 is best possible insertion)
      */
     private static double evaluateInsertionOfEdge(Graph graph, Collection<Port> portsOfNewEdge,
                                                   double targetValueMeanParallelEdges, int targetValueSelfLoops,
                                                   LinkedList<String> edgeLabelTextsUnused,
-                                                  Collection<String> edgeLabelTexts) {
-        //add edge just to compute the badness
-        Edge newEdge = addNewEdge(graph, portsOfNewEdge, null, edgeLabelTextsUnused, edgeLabelTexts);
+                                                  Collection<String> edgeLabelTexts,
+                                                  StructureCounter structureCounter) {
+        //add edge just to compute the badness (not journaled and no types invalidated because it is removed right away)
+        Edge newEdge = addNewEdge(graph, portsOfNewEdge, null, edgeLabelTextsUnused, edgeLabelTexts,
+                structureCounter, null, null);
         //compute badness
         NumberDistributionProperty<Integer> parallelEdgesProperty =
                 (NumberDistributionProperty<Integer>) PropertyManager.getProperty("parallelEdges");
@@ -1113,13 +1353,12 @@ public class MainGeneratePlans {
                 parallelEdgesProperty.getComputingFunctionProperty().apply(graph);
         double currentMean = parallelEdgesDistribution.get(StatisticParameter.MEAN);
 //        double currentStandardDeviation = parallelEdgesDistribution.get(StatisticParameter.STANDARD_DEVIATION);
-        NumericalProperty<Integer> selfLoopProperty =
-                (NumericalProperty<Integer>) PropertyManager.getProperty("selfLoopEdges");
-        int selfLoops = selfLoopProperty.getComputingFunctionProperty().apply(graph);
+        //same value as property "selfLoopEdges", but maintained incrementally
+        int selfLoops = structureCounter.getSelfLoops();
         int numberOfSurplusSelfLoops = Math.max(0, selfLoops - targetValueSelfLoops);
         double badness = Math.pow(targetValueMeanParallelEdges / currentMean - 1.0, 2.0) + numberOfSurplusSelfLoops;
         //remove the new edge after evaluation
-        graph.removeEdge(newEdge);
+        removeEdge(graph, newEdge, structureCounter, null, null);
 
         return badness;
     }
@@ -1159,39 +1398,53 @@ public class MainGeneratePlans {
         return ports;
     }
 
-    private static int countHyperedgesOfDegreeI(Graph graph, int i) {
-        int count = 0;
-        for (Edge edge : graph.getEdges()) {
-            if (edge.getPorts().size() == i) {
-                ++count;
-            }
-        }
-        return count;
-    }
-
-    private static int countSpliceEdgeIncidences(Graph graph) {
-        int sum = 0;
-        for (Vertex vertex : graph.getVertices()) {
-            if (ImplicitCharacteristics.isSplice(vertex, graph)) {
-                for (Port port : vertex.getPorts()) {
-                    sum += port.getEdges().size();
-                }
-            }
-        }
-        return sum;
-    }
-
+    /**
+     * @param classification
+     *      may be null for a trial edge that is removed right away -- then the types of its vertices are kept, s.t.
+     *      the structure counter is updated with the same types on insertion and removal
+     * @param journal
+     *      may be null if this insertion is not to be rolled back
+     */
     private static Edge addNewEdge(Graph graph, Collection<Port> ports, Collection<Edge> setOfAlreadyExistingEdges,
-                                   LinkedList<String> edgeLabelTextsUnused, Collection<String> edgeLabelTexts) {
+                                   LinkedList<String> edgeLabelTextsUnused, Collection<String> edgeLabelTexts,
+                                   StructureCounter structureCounter, VertexClassificationCache classification,
+                                   GraphEditJournal journal) {
         TextLabel edgeLabel = new TextLabel(getNextLabelText(edgeLabelTextsUnused, edgeLabelTexts));
         Edge newEdge = new Edge(ports, Collections.singleton(edgeLabel), null);
         if (setOfAlreadyExistingEdges != null) {
             setOfAlreadyExistingEdges.add(newEdge);
         }
         graph.addEdge(newEdge);
+        structureCounter.edgeAdded(newEdge);
+        if (classification != null) {
+            classification.invalidate(newEdge);
+        }
+        if (journal != null) {
+            journal.edgeAdded(newEdge);
+        }
         return newEdge;
     }
 
+    /**
+     * @param classification
+     *      may be null for a trial edge (see {@link MainGeneratePlans#addNewEdge(Graph, Collection, Collection,
+     *      LinkedList, Collection, StructureCounter, VertexClassificationCache, GraphEditJournal)})
+     * @param journal
+     *      may be null if this removal is not to be rolled back
+     */
+    private static void removeEdge(Graph graph, Edge edge, StructureCounter structureCounter,
+                                   VertexClassificationCache classification, GraphEditJournal journal) {
+        //report it before the removal -- the edge still knows its ports then
+        structureCounter.edgeRemoved(edge);
+        if (classification != null) {
+            classification.invalidate(edge);
+        }
+        if (journal != null) {
+            journal.edgeRemoved(edge);
+        }
+        graph.removeEdge(edge);
+    }
+
     /**
      * With this method, I tried to come closer to the original variance/standard deviation of elements per object
      * by trying to initialize with a (already good) number of initial elements per objects.
@@ -1237,36 +1490,49 @@ public class MainGeneratePlans {
     private static void changeLabelsRandomly(Collection<? extends LabeledObject> toBeRenamed,
                                              Collection<? extends LabeledObject> toBeExcluded,
                                              LinkedList<String> labelTextsUnused,
-                                             Collection<String> labelTexts) {
+                                             Collection<String> labelTexts, GraphEditJournal journal) {
         if (toBeExcluded == null) {
             toBeExcluded = Collections.emptyList();
         }
         for (LabeledObject labeledObject : toBeRenamed) {
             if (!toBeExcluded.contains(labeledObject)) {
-                ((TextLabel) labeledObject.getLabelManager().getMainLabel())
-                        .setInputText(getNextLabelText(labelTextsUnused, labelTexts));
+                setMainLabelText(labeledObject, getNextLabelText(labelTextsUnused, labelTexts), journal);
             }
         }
     }
 
-    private static Port addNewPort(Vertex vertex, Collection<Port> newPortToBeAddedTo) {
+    private static void setMainLabelText(LabeledObject labeledObject, String text, GraphEditJournal journal) {
+        TextLabel mainLabel = (TextLabel) labeledObject.getLabelManager().getMainLabel();
+        String previousText = mainLabel.getInputText();
+        mainLabel.setInputText(text);
+        journal.labelTextChanged(mainLabel, previousText);
+    }
+
+    private static Port addNewPort(Vertex vertex, Collection<Port> newPortToBeAddedTo,
+                                   VertexClassificationCache classification, GraphEditJournal journal) {
         TextLabel portLabel = new TextLabel(""); //start with empty label -- port labels will be reset later
         Port newPort = new Port(Collections.emptyList(), Collections.singleton(portLabel));
         newPortToBeAddedTo.add(newPort);
 
         //if there is no port group yet create one
         if (vertex.getPortCompositions().isEmpty()) {
-            vertex.addPortComposition(new PortGroup(null, false));
+            PortGroup newPortGroup = new PortGroup(null, false);
+            vertex.addPortComposition(newPortGroup);
+            journal.portCompositionAdded(vertex, newPortGroup);
         }
         //select one of the port groups on the top level randomly
         PortGroup portGroup = (PortGroup) selectRandomly(vertex.getPortCompositions(), 1).get(0);
         portGroup.addPortComposition(newPort);
+        journal.portCompositionAdded(vertex, newPort);
+        classification.invalidate(vertex);
 
         return newPort;
     }
 
     private static PortPairing addNewPortPairing(VertexGroup vertexGroup, List<Vertex> twoVerticesToGetThePortPairing,
-                                                 Collection<Port> newPortsToBeAddedTo, Graph graph) {
+                                                 Collection<Port> newPortsToBeAddedTo,
+                                                 VertexClassificationCache classification,
+                                                 GraphEditJournal journal) {
         ArrayList<Port> portsOfNewPortPairing = new ArrayList<>(2);
         for (Vertex vertex : twoVerticesToGetThePortPairing) {
             TextLabel portLabel = new TextLabel(""); //start with empty label -- port labels will be reset later
@@ -1275,17 +1541,22 @@ public class MainGeneratePlans {
                 newPortsToBeAddedTo.add(port);
             }
             portsOfNewPortPairing.add(port);
-            PortGroup portGroup = findOrCreateCorrectPortGroup(vertex, vertexGroup, graph);
+            PortGroup portGroup = findOrCreateCorrectPortGroup(vertex, vertexGroup, classification, journal);
             portGroup.addPortComposition(port);
+            journal.portCompositionAdded(vertex, port);
         }
         PortPairing newPortPairing = new PortPairing(portsOfNewPortPairing.get(0), portsOfNewPortPairing.get(1));
         vertexGroup.addPortPairing(newPortPairing);
+        journal.portPairingAdded(vertexGroup, newPortPairing);
+        classification.invalidate(vertexGroup);
 
         return newPortPairing;
     }
 
-    private static PortGroup findOrCreateCorrectPortGroup(Vertex vertex, VertexGroup vertexGroup, Graph graph) {
-        if (ImplicitCharacteristics.isOfType(VertexType.DEVICE_VERTEX, vertex, graph)) {
+    private static PortGroup findOrCreateCorrectPortGroup(Vertex vertex, VertexGroup vertexGroup,
+                                                          VertexClassificationCache classification,
+                                                          GraphEditJournal journal) {
+        if (classification.isDeviceVertex(vertex)) {
             ArrayList<PortGroup> allPortGroups = new ArrayList<>();
             for (PortComposition portGroup : vertex.getPortCompositions()) {
                 allPortGroups.add((PortGroup) portGroup);
@@ -1303,10 +1574,13 @@ public class MainGeneratePlans {
             //if we did not find such a port group then we create a new one
             PortGroup newPortGroup = new PortGroup(null, false);
             vertex.addPortComposition(newPortGroup);
+            journal.portCompositionAdded(vertex, newPortGroup);
             return newPortGroup;
         }
         if (vertex.getPortCompositions().isEmpty()) {
-            vertex.addPortComposition(new PortGroup(null, false));
+            PortGroup newPortGroup = new PortGroup(null, false);
+            vertex.addPortComposition(newPortGroup);
+            journal.portCompositionAdded(vertex, newPortGroup);
         }
         return (PortGroup) vertex.getPortCompositions().get(0);
     }
@@ -1314,23 +1588,35 @@ public class MainGeneratePlans {
     /**
      * removes also incident edges
      */
-    private static void removePortCleanly(Graph graph, Port port) {
+    private static void removePortCleanly(Graph graph, Port port, StructureCounter structureCounter,
+                                          VertexClassificationCache classification, GraphEditJournal journal) {
         for (Edge edge : new ArrayList<>(port.getEdges())) {
-            graph.removeEdge(edge);
+            removeEdge(graph, edge, structureCounter, classification, journal);
         }
-        port.getVertex().removePortComposition(port);
+        Vertex vertex = port.getVertex();
+        journal.portRemoved(port);
+        vertex.removePortComposition(port);
+        classification.invalidate(vertex);
     }
 
     /**
      * removes also incident edges
+     *
+     * @param journal
+     *      may be null if this removal is not to be rolled back
      */
-    private static void removeVertexCleanly(Graph graph, Vertex vertex) {
+    static void removeVertexCleanly(Graph graph, Vertex vertex, StructureCounter structureCounter,
+                                    VertexClassificationCache classification, GraphEditJournal journal) {
         for (Port port : vertex.getPorts()) {
             for (Edge edge : new ArrayList<>(port.getEdges())) {
-                graph.removeEdge(edge);
+                removeEdge(graph, edge, structureCounter, classification, journal);
             }
         }
+        if (journal != null) {
+            journal.vertexRemoved(vertex);
+        }
         graph.removeVertex(vertex);
+        classification.invalidate(vertex);
     }
 
     private static PortPairing getPortPairing(Port port, VertexGroup vertexGroup) {
@@ -1351,9 +1637,11 @@ public class MainGeneratePlans {
      * @param vertexGroup
      * @param skipNumberProbability
      *      value in range [0,1) -- set this value to 0 to skip nothing
+     * @param unpairedPorts
+     * @param journal
      */
     private static void resetPortLabelText(VertexGroup vertexGroup, double skipNumberProbability,
-                                           Collection<Port> unpairedPorts) {
+                                           Collection<Port> unpairedPorts, GraphEditJournal journal) {
         List<Vertex> vertices = vertexGroup.getContainedVertices();
         //first find vertex with the most ports
         int maxPorts = Integer.MIN_VALUE;
@@ -1365,7 +1653,7 @@ public class MainGeneratePlans {
             }
         }
 
-        int portNumber = resetPortLabelText(vertexWithMostPorts, skipNumberProbability, ""); //"A.");
+        int portNumber = resetPortLabelText(vertexWithMostPorts, skipNumberProbability, "", journal); //"A.");
 
         //name the ports of the other vertices
         //1. determine prefix
@@ -1394,14 +1682,14 @@ public class MainGeneratePlans {
                         ++portNumber;
                     }
                 }
-                ((TextLabel) basePort.getLabelManager().getMainLabel()).setInputText(
+                setMainLabelText(basePort,
 //                        vertex2prefix.get(basePort.getVertex()) +
-                        (portNumber++) + "");
+                        (portNumber++) + "", journal);
             }
             //name the other by the base port
-            ((TextLabel) otherPort.getLabelManager().getMainLabel()).setInputText(
+            setMainLabelText(otherPort,
 //                    vertex2prefix.get(otherPort.getVertex()) +
-                    ((TextLabel) basePort.getLabelManager().getMainLabel()).getInputText()); //.substring(2));
+                    ((TextLabel) basePort.getLabelManager().getMainLabel()).getInputText(), journal); //.substring(2));
         }
         //3. find and name unpaired ports
         for (Vertex vertex : vertices) {
@@ -1412,9 +1700,9 @@ public class MainGeneratePlans {
                             ++portNumber;
                         }
                     }
-                    ((TextLabel) port.getLabelManager().getMainLabel()).setInputText(
+                    setMainLabelText(port,
 //                            vertex2prefix.get(port.getVertex()) +
-                            (portNumber++) + "");
+                            (portNumber++) + "", journal);
                 }
             }
         }
@@ -1427,14 +1715,16 @@ public class MainGeneratePlans {
      * @param vertex
      * @param skipNumberProbability
      *      value in range [0,1) -- set this value to 0 to skip nothing
+     * @param journal
      * @return
      *      greatest port number + 1 that was used
      */
-    private static int resetPortLabelText(Vertex vertex, double skipNumberProbability) {
-        return resetPortLabelText(vertex, skipNumberProbability, "");
+    private static int resetPortLabelText(Vertex vertex, double skipNumberProbability, GraphEditJournal journal) {
+        return resetPortLabelText(vertex, skipNumberProbability, "", journal);
     }
 
-    private static int resetPortLabelText(Vertex vertex, double skipNumberProbability, String portNamePrefix) {
+    private static int resetPortLabelText(Vertex vertex, double skipNumberProbability, String portNamePrefix,
+                                          GraphEditJournal journal) {
         if (portNamePrefix == null) {
             portNamePrefix = "";
         }
@@ -1449,35 +1739,11 @@ public class MainGeneratePlans {
                     ++portNumber;
                 }
             }
-            ((TextLabel) port.getLabelManager().getMainLabel()).setInputText(portNamePrefix + (portNumber++));
+            setMainLabelText(port, portNamePrefix + (portNumber++), journal);
         }
         return portNumber;
     }
 
-    private static Map<VertexType, List<Vertex>> separateVertices(Graph plan) {
-        Map<VertexType, List<Vertex>> vertexTypeMap = new LinkedHashMap<>(VertexType.values().length);
-
-        for (VertexType vertexType : VertexType.values()) {
-            vertexTypeMap.put(vertexType, new ArrayList<>());
-        }
-        for (Vertex vertex : plan.getVertices()) {
-            vertexTypeMap.get(ImplicitCharacteristics.getVertexType(vertex, plan)).add(vertex);
-        }
-        return vertexTypeMap;
-    }
-
-    private static Map<VertexGroupType, List<VertexGroup>> separateVertexGroups(Graph plan) {
-        Map<VertexGroupType, List<VertexGroup>> vertexGroupTypeMap = new LinkedHashMap<>(VertexGroupType.values().length);
-
-        for (VertexGroupType vertexGroupType : VertexGroupType.values()) {
-            vertexGroupTypeMap.put(vertexGroupType, new ArrayList<>());
-        }
-        for (VertexGroup vertexGroup : plan.getVertexGroups()) {
-            vertexGroupTypeMap.get(ImplicitCharacteristics.getVertexGroupType(vertexGroup, plan)).add(vertexGroup);
-        }
-        return vertexGroupTypeMap;
-    }
-
     private static String getNextLabelText(LinkedList<String> labelTextsUnused,
                                            Collection<String> labelTexts) {
         if (!labelTextsUnused.isEmpty()) {
@@ -1499,7 +1765,7 @@ public class MainGeneratePlans {
     }
 
     private static Pair<Map<NumericalProperty,Number>, Map<NumberDistributionProperty,Map<StatisticParameter,Number>>>
-    determineTargetValues(PropertySheet originalPlanSheet, DataSetProperties originalPlansProperties) {
+    determineTargetValues(PropertySheet originalPlanSheet, DataSetStatistics originalPlansStatistics) {
 
         Map<NumericalProperty,Number> numericalPropertyMap = new LinkedHashMap<>();
         Map<NumberDistributionProperty,Map<StatisticParameter,Number>> numberDistributionPropertyMap = new LinkedHashMap<>();
@@ -1508,17 +1774,17 @@ public class MainGeneratePlans {
             Property property = propertyValue.getProperty();
             if (property instanceof NumericalProperty) {
                 Number n = (Number) propertyValue.getValue();
-                double standardDeviation = findStandardDeviation((NumericalProperty) property, originalPlansProperties);
+                double standardDeviation = findStandardDeviation((NumericalProperty) property, originalPlansStatistics);
                 Number correctTypeNewValue = computeTargetValueByNormalDistribution(n, standardDeviation);
                 numericalPropertyMap.put((NumericalProperty) property, correctTypeNewValue);
             }
             else if (property instanceof NumberDistributionProperty) {
                 NumberDistribution<?> numberDistribution = (NumberDistribution<?>) propertyValue.getValue();
                 numberDistributionPropertyMap.put((NumberDistributionProperty) property, new LinkedHashMap<>());
-                for (StatisticParameter statisticParameter : StatisticParameter.values()) {
+                for (StatisticParameter statisticParameter : TARGET_STATISTIC_PARAMETERS) {
                     Number n = numberDistribution.get(statisticParameter);
                     double standardDeviation = findStandardDeviation((NumberDistributionProperty) property,
-                            statisticParameter, originalPlansProperties);
+                            statisticParameter, originalPlansStatistics);
                     Number correctTypeNewValue = computeTargetValueByNormalDistribution(n, standardDeviation);
                     numberDistributionPropertyMap.get(property).put(statisticParameter, correctTypeNewValue);
                 }
@@ -1555,16 +1821,22 @@ public class MainGeneratePlans {
         return correctTypeNewValue;
     }
 
-    private static double findStandardDeviation(NumericalProperty property, DataSetProperties originalPlansProperties) {
-        return originalPlansProperties.get(property, StatisticParameter.STANDARD_DEVIATION)
-                / originalPlansProperties.get(property, StatisticParameter.COUNT) * 40.0; //100.0;
+    private static double findStandardDeviation(NumericalProperty property, DataSetStatistics originalPlansStatistics) {
+        double spread = USE_INTERQUARTILE_RANGE_AS_SPREAD ?
+                originalPlansStatistics.get(property, StatisticParameter.IQR) /
+                        INTERQUARTILE_RANGE_OF_STANDARD_NORMAL_DISTRIBUTION :
+                originalPlansStatistics.get(property, StatisticParameter.STANDARD_DEVIATION);
+        return spread / originalPlansStatistics.get(property, StatisticParameter.COUNT) * 40.0; //100.0;
     }
 
     private static double findStandardDeviation(NumberDistributionProperty property,
                                                 StatisticParameter statisticParameter,
-                                                DataSetProperties originalPlansProperties) {
-        return originalPlansProperties.get(property, statisticParameter, StatisticParameter.STANDARD_DEVIATION)
-                / originalPlansProperties.get(property, statisticParameter, StatisticParameter.COUNT); // * 2.0;
+                                                DataSetStatistics originalPlansStatistics) {
+        double spread = USE_INTERQUARTILE_RANGE_AS_SPREAD ?
+                originalPlansStatistics.get(property, statisticParameter, StatisticParameter.IQR) /
+                        INTERQUARTILE_RANGE_OF_STANDARD_NORMAL_DISTRIBUTION :
+                originalPlansStatistics.get(property, statisticParameter, StatisticParameter.STANDARD_DEVIATION);
+        return spread / originalPlansStatistics.get(property, statisticParameter, StatisticParameter.COUNT); // * 2.0;
     }
 
     private static <E> List<E> selectRandomly(List<E> baseList, int elementsToBeSelected) {
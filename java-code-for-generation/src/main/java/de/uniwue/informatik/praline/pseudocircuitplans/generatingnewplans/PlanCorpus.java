@@ -0,0 +1,307 @@
+package de.uniwue.informatik.praline.pseudocircuitplans.generatingnewplans;
+
+import de.uniwue.informatik.praline.datastructure.graphs.Graph;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Many plans in one file: the json of each plan in one line (".ndjson", newline delimited json).
+ * Next to it, there is an index file (".ndjson.idx") with the offset and the length (in bytes, without the line break)
+ * of each plan as two longs, so plan n is found without reading the plans before it.
+ * The index is read into memory once and then only extended by appending. The corpus file is memory mapped (as a
+ * whole, if possible) when a plan is read.
+ * <br/>
+ * Plans are only appended (see {@link PlanCorpus#append(byte[])}). A plan is first written to the corpus file and
+ * then its entry to the index file, so the index never points to a partially written plan.
+ * If the index file is missing, it is rebuilt from the line breaks of the corpus file.
+ * <br/>
+ * Reading is thread-safe, appending is synchronized.
+ */
+public class PlanCorpus implements Closeable {
+
+    public static final String FILE_ENDING = ".ndjson";
+
+    public static final String INDEX_FILE_ENDING = ".idx";
+
+    private static final int INDEX_ENTRY_SIZE = 2 * Long.BYTES;
+
+    private static final byte LINE_BREAK = '\n';
+
+    private static final int INITIAL_INDEX_CAPACITY = 64;
+
+    private Path corpusFile;
+
+    private Path indexFile;
+
+    private FileChannel corpusChannel;
+
+    private FileChannel indexChannel;
+
+    /**
+     * offset and length of each plan (at 2 * n and 2 * n + 1), only the first {@link PlanCorpus#numberOfPlans} plans
+     * are valid -- the array is replaced by a larger copy when it is full
+     */
+    private volatile long[] index;
+
+    /**
+     * written after the index entry of a new plan, s.t. readers see only complete entries
+     */
+    private volatile int numberOfPlans;
+
+    /**
+     * the corpus file (mapped when a plan is read for the first time) or null if it was not mapped yet or if it is too
+     * large to map it at once
+     */
+    private volatile MappedByteBuffer mappedCorpus;
+
+    private final Object mappingLock = new Object();
+
+    /**
+     * end of the last plan (with its line break) -- only changed by appending
+     */
+    private long corpusSize;
+
+    private PlanCorpus(Path corpusFile, boolean writable) throws IOException {
+        this.corpusFile = corpusFile;
+        this.indexFile = corpusFile.resolveSibling(corpusFile.getFileName() + INDEX_FILE_ENDING);
+        if (writable) {
+            this.corpusChannel = FileChannel.open(corpusFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        }
+        else {
+            this.corpusChannel = FileChannel.open(corpusFile, StandardOpenOption.READ);
+        }
+        if (!indexFile.toFile().exists()) {
+            rebuildIndex();
+        }
+        this.indexChannel = writable ?
+                FileChannel.open(indexFile, StandardOpenOption.READ, StandardOpenOption.WRITE) :
+                FileChannel.open(indexFile, StandardOpenOption.READ);
+        loadIndex();
+        if (writable) {
+            //remove what is not referenced by the index, e.g. after a crash
+            corpusChannel.truncate(corpusSize);
+            indexChannel.truncate((long) getNumberOfPlans() * INDEX_ENTRY_SIZE);
+        }
+    }
+
+    /**
+     * @param path
+     *      corpus file (".ndjson")
+     * @return
+     *      the corpus for reading
+     * @throws IOException
+     */
+    public static PlanCorpus open(String path) throws IOException {
+        if (!new File(path).isFile()) {
+            throw new IOException(path + " is no file or does not exist. Abort.");
+        }
+        return new PlanCorpus(Paths.get(path), false);
+    }
+
+    /**
+     * @param path
+     *      corpus file (".ndjson") -- it is created if it does not exist
+     * @return
+     *      the corpus for reading and appending
+     * @throws IOException
+     */
+    public static PlanCorpus openForAppending(String path) throws IOException {
+        return new PlanCorpus(Paths.get(path), true);
+    }
+
+    public static boolean isCorpusFile(String fileName) {
+        return fileName.endsWith(FILE_ENDING);
+    }
+
+    public int getNumberOfPlans() {
+        return numberOfPlans;
+    }
+
+    /**
+     * @param n
+     * @return
+     *      json of the n-th plan encoded in UTF-8 -- it is a read-only view of the mapped corpus file if possible
+     * @throws IOException
+     */
+    public ByteBuffer getJson(int n) throws IOException {
+        //first the number, then the array -- a later array contains all entries of an earlier one
+        int numberOfPlans = this.numberOfPlans;
+        long[] index = this.index;
+        if (n < 0 || n >= numberOfPlans) {
+            throw new IndexOutOfBoundsException("There is no plan " + n + " in " + corpusFile + ".");
+        }
+        long offset = index[2 * n];
+        int length = (int) index[2 * n + 1];
+        MappedByteBuffer mappedCorpus = getMappedCorpus(offset + length);
+        if (mappedCorpus != null) {
+            ByteBuffer json = mappedCorpus.duplicate();
+            json.position((int) offset).limit((int) offset + length);
+            return json.slice().asReadOnlyBuffer();
+        }
+        return corpusChannel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    }
+
+    public Graph readGraph(int n) throws IOException {
+        return IOUtils.readGraph(new IOUtils.ByteBufferInputStream(getJson(n)));
+    }
+
+    /**
+     * Appends a plan at the end of this corpus.
+     *
+     * @param json
+     *      json of a plan encoded in UTF-8 without line breaks, e.g., created by
+     *      {@link IOUtils#writeGraphAsBytes(Graph)}
+     * @return
+     *      the number of the new plan
+     * @throws IOException
+     */
+    public synchronized int append(byte[] json) throws IOException {
+        for (byte b : json) {
+            if (b == LINE_BREAK) {
+                throw new IllegalArgumentException("The json of a plan in a corpus must not contain line breaks.");
+            }
+        }
+        long offset = corpusSize;
+        ByteBuffer line = ByteBuffer.allocate(json.length + 1);
+        line.put(json).put(LINE_BREAK).flip();
+        writeFully(corpusChannel, line, offset);
+        corpusSize += line.limit();
+
+        ByteBuffer indexEntry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+        indexEntry.putLong(offset).putLong(json.length).flip();
+        int n = numberOfPlans;
+        writeFully(indexChannel, indexEntry, (long) n * INDEX_ENTRY_SIZE);
+        long[] index = this.index;
+        if (2 * n + 2 > index.length) {
+            index = Arrays.copyOf(index, 2 * index.length);
+            this.index = index;
+        }
+        index[2 * n] = offset;
+        index[2 * n + 1] = json.length;
+        numberOfPlans = n + 1;
+        return n;
+    }
+
+    /**
+     * Appends a plan at the end of this corpus.
+     *
+     * @param graph
+     * @return
+     *      the number of the new plan
+     * @throws IOException
+     */
+    public int append(Graph graph) throws IOException {
+        return append(IOUtils.writeGraphAsBytes(graph));
+    }
+
+    public Path getCorpusFile() {
+        return corpusFile;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            corpusChannel.close();
+        }
+        finally {
+            indexChannel.close();
+        }
+    }
+
+    /**
+     * reads the index file into {@link PlanCorpus#index}
+     */
+    private void loadIndex() throws IOException {
+        int numberOfEntries = (int) (indexChannel.size() / INDEX_ENTRY_SIZE);
+        ByteBuffer indexBytes = ByteBuffer.allocate(numberOfEntries * INDEX_ENTRY_SIZE);
+        long position = 0;
+        while (indexBytes.hasRemaining()) {
+            int numberOfReadBytes = indexChannel.read(indexBytes, position);
+            if (numberOfReadBytes < 0) {
+                break;
+            }
+            position += numberOfReadBytes;
+        }
+        indexBytes.flip();
+        long[] index = new long[Math.max(2 * numberOfEntries, INITIAL_INDEX_CAPACITY)];
+        indexBytes.asLongBuffer().get(index, 0, 2 * numberOfEntries);
+        //ignore entries pointing behind the end of the corpus file, e.g. after a crash
+        long fileSize = corpusChannel.size();
+        int validEntries = numberOfEntries;
+        while (validEntries > 0 && index[2 * validEntries - 2] + index[2 * validEntries - 1] >= fileSize) {
+            --validEntries;
+        }
+        this.corpusSize = validEntries == 0 ? 0 : index[2 * validEntries - 2] + index[2 * validEntries - 1] + 1;
+        this.index = index;
+        this.numberOfPlans = validEntries;
+    }
+
+    /**
+     * @param end
+     * @return
+     *      the corpus file mapped at least up to end or null if it is too large to map it at once
+     * @throws IOException
+     */
+    private MappedByteBuffer getMappedCorpus(long end) throws IOException {
+        MappedByteBuffer mappedCorpus = this.mappedCorpus;
+        if (mappedCorpus != null && end <= mappedCorpus.limit()) {
+            return mappedCorpus;
+        }
+        synchronized (mappingLock) {
+            mappedCorpus = this.mappedCorpus;
+            if (mappedCorpus != null && end <= mappedCorpus.limit()) {
+                return mappedCorpus;
+            }
+            //map all that is there now, s.t. plans appended in the meantime do not need a new mapping each
+            long fileSize = corpusChannel.size();
+            if (fileSize > Integer.MAX_VALUE) {
+                return null;
+            }
+            mappedCorpus = corpusChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            this.mappedCorpus = mappedCorpus;
+            return mappedCorpus;
+        }
+    }
+
+    private void rebuildIndex() throws IOException {
+        try (FileChannel newIndexChannel = FileChannel.open(indexFile, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer indexEntry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            long position = 0;
+            long lineStart = 0;
+            long indexPosition = 0;
+            while (corpusChannel.read(buffer, position) > 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    if (buffer.get() == LINE_BREAK) {
+                        long lineEnd = position + buffer.position() - 1;
+                        indexEntry.clear();
+                        indexEntry.putLong(lineStart).putLong(lineEnd - lineStart).flip();
+                        writeFully(newIndexChannel, indexEntry, indexPosition);
+                        indexPosition += INDEX_ENTRY_SIZE;
+                        lineStart = lineEnd + 1;
+                    }
+                }
+                position += buffer.limit();
+                buffer.clear();
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
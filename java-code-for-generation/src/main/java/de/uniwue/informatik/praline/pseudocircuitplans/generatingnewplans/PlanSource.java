@@ -0,0 +1,622 @@
+package de.uniwue.informatik.praline.pseudocircuitplans.generatingnewplans;
+
+import de.uniwue.informatik.praline.datastructure.graphs.Graph;
+import de.uniwue.informatik.praline.datastructure.utils.Serialization;
+import de.uniwue.informatik.praline.pseudocircuitplans.properties.PropertySheet;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * A set of plans, which is one of
+ * <ul>
+ *     <li>a directory containing the plans as ".json", ".json.gz" or snapshot (".pgs", see {@link GraphSnapshot})
+ *     files,</li>
+ *     <li>a corpus file (".ndjson", see {@link PlanCorpus}),</li>
+ *     <li>a zip archive (".zip") or a tar archive (".tar", ".tar.gz" or ".tgz") containing such files (in
+ *     any sub directory) or</li>
+ *     <li>a single such file.</li>
+ * </ul>
+ * Archives are decompressed as a stream, so every entry is read only once and nothing is extracted to the disk.
+ * An entry is read again (see {@link Entry#createGraphLoader()}) directly from the zip file or at its position in the
+ * tar file. Only in a gzipped tar archive an entry cannot be found without decompressing all entries before it, so
+ * there its stored bytes are appended to a temporary file, which is deleted when the JVM exits.
+ * The name of a plan is the name of its file without the directories, without ".gz" and with ".json" instead of
+ * ".pgs". The n-th plan of a corpus
+ * file "x.ndjson" is named "x-n.json".
+ */
+public class PlanSource {
+
+    private static final int INPUT_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * at most this many entries per thread are read but not processed yet
+     */
+    public static final int ENTRIES_IN_FLIGHT_PER_THREAD = 2;
+
+    private File file;
+
+    private Predicate<String> planNameFilter = name -> true;
+
+    /**
+     * opened on demand for reading entries of this zip archive again -- it is shared by all their graph loaders and
+     * closed when it is not referenced any more
+     */
+    private ZipFile zipFile;
+
+    /**
+     * created on demand for the stored bytes of the entries of this gzipped tar archive, so they can be read again
+     * without decompressing the archive -- deleted when the JVM exits
+     */
+    private FileChannel spillChannel;
+
+    private PlanSource(File file) {
+        this.file = file;
+    }
+
+    /**
+     * @param path
+     *      directory, archive or single json file
+     * @return
+     * @throws IOException
+     *      if there is nothing at path
+     */
+    public static PlanSource open(String path) throws IOException {
+        File file = new File(path);
+        if (!file.exists()) {
+            throw new IOException(path + " does not exist. Abort.");
+        }
+        return new PlanSource(file);
+    }
+
+    /**
+     * @param planNameFilter
+     *      only plans whose name (see {@link Entry#getName()}) is accepted by this filter are read
+     * @return
+     *      this plan source
+     */
+    public PlanSource filter(Predicate<String> planNameFilter) {
+        this.planNameFilter = planNameFilter;
+        return this;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return
+     *      the first plan of this source or null if there is none
+     * @throws IOException
+     */
+    public Entry readFirst() throws IOException {
+        Entry[] first = new Entry[1];
+        forEachEntry(entry -> {
+            first[0] = entry;
+            return false;
+        });
+        return first[0];
+    }
+
+    /**
+     * Reads all plans of this source one after the other (in the calling thread) and applies planFunction to each of
+     * them. With more than 1 thread, planFunction is applied in parallel and must be thread-safe.
+     *
+     * @param planFunction
+     * @param numberOfThreads
+     * @param <R>
+     * @return
+     *      the results of planFunction in the order of the plans in this source
+     * @throws IOException
+     *      if reading this source failed or planFunction threw an exception
+     */
+    public <R> List<R> readAll(PlanFunction<R> planFunction, int numberOfThreads) throws IOException {
+        List<R> results = new ArrayList<>();
+        if (numberOfThreads <= 1) {
+            forEachEntry(entry -> {
+                results.add(planFunction.apply(entry));
+                return true;
+            });
+            return results;
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+        try {
+            return readAll(planFunction, executorService, numberOfThreads * ENTRIES_IN_FLIGHT_PER_THREAD);
+        }
+        finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Like {@link PlanSource#readAll(PlanFunction, int)}, but planFunction is applied by the threads of the given
+     * executor, which may be shared with other tasks (e.g. with reading another plan source at the same time).
+     * The executor is not shut down.
+     *
+     * @param planFunction
+     * @param executorService
+     * @param maximumEntriesInFlight
+     *      at most this many entries are read but not processed yet
+     * @param <R>
+     * @return
+     *      the results of planFunction in the order of the plans in this source
+     * @throws IOException
+     *      if reading this source failed or planFunction threw an exception
+     */
+    public <R> List<R> readAll(PlanFunction<R> planFunction, ExecutorService executorService,
+                               int maximumEntriesInFlight) throws IOException {
+        List<R> results = new ArrayList<>();
+        Semaphore entriesInFlight = new Semaphore(maximumEntriesInFlight);
+        List<Future<R>> futures = new ArrayList<>();
+        try {
+            forEachEntry(entry -> {
+                try {
+                    entriesInFlight.acquire();
+                }
+                catch (InterruptedException e) {
+                    throw new InterruptedIOException("Interrupted while reading " + entry.getName());
+                }
+                futures.add(executorService.submit(() -> {
+                    try {
+                        return planFunction.apply(entry);
+                    }
+                    finally {
+                        entriesInFlight.release();
+                    }
+                }));
+                return true;
+            });
+            for (Future<R> future : futures) {
+                results.add(future.get());
+            }
+        }
+        catch (InterruptedException e) {
+            throw new InterruptedIOException("Interrupted while reading " + file.getPath());
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Processing a plan of " + file.getPath() + " failed.", e.getCause());
+        }
+        finally {
+            //only the tasks of this source, the executor may be shared
+            for (Future<R> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Lists the plans of this source with their sizes (see {@link Entry#getSize()}) without reading them: the sizes
+     * are taken from the directory, from the headers of the archive entries or from the line lengths of a corpus file.
+     * Only a gzipped tar archive is decompressed to find the headers, but its entries are skipped.
+     *
+     * @return
+     *      the size per plan name in the order of the plans -- the sizes of plans with the same name are added
+     * @throws IOException
+     */
+    public LinkedHashMap<String, Long> listSizes() throws IOException {
+        LinkedHashMap<String, Long> planSizes = new LinkedHashMap<>();
+        String fileName = file.getName();
+        if (fileName.endsWith(".zip")) {
+            Enumeration<? extends ZipEntry> zipEntries = getZipFile().entries();
+            while (zipEntries.hasMoreElements()) {
+                ZipEntry zipEntry = zipEntries.nextElement();
+                if (!zipEntry.isDirectory()) {
+                    addSize(planSizes, zipEntry.getName(), zipEntry.getSize());
+                }
+            }
+        }
+        else if (fileName.endsWith(".tar") || fileName.endsWith(".tar.gz") || fileName.endsWith(".tgz")) {
+            InputStream inputStream = fileName.endsWith(".tar") ? openFile() : new GZIPInputStream(openFile());
+            try (TarArchiveInputStream tarInputStream = new TarArchiveInputStream(inputStream)) {
+                TarArchiveEntry tarEntry;
+                while ((tarEntry = tarInputStream.getNextTarEntry()) != null) {
+                    if (tarEntry.isFile()) {
+                        addSize(planSizes, tarEntry.getName(), tarEntry.getSize());
+                    }
+                }
+            }
+        }
+        else {
+            //directories, corpus files and single files are not read by visiting them
+            forEachEntry(entry -> {
+                planSizes.merge(entry.getName(), entry.getSize(), Long::sum);
+                return true;
+            });
+        }
+        return planSizes;
+    }
+
+    private void addSize(Map<String, Long> planSizes, String entryPath, long size) {
+        String entryName = entryPath.substring(entryPath.lastIndexOf('/') + 1);
+        if (isPlanFile(entryName) && planNameFilter.test(getPlanName(entryName))) {
+            planSizes.merge(getPlanName(entryName), size, Long::sum);
+        }
+    }
+
+    private void forEachEntry(EntryVisitor visitor) throws IOException {
+        String fileName = file.getName();
+        if (file.isDirectory()) {
+            File[] files = file.listFiles();
+            for (File planFile : files) {
+                if (planFile.isFile() && isPlanFile(planFile.getName())
+                        && planNameFilter.test(getPlanName(planFile.getName()))) {
+                    if (!visitor.visit(new Entry(getPlanName(planFile.getName()), planFile.getPath(), planFile,
+                            null, GraphSnapshot.isSnapshotFile(planFile.getName()), null))) {
+                        return;
+                    }
+                }
+            }
+        }
+        else if (PlanCorpus.isCorpusFile(fileName)) {
+            String corpusName = fileName.substring(0, fileName.length() - PlanCorpus.FILE_ENDING.length());
+            //the mapped plans remain valid after closing the corpus
+            try (PlanCorpus planCorpus = PlanCorpus.open(file.getPath())) {
+                for (int i = 0; i < planCorpus.getNumberOfPlans(); i++) {
+                    String planName = corpusName + "-" + i + ".json";
+                    if (planNameFilter.test(planName) && !visitor.visit(new Entry(planName,
+                            file.getPath() + "#" + i, null, planCorpus.getJson(i), false, null))) {
+                        return;
+                    }
+                }
+            }
+        }
+        else if (fileName.endsWith(".zip")) {
+            try (ZipInputStream zipInputStream = new ZipInputStream(openFile())) {
+                ZipEntry zipEntry;
+                while ((zipEntry = zipInputStream.getNextEntry()) != null) {
+                    if (!zipEntry.isDirectory() &&
+                            !visitArchiveEntry(zipEntry.getName(), -1, zipInputStream, visitor)) {
+                        return;
+                    }
+                }
+            }
+        }
+        else if (fileName.endsWith(".tar") || fileName.endsWith(".tar.gz") || fileName.endsWith(".tgz")) {
+            boolean compressed = !fileName.endsWith(".tar");
+            InputStream inputStream = compressed ? new GZIPInputStream(openFile()) : openFile();
+            try (TarArchiveInputStream tarInputStream = new TarArchiveInputStream(inputStream)) {
+                TarArchiveEntry tarEntry;
+                while ((tarEntry = tarInputStream.getNextTarEntry()) != null) {
+                    //the header is read completely, so the content starts here
+                    long dataOffset = compressed || tarEntry.isSparse() ? -1 : tarInputStream.getBytesRead();
+                    if (tarEntry.isFile() &&
+                            !visitArchiveEntry(tarEntry.getName(), dataOffset, tarInputStream, visitor)) {
+                        return;
+                    }
+                }
+            }
+        }
+        else if (isPlanFile(fileName)) {
+            if (planNameFilter.test(getPlanName(fileName))) {
+                visitor.visit(new Entry(getPlanName(fileName), file.getPath(), file, null,
+                        GraphSnapshot.isSnapshotFile(fileName), null));
+            }
+        }
+        else {
+            throw new IOException(file.getPath() + " is no directory, archive or json file. Abort.");
+        }
+    }
+
+    /**
+     * @param entryPath
+     * @param dataOffset
+     *      position of the content of this entry in a tar file or -1 if it is in a zip file or in a gzipped tar file
+     * @param archiveInputStream
+     *      positioned at the content of this entry -- it is not closed
+     * @param visitor
+     * @return
+     *      false if the visitor does not want to visit more entries
+     * @throws IOException
+     */
+    private boolean visitArchiveEntry(String entryPath, long dataOffset, InputStream archiveInputStream,
+                                      EntryVisitor visitor) throws IOException {
+        String entryName = entryPath.substring(entryPath.lastIndexOf('/') + 1);
+        if (!isPlanFile(entryName) || !planNameFilter.test(getPlanName(entryName))) {
+            return true;
+        }
+        byte[] storedContent = archiveInputStream.readAllBytes();
+        boolean spilled = dataOffset < 0 && !file.getName().endsWith(".zip");
+        ArchiveLocation location = new ArchiveLocation(this, entryPath, spilled ? spill(storedContent) : dataOffset,
+                storedContent.length, spilled);
+        return visitor.visit(new Entry(getPlanName(entryName), file.getPath() + "!" + entryPath, null,
+                ByteBuffer.wrap(decompress(entryName, storedContent)), GraphSnapshot.isSnapshotFile(entryName),
+                location));
+    }
+
+    private static byte[] decompress(String entryName, byte[] storedContent) throws IOException {
+        if (!entryName.endsWith(".gz")) {
+            return storedContent;
+        }
+        try (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(storedContent))) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+    /**
+     * @param location
+     *      of an entry of this archive
+     * @return
+     *      the bytes of this entry as they are stored in the archive
+     * @throws IOException
+     */
+    private byte[] readStoredContent(ArchiveLocation location) throws IOException {
+        if (location.spilled) {
+            return read(getSpillChannel(), location);
+        }
+        if (location.dataOffset >= 0) {
+            try (FileChannel fileChannel = FileChannel.open(file.toPath())) {
+                return read(fileChannel, location);
+            }
+        }
+        ZipFile zipFile = getZipFile();
+        ZipEntry zipEntry = zipFile.getEntry(location.entryPath);
+        if (zipEntry == null) {
+            throw new IOException(file.getPath() + "!" + location.entryPath + " does not exist any more.");
+        }
+        try (InputStream inputStream = zipFile.getInputStream(zipEntry)) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+    private byte[] read(FileChannel fileChannel, ArchiveLocation location) throws IOException {
+        ByteBuffer content = ByteBuffer.allocate(location.storedSize);
+        while (content.hasRemaining()) {
+            if (fileChannel.read(content, location.dataOffset + content.position()) < 0) {
+                throw new EOFException(file.getPath() + "!" + location.entryPath + " is truncated.");
+            }
+        }
+        return content.array();
+    }
+
+    /**
+     * @param storedContent
+     *      of an entry of this gzipped tar archive
+     * @return
+     *      position of these bytes in the temporary file
+     * @throws IOException
+     */
+    private synchronized long spill(byte[] storedContent) throws IOException {
+        FileChannel spillChannel = getSpillChannel();
+        long offset = spillChannel.size();
+        ByteBuffer content = ByteBuffer.wrap(storedContent);
+        while (content.hasRemaining()) {
+            spillChannel.write(content, offset + content.position());
+        }
+        return offset;
+    }
+
+    private synchronized FileChannel getSpillChannel() throws IOException {
+        if (spillChannel == null) {
+            File spillFile = File.createTempFile(file.getName() + "-", ".spill");
+            spillFile.deleteOnExit();
+            spillChannel = FileChannel.open(spillFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        return spillChannel;
+    }
+
+    private synchronized ZipFile getZipFile() throws IOException {
+        if (zipFile == null) {
+            zipFile = new ZipFile(file);
+        }
+        return zipFile;
+    }
+
+    private InputStream openFile() throws IOException {
+        return new BufferedInputStream(Files.newInputStream(file.toPath()), INPUT_BUFFER_SIZE);
+    }
+
+    private static boolean isPlanFile(String fileName) {
+        return fileName.endsWith(".json") || fileName.endsWith(".json.gz") || GraphSnapshot.isSnapshotFile(fileName);
+    }
+
+    private static String getPlanName(String fileName) {
+        if (GraphSnapshot.isSnapshotFile(fileName)) {
+            return fileName.substring(0, fileName.length() - GraphSnapshot.FILE_ENDING.length()) + ".json";
+        }
+        return fileName.endsWith(".gz") ? fileName.substring(0, fileName.length() - ".gz".length()) : fileName;
+    }
+
+    public interface PlanFunction<R> {
+        R apply(Entry entry) throws IOException;
+    }
+
+    private interface EntryVisitor {
+        /**
+         * @return
+         *      false to stop visiting
+         */
+        boolean visit(Entry entry) throws IOException;
+    }
+
+    /**
+     * where an entry of an archive is stored
+     */
+    private static class ArchiveLocation {
+        private PlanSource archive;
+        private String entryPath;
+        /**
+         * position in the tar file or, if spilled, in the temporary file of the archive
+         */
+        private long dataOffset;
+        private int storedSize;
+        private boolean spilled;
+
+        private ArchiveLocation(PlanSource archive, String entryPath, long dataOffset, int storedSize,
+                                boolean spilled) {
+            this.archive = archive;
+            this.entryPath = entryPath;
+            this.dataOffset = dataOffset;
+            this.storedSize = storedSize;
+            this.spilled = spilled;
+        }
+    }
+
+    /**
+     * One plan of a {@link PlanSource}. It is either a (possibly gzipped) file, which is read only on demand, the
+     * already decompressed content of an archive entry or the mapped line of a corpus file.
+     * The content is either json or a {@link GraphSnapshot}.
+     */
+    public static class Entry {
+        private String name;
+        private String planId;
+        private File file;
+        private ByteBuffer content;
+        private boolean snapshot;
+        /**
+         * only for entries of archives, whose content is on the heap
+         */
+        private ArchiveLocation archiveLocation;
+
+        private Entry(String name, String planId, File file, ByteBuffer content, boolean snapshot,
+                      ArchiveLocation archiveLocation) {
+            this.name = name;
+            this.planId = planId;
+            this.file = file;
+            this.content = content;
+            this.snapshot = snapshot;
+            this.archiveLocation = archiveLocation;
+        }
+
+        /**
+         * @return
+         *      identifier of this plan that is unique among all plan sources: the path of its file, the path of the
+         *      archive and the path of the entry in the archive separated by "!" or the path of the corpus file and
+         *      the number of the plan in the corpus separated by "#"
+         */
+        public String getPlanId() {
+            return planId;
+        }
+
+        /**
+         * @return
+         *      loader that reads this plan again whenever it is called -- it does not keep the decompressed content
+         *      of an archive entry in memory but reads the entry directly from the archive (for a gzipped tar archive
+         *      from the temporary file, see {@link PlanSource})
+         */
+        public PropertySheet.GraphLoader createGraphLoader() {
+            if (archiveLocation == null) {
+                return this::readGraph;
+            }
+            ArchiveLocation location = archiveLocation;
+            String entryName = name;
+            String entryPlanId = planId;
+            boolean entrySnapshot = snapshot;
+            return () -> {
+                byte[] content = decompress(location.entryPath, location.archive.readStoredContent(location));
+                return new Entry(entryName, entryPlanId, null, ByteBuffer.wrap(content), entrySnapshot, null)
+                        .readGraph();
+            };
+        }
+
+        /**
+         * @return
+         *      name of the json file of this plan without ".gz"
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return
+         *      number of bytes of the file of this plan (the compressed size for a gzipped file, also in an archive),
+         *      which is available without reading it
+         */
+        public long getSize() {
+            if (archiveLocation != null) {
+                return archiveLocation.storedSize;
+            }
+            return content != null ? content.remaining() : file.length();
+        }
+
+        /**
+         * @return
+         *      the uncompressed json of this plan (for a snapshot it is created from the graph) -- close it after use
+         * @throws IOException
+         */
+        public InputStream openStream() throws IOException {
+            if (snapshot) {
+                return new ByteArrayInputStream(IOUtils.writeGraphAsBytes(readGraph()));
+            }
+            if (content != null) {
+                return new IOUtils.ByteBufferInputStream(content.duplicate());
+            }
+            InputStream inputStream =
+                    new BufferedInputStream(Files.newInputStream(file.toPath()), INPUT_BUFFER_SIZE);
+            return file.getName().endsWith(".gz") ? new GZIPInputStream(inputStream, INPUT_BUFFER_SIZE) :
+                    inputStream;
+        }
+
+        /**
+         * @return
+         *      SHA-256 of the uncompressed content of this plan (json or snapshot) as hexadecimal string, s.t. it does
+         *      not depend on whether and how the plan is compressed
+         * @throws IOException
+         */
+        public String computeContentHash() throws IOException {
+            MessageDigest messageDigest;
+            try {
+                messageDigest = MessageDigest.getInstance("SHA-256");
+            }
+            catch (NoSuchAlgorithmException e) {
+                //every java platform must support SHA-256
+                throw new IllegalStateException(e);
+            }
+            if (content != null) {
+                messageDigest.update(content.duplicate());
+            }
+            else {
+                //a snapshot is hashed as it is, openStream() would create json from it
+                try (InputStream inputStream = snapshot ? Files.newInputStream(file.toPath()) : openStream()) {
+                    byte[] buffer = new byte[INPUT_BUFFER_SIZE];
+                    int numberOfReadBytes;
+                    while ((numberOfReadBytes = inputStream.read(buffer)) >= 0) {
+                        messageDigest.update(buffer, 0, numberOfReadBytes);
+                    }
+                }
+            }
+            StringBuilder hash = new StringBuilder();
+            for (byte b : messageDigest.digest()) {
+                hash.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hash.toString();
+        }
+
+        public Graph readGraph() throws IOException {
+            if (snapshot) {
+                return content != null ? GraphSnapshot.read(content) : GraphSnapshot.read(file);
+            }
+            if (content != null) {
+                return IOUtils.readGraph(new IOUtils.ByteBufferInputStream(content.duplicate()));
+            }
+            if (!file.getName().endsWith(".gz")) {
+                return Serialization.read(file, Graph.class);
+            }
+            try (InputStream inputStream = openStream()) {
+                return IOUtils.readGraph(inputStream);
+            }
+        }
+    }
+}
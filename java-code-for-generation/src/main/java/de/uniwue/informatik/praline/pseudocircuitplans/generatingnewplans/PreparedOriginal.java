@@ -0,0 +1,418 @@
+package de.uniwue.informatik.praline.pseudocircuitplans.generatingnewplans;
+
+import de.uniwue.informatik.praline.datastructure.graphs.*;
+import de.uniwue.informatik.praline.datastructure.labels.Label;
+import de.uniwue.informatik.praline.datastructure.labels.LabeledObject;
+import de.uniwue.informatik.praline.datastructure.labels.TextLabel;
+import de.uniwue.informatik.praline.pseudocircuitplans.properties.JungUtils;
+import de.uniwue.informatik.praline.pseudocircuitplans.properties.PropertySheet;
+import de.uniwue.informatik.praline.pseudocircuitplans.properties.VertexGroupType;
+import de.uniwue.informatik.praline.pseudocircuitplans.properties.VertexType;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * An original plan together with all the preprocessing that {@link MainGeneratePlans} does for every new plan
+ * generated from it and that does not depend on random choices:
+ * the label texts of the original, the removal of isolated vertices (connected components of size 1), the empty
+ * port labels of splices, the types of all vertices and vertex groups and the structural counters.
+ * <br/>
+ * This is computed only once per original plan.
+ * Every new plan starts from a {@link WorkingCopy}, which already knows all these values.
+ * It is either a deep copy of the preprocessed plan ({@link PreparedOriginal#newWorkingCopy()}) or the preprocessed
+ * plan itself, whose modifications are recorded in a {@link GraphEditJournal} and rolled back when the working copy is
+ * released ({@link PreparedOriginal#newJournaledWorkingCopy()}).
+ */
+public class PreparedOriginal {
+
+    /**
+     * if true, every roll back of a journaled working copy is checked to restore exactly the preprocessed plan -- for
+     * debugging only, since this goes through the whole plan for every new plan
+     */
+    private static final boolean CHECK_ROLL_BACKS = false;
+
+    private PropertySheet originalPlanSheet;
+
+    private List<String> vertexLabelTexts;
+
+    private List<String> edgeLabelTexts;
+
+    private int numberOfRemovedIsolatedComponents;
+
+    /**
+     * the preprocessed plan itself -- it is only modified by journaled working copies
+     */
+    private Graph preprocessedPlan;
+
+    /**
+     * json of the preprocessed plan in UTF-8 -- only created for the first deep copy
+     */
+    private byte[] preprocessedPlanJson;
+
+    /**
+     * all elements of the preprocessed plan in the order of its lists (see
+     * {@link PreparedOriginal#describeStructure(Graph)}) -- only created for the first journaled working copy if
+     * {@link PreparedOriginal#CHECK_ROLL_BACKS}, which must be restored to exactly this after each roll back
+     */
+    private List<Object> preprocessedPlanStructure;
+
+    /**
+     * types of the vertices of the preprocessed plan in the order of the preprocessed plan (and of its json)
+     */
+    private LinkedHashMap<Vertex, VertexType> vertexTypes;
+
+    /**
+     * types of the vertex groups of the preprocessed plan in the order of the preprocessed plan (and of its json)
+     */
+    private LinkedHashMap<VertexGroup, VertexGroupType> vertexGroupTypes;
+
+    private StructureCounter structureCounter;
+
+    private GraphEditJournal activeJournal;
+
+    public PreparedOriginal(PropertySheet originalPlanSheet) throws IOException {
+        this.originalPlanSheet = originalPlanSheet;
+
+        //a released original is read again, which is already a copy of its own
+        Graph plan = originalPlanSheet.getGraph() != null ? IOUtils.copyGraph(originalPlanSheet.getGraph()) :
+                originalPlanSheet.loadGraph();
+        VertexClassificationCache classification = new VertexClassificationCache(plan);
+
+        //save current labels
+        this.vertexLabelTexts = Collections.unmodifiableList(
+                plan.getVertices().stream().filter(v -> !classification.isSplice(v)).map(v ->
+                        ((TextLabel) v.getLabelManager().getMainLabel()).getInputText()).collect(Collectors.toList()));
+        this.edgeLabelTexts = Collections.unmodifiableList(
+                plan.getEdges().stream().map(e -> ((TextLabel) e.getLabelManager().getMainLabel()).getInputText())
+                        .collect(Collectors.toList()));
+
+        StructureCounter structureCounter = new StructureCounter(plan, classification);
+
+        //remove all connected components of size 1, i.e., isolated vertices. Why they are there at all?
+        Set<Set<JungUtils.PseudoVertex>> connectedComponents = JungUtils.getConnectedComponents(plan);
+        for (Set<JungUtils.PseudoVertex> connectedComponent : connectedComponents) {
+            if (connectedComponent.size() == 1) {
+                for (JungUtils.PseudoVertex pseudoVertex : connectedComponent) {
+                    if (pseudoVertex.getVertexObject() instanceof Vertex) {
+                        MainGeneratePlans.removeVertexCleanly(plan, (Vertex) pseudoVertex.getVertexObject(),
+                                structureCounter, classification, null);
+                    }
+                    else if (pseudoVertex.getVertexObject() instanceof VertexGroup) {
+                        VertexGroup vertexGroup = (VertexGroup) pseudoVertex.getVertexObject();
+                        for (Vertex containedVertex :
+                                new ArrayList<>(vertexGroup.getAllRecursivelyContainedVertices())) {
+                            MainGeneratePlans.removeVertexCleanly(plan, containedVertex, structureCounter,
+                                    classification, null);
+                        }
+                        plan.removeVertexGroup(vertexGroup);
+                        classification.invalidate(vertexGroup);
+                    }
+                }
+                ++numberOfRemovedIsolatedComponents;
+            }
+        }
+
+        //all edge bundles are dissolved in every new plan
+        for (EdgeBundle edgeBundle : new ArrayList<>(plan.getEdgeBundles())) {
+            plan.removeEdgeBundle(edgeBundle);
+        }
+
+        //all splices get empty text for port labels
+        for (Vertex vertex : plan.getVertices()) {
+            if (classification.isSplice(vertex)) {
+                for (Port port : vertex.getPorts()) {
+                    ((TextLabel) port.getLabelManager().getMainLabel()).setInputText("");
+                }
+            }
+        }
+
+        //classify all remaining vertices and vertex groups
+        this.vertexTypes = new LinkedHashMap<>(plan.getVertices().size());
+        for (Vertex vertex : plan.getVertices()) {
+            vertexTypes.put(vertex, classification.getVertexType(vertex));
+        }
+        this.vertexGroupTypes = new LinkedHashMap<>(plan.getVertexGroups().size());
+        for (VertexGroup vertexGroup : plan.getVertexGroups()) {
+            vertexGroupTypes.put(vertexGroup, classification.getVertexGroupType(vertexGroup));
+        }
+
+        this.structureCounter = structureCounter;
+        this.preprocessedPlan = plan;
+    }
+
+    /**
+     * @return
+     *      a new deep copy of the preprocessed plan, which may be modified arbitrarily
+     * @throws IOException
+     */
+    public WorkingCopy newWorkingCopy() throws IOException {
+        if (preprocessedPlanJson == null) {
+            if (activeJournal != null && !activeJournal.isRolledBack()) {
+                throw new IllegalStateException("The journaled working copy of this plan was not released.");
+            }
+            preprocessedPlanJson = IOUtils.writeGraphAsBytes(preprocessedPlan);
+        }
+        Graph plan = IOUtils.readGraphFromBytes(preprocessedPlanJson);
+
+        //the order of the elements is preserved by the json, so the i-th element is the copy of the i-th element of
+        // the preprocessed plan
+        return createWorkingCopy(plan, plan.getVertices(), plan.getVertexGroups(), false);
+    }
+
+    /**
+     * The returned working copy is the preprocessed plan itself. All its modifications must be reported to
+     * {@link WorkingCopy#getJournal()} and they are undone by {@link WorkingCopy#release()}.
+     * There may be only one such working copy at a time.
+     *
+     * @return
+     *      a working copy of the preprocessed plan without creating a deep copy of it
+     */
+    public WorkingCopy newJournaledWorkingCopy() {
+        if (activeJournal != null) {
+            if (!activeJournal.isRolledBack()) {
+                throw new IllegalStateException("The previous journaled working copy of this plan was not released.");
+            }
+            if (CHECK_ROLL_BACKS &&
+                    !equalStructures(describeStructure(preprocessedPlan), preprocessedPlanStructure)) {
+                throw new IllegalStateException("The roll back did not restore the preprocessed plan.");
+            }
+        }
+        else if (CHECK_ROLL_BACKS) {
+            preprocessedPlanStructure = describeStructure(preprocessedPlan);
+        }
+        WorkingCopy workingCopy = createWorkingCopy(preprocessedPlan, vertexTypes.keySet(), vertexGroupTypes.keySet(),
+                true);
+        activeJournal = workingCopy.getJournal();
+        return workingCopy;
+    }
+
+    /**
+     * @param plan
+     * @param vertices
+     *      vertices of plan in the order of {@link PreparedOriginal#vertexTypes}
+     * @param vertexGroups
+     *      vertex groups of plan in the order of {@link PreparedOriginal#vertexGroupTypes}
+     * @param journaled
+     * @return
+     */
+    private WorkingCopy createWorkingCopy(Graph plan, Collection<Vertex> vertices,
+                                          Collection<VertexGroup> vertexGroups, boolean journaled) {
+        VertexClassificationCache classification = new VertexClassificationCache(plan);
+
+        Map<VertexType, List<Vertex>> verticesByType = new LinkedHashMap<>(VertexType.values().length);
+        for (VertexType vertexType : VertexType.values()) {
+            verticesByType.put(vertexType, new ArrayList<>());
+        }
+        Iterator<VertexType> vertexTypeIterator = vertexTypes.values().iterator();
+        for (Vertex vertex : vertices) {
+            VertexType vertexType = vertexTypeIterator.next();
+            classification.setVertexType(vertex, vertexType);
+            verticesByType.get(vertexType).add(vertex);
+        }
+        Map<VertexGroupType, List<VertexGroup>> vertexGroupsByType =
+                new LinkedHashMap<>(VertexGroupType.values().length);
+        for (VertexGroupType vertexGroupType : VertexGroupType.values()) {
+            vertexGroupsByType.put(vertexGroupType, new ArrayList<>());
+        }
+        Iterator<VertexGroupType> vertexGroupTypeIterator = vertexGroupTypes.values().iterator();
+        for (VertexGroup vertexGroup : vertexGroups) {
+            VertexGroupType vertexGroupType = vertexGroupTypeIterator.next();
+            classification.setVertexGroupType(vertexGroup, vertexGroupType);
+            vertexGroupsByType.get(vertexGroupType).add(vertexGroup);
+        }
+
+        return new WorkingCopy(plan, classification, new StructureCounter(structureCounter, classification),
+                verticesByType, vertexGroupsByType, new GraphEditJournal(plan), journaled);
+    }
+
+    /**
+     * @param plan
+     * @return
+     *      all vertices, vertex groups and edges of the plan, each followed by its labels, label texts and the
+     *      elements of its own lists (port compositions, edges of ports, contained vertices, touching pairs, port
+     *      pairings, ports of edges) in the order of all these lists of the plan. The size of each list is added
+     *      before its elements.
+     */
+    private static List<Object> describeStructure(Graph plan) {
+        List<Object> structure = new ArrayList<>();
+        structure.add(plan.getVertices().size());
+        for (Vertex vertex : plan.getVertices()) {
+            describeLabels(vertex, structure);
+            describePortCompositions(vertex.getPortCompositions(), structure);
+        }
+        describeVertexGroups(plan.getVertexGroups(), structure);
+        structure.add(plan.getEdges().size());
+        for (Edge edge : plan.getEdges()) {
+            describeLabels(edge, structure);
+            structure.add(edge.getPorts().size());
+            structure.addAll(edge.getPorts());
+        }
+        return structure;
+    }
+
+    private static void describePortCompositions(Collection<PortComposition> portCompositions, List<Object> structure) {
+        structure.add(portCompositions.size());
+        for (PortComposition portComposition : portCompositions) {
+            if (portComposition instanceof PortGroup) {
+                structure.add(portComposition);
+                describePortCompositions(((PortGroup) portComposition).getPortCompositions(), structure);
+            }
+            else if (portComposition instanceof Port) {
+                Port port = (Port) portComposition;
+                describeLabels(port, structure);
+                structure.add(port.getEdges().size());
+                structure.addAll(port.getEdges());
+            }
+        }
+    }
+
+    private static void describeVertexGroups(Collection<VertexGroup> vertexGroups, List<Object> structure) {
+        structure.add(vertexGroups.size());
+        for (VertexGroup vertexGroup : vertexGroups) {
+            structure.add(vertexGroup);
+            structure.add(vertexGroup.getContainedVertices().size());
+            structure.addAll(vertexGroup.getContainedVertices());
+            structure.add(vertexGroup.getTouchingPairs().size());
+            structure.addAll(vertexGroup.getTouchingPairs());
+            structure.add(vertexGroup.getPortPairings().size());
+            structure.addAll(vertexGroup.getPortPairings());
+            describeVertexGroups(vertexGroup.getContainedVertexGroups() == null ? Collections.emptyList() :
+                    vertexGroup.getContainedVertexGroups(), structure);
+        }
+    }
+
+    private static void describeLabels(LabeledObject labeledObject, List<Object> structure) {
+        structure.add(labeledObject);
+        structure.add(labeledObject.getLabelManager().getMainLabel());
+        structure.add(labeledObject.getLabelManager().getLabels().size());
+        for (Label label : labeledObject.getLabelManager().getLabels()) {
+            structure.add(label);
+            if (label instanceof TextLabel) {
+                structure.add(((TextLabel) label).getInputText());
+            }
+        }
+    }
+
+    /**
+     * @return
+     *      true if both describe the same objects in the same order with equal sizes and label texts
+     */
+    private static boolean equalStructures(List<Object> structure0, List<Object> structure1) {
+        if (structure0.size() != structure1.size()) {
+            return false;
+        }
+        for (int i = 0; i < structure0.size(); i++) {
+            Object element0 = structure0.get(i);
+            Object element1 = structure1.get(i);
+            //the elements of the plan are compared as objects, sizes and texts by their value
+            if (element0 != element1 && !((element0 instanceof Integer || element0 instanceof String)
+                    && element0.equals(element1))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public PropertySheet getOriginalPlanSheet() {
+        return originalPlanSheet;
+    }
+
+    /**
+     * @return
+     *      main label texts of all vertices of the original plan that are not splices (unmodifiable)
+     */
+    public List<String> getVertexLabelTexts() {
+        return vertexLabelTexts;
+    }
+
+    /**
+     * @return
+     *      main label texts of all edges of the original plan (unmodifiable)
+     */
+    public List<String> getEdgeLabelTexts() {
+        return edgeLabelTexts;
+    }
+
+    public int getNumberOfRemovedIsolatedComponents() {
+        return numberOfRemovedIsolatedComponents;
+    }
+
+    /**
+     * The preprocessed plan of a {@link PreparedOriginal} (or a deep copy of it) together with its already initialized
+     * {@link VertexClassificationCache}, {@link StructureCounter} and {@link GraphEditJournal} and its vertices and
+     * vertex groups by type.
+     * The lists by type are new lists for each {@link WorkingCopy} and may be modified.
+     */
+    public static class WorkingCopy {
+        private Graph plan;
+        private VertexClassificationCache classification;
+        private StructureCounter structureCounter;
+        private Map<VertexType, List<Vertex>> verticesByType;
+        private Map<VertexGroupType, List<VertexGroup>> vertexGroupsByType;
+        private GraphEditJournal journal;
+        private boolean journaled;
+
+        private WorkingCopy(Graph plan, VertexClassificationCache classification, StructureCounter structureCounter,
+                            Map<VertexType, List<Vertex>> verticesByType,
+                            Map<VertexGroupType, List<VertexGroup>> vertexGroupsByType, GraphEditJournal journal,
+                            boolean journaled) {
+            this.plan = plan;
+            this.classification = classification;
+            this.structureCounter = structureCounter;
+            this.verticesByType = verticesByType;
+            this.vertexGroupsByType = vertexGroupsByType;
+            this.journal = journal;
+            this.journaled = journaled;
+        }
+
+        /**
+         * Call this when the plan of this working copy is not needed any more.
+         * If it is the preprocessed plan itself, all modifications are rolled back.
+         * A deep copy is just left to the garbage collector.
+         */
+        public void release() {
+            if (journaled && !journal.isRolledBack()) {
+                journal.rollBack();
+            }
+        }
+
+        public Graph getPlan() {
+            return plan;
+        }
+
+        public VertexClassificationCache getClassification() {
+            return classification;
+        }
+
+        public StructureCounter getStructureCounter() {
+            return structureCounter;
+        }
+
+        /**
+         * @return
+         *      journal where all modifications of the plan must be reported to (for a deep copy it is never rolled
+         *      back)
+         */
+        public GraphEditJournal getJournal() {
+            return journal;
+        }
+
+        /**
+         * @return
+         *      true if the plan of this working copy is the preprocessed plan itself and not a deep copy
+         */
+        public boolean isJournaled() {
+            return journaled;
+        }
+
+        public List<Vertex> getVertices(VertexType vertexType) {
+            return verticesByType.get(vertexType);
+        }
+
+        public List<VertexGroup> getVertexGroups(VertexGroupType vertexGroupType) {
+            return vertexGroupsByType.get(vertexGroupType);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package de.uniwue.informatik.praline.pseudocircuitplans.generatingnewplans;
+
+import de.uniwue.informatik.praline.datastructure.graphs.Edge;
+import de.uniwue.informatik.praline.datastructure.graphs.Graph;
+import de.uniwue.informatik.praline.datastructure.graphs.Port;
+import de.uniwue.informatik.praline.datastructure.graphs.Vertex;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Live counters of some structural values of a plan that is currently modified by {@link MainGeneratePlans}.
+ * It counts the hyperedges per degree, the edge incidences at splices and the self loops.
+ * <br/>
+ * The counters are computed once when this object is created. After that, every edge that is added to or removed
+ * from the plan must be reported via {@link StructureCounter#edgeAdded(Edge)} and
+ * {@link StructureCounter#edgeRemoved(Edge)}.
+ * Then all queries are answered in O(1) without scanning the plan.
+ * Splices are recognized via the {@link VertexClassificationCache} of the plan.
+ */
+public class StructureCounter {
+
+    private int[] hyperedgesOfDegree;
+
+    private int spliceEdgeIncidences;
+
+    private int selfLoops;
+
+    private VertexClassificationCache classification;
+
+    public StructureCounter(Graph graph, VertexClassificationCache classification) {
+        this.hyperedgesOfDegree = new int[20];
+        this.classification = classification;
+        for (Edge edge : graph.getEdges()) {
+            edgeAdded(edge);
+        }
+    }
+
+    /**
+     * Copies the counters of another {@link StructureCounter}.
+     * Use this only for an identical copy of the plan of the other {@link StructureCounter}.
+     *
+     * @param other
+     * @param classification
+     *      classification of the copy of the plan
+     */
+    public StructureCounter(StructureCounter other, VertexClassificationCache classification) {
+        this.hyperedgesOfDegree = Arrays.copyOf(other.hyperedgesOfDegree, other.hyperedgesOfDegree.length);
+        this.spliceEdgeIncidences = other.spliceEdgeIncidences;
+        this.selfLoops = other.selfLoops;
+        this.classification = classification;
+    }
+
+    /**
+     * call this method after the edge has been added to the graph
+     *
+     * @param edge
+     */
+    public void edgeAdded(Edge edge) {
+        update(edge, 1);
+    }
+
+    /**
+     * call this method before the edge is removed from the graph (i.e., while it still knows its ports)
+     *
+     * @param edge
+     */
+    public void edgeRemoved(Edge edge) {
+        update(edge, -1);
+    }
+
+    public int getHyperedgesOfDegree(int degree) {
+        if (degree < 0 || degree >= hyperedgesOfDegree.length) {
+            return 0;
+        }
+        return hyperedgesOfDegree[degree];
+    }
+
+    public int getSpliceEdgeIncidences() {
+        return spliceEdgeIncidences;
+    }
+
+    public int getSelfLoops() {
+        return selfLoops;
+    }
+
+    private void update(Edge edge, int change) {
+        List<Port> ports = edge.getPorts();
+        int degree = ports.size();
+        if (degree >= hyperedgesOfDegree.length) {
+            hyperedgesOfDegree = Arrays.copyOf(hyperedgesOfDegree, Math.max(degree + 1,
+                    2 * hyperedgesOfDegree.length));
+        }
+        hyperedgesOfDegree[degree] += change;
+
+        Vertex commonVertex = null;
+        boolean allPortsAtTheSameVertex = true;
+        for (Port port : ports) {
+            Vertex vertex = port.getVertex();
+            if (classification.isSplice(vertex)) {
+                spliceEdgeIncidences += change;
+            }
+            if (commonVertex == null) {
+                commonVertex = vertex;
+            }
+            else if (!commonVertex.equals(vertex)) {
+                allPortsAtTheSameVertex = false;
+            }
+        }
+        //same definition as for the property "selfLoopEdges" (stub edges are not counted)
+        if (degree > 1 && allPortsAtTheSameVertex) {
+            selfLoops += change;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package de.uniwue.informatik.praline.pseudocircuitplans.generatingnewplans;
+
+import de.uniwue.informatik.praline.datastructure.graphs.*;
+import de.uniwue.informatik.praline.pseudocircuitplans.properties.ImplicitCharacteristics;
+import de.uniwue.informatik.praline.pseudocircuitplans.properties.VertexGroupType;
+import de.uniwue.informatik.praline.pseudocircuitplans.properties.VertexType;
+
+import java.util.LinkedHashMap;
+
+/**
+ * Caches the {@link VertexType} of the vertices and the {@link VertexGroupType} of the vertex groups of a plan that is
+ * currently modified by {@link MainGeneratePlans}.
+ * A type is computed by {@link ImplicitCharacteristics} when it is requested for the first time and it is re-used
+ * until an element it depends on is reported as changed.
+ * <br/>
+ * The types of a vertex group and its vertices depend on the vertices, ports, port pairings, touching pairs and edges
+ * in this vertex group.
+ * So after adding or removing one of these, call {@link VertexClassificationCache#invalidate(Vertex)},
+ * {@link VertexClassificationCache#invalidate(VertexGroup)} or {@link VertexClassificationCache#invalidate(Edge)}.
+ * This invalidates only the touched vertex group (and its vertices), all other types are kept.
+ * Changing label texts does not need to be reported as long as no vertex gets or loses the label text of a splice.
+ * Nested vertex groups are not supported (the generator never creates them).
+ */
+public class VertexClassificationCache {
+
+    private Graph graph;
+
+    private LinkedHashMap<Vertex, VertexType> vertexTypes = new LinkedHashMap<>();
+
+    private LinkedHashMap<VertexGroup, VertexGroupType> vertexGroupTypes = new LinkedHashMap<>();
+
+    public VertexClassificationCache(Graph graph) {
+        this.graph = graph;
+    }
+
+    public VertexType getVertexType(Vertex vertex) {
+        VertexType vertexType = vertexTypes.get(vertex);
+        if (vertexType == null) {
+            vertexType = ImplicitCharacteristics.getVertexType(vertex, graph);
+            vertexTypes.put(vertex, vertexType);
+        }
+        return vertexType;
+    }
+
+    public VertexGroupType getVertexGroupType(VertexGroup vertexGroup) {
+        VertexGroupType vertexGroupType = vertexGroupTypes.get(vertexGroup);
+        if (vertexGroupType == null) {
+            vertexGroupType = ImplicitCharacteristics.getVertexGroupType(vertexGroup, graph);
+            vertexGroupTypes.put(vertexGroup, vertexGroupType);
+        }
+        return vertexGroupType;
+    }
+
+    /**
+     * Sets a type that is already known, e.g., because it was computed for an identical copy of this plan.
+     *
+     * @param vertex
+     * @param vertexType
+     */
+    public void setVertexType(Vertex vertex, VertexType vertexType) {
+        vertexTypes.put(vertex, vertexType);
+    }
+
+    /**
+     * Sets a type that is already known, e.g., because it was computed for an identical copy of this plan.
+     *
+     * @param vertexGroup
+     * @param vertexGroupType
+     */
+    public void setVertexGroupType(VertexGroup vertexGroup, VertexGroupType vertexGroupType) {
+        vertexGroupTypes.put(vertexGroup, vertexGroupType);
+    }
+
+    public boolean isOfType(VertexType vertexType, Vertex vertex) {
+        return vertexType == getVertexType(vertex);
+    }
+
+    public boolean isOfType(VertexGroupType vertexGroupType, VertexGroup vertexGroup) {
+        return vertexGroupType == getVertexGroupType(vertexGroup);
+    }
+
+    public boolean isSplice(Vertex vertex) {
+        return isOfType(VertexType.SPLICE, vertex);
+    }
+
+    public boolean isDeviceVertex(Vertex vertex) {
+        return isOfType(VertexType.DEVICE_VERTEX, vertex);
+    }
+
+    /**
+     * Call this after the vertex was added or removed or after one of its ports was added or removed.
+     * If the vertex is in a vertex group, this vertex group is invalidated as well.
+     *
+     * @param vertex
+     */
+    public void invalidate(Vertex vertex) {
+        if (vertex == null) {
+            return;
+        }
+        vertexTypes.remove(vertex);
+        if (vertex.getVertexGroup() != null) {
+            invalidate(vertex.getVertexGroup());
+        }
+    }
+
+    /**
+     * Call this after the vertex group was added or removed or after a vertex, port pairing or touching pair of it
+     * was added or removed.
+     * All vertices of this vertex group are invalidated as well.
+     *
+     * @param vertexGroup
+     */
+    public void invalidate(VertexGroup vertexGroup) {
+        if (vertexGroup == null) {
+            return;
+        }
+        vertexGroupTypes.remove(vertexGroup);
+        for (Vertex containedVertex : vertexGroup.getContainedVertices()) {
+            vertexTypes.remove(containedVertex);
+        }
+    }
+
+    /**
+     * Call this after the edge was added or before it is removed (i.e., while it still knows its ports).
+     * Only vertices in a vertex group depend on edges, so vertices without a vertex group (e.g. splices) keep their
+     * types.
+     *
+     * @param edge
+     */
+    public void invalidate(Edge edge) {
+        for (Port port : edge.getPorts()) {
+            Vertex vertex = port.getVertex();
+            if (vertex != null && vertex.getVertexGroup() != null) {
+                invalidate(vertex.getVertexGroup());
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package de.uniwue.informatik.praline.pseudocircuitplans.properties;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Bootstrap confidence intervals of {@link StatisticParameter#MEAN}, {@link StatisticParameter#MEDIAN} and
+ * {@link StatisticParameter#STANDARD_DEVIATION} of one property over a data set: the plans are drawn with replacement
+ * (as many as there are plans) for every replicate, the statistics are computed for each replicate and the interval
+ * is given by the percentiles of the (1 - {@link BootstrapConfidenceIntervals#CONFIDENCE_LEVEL}) / 2 and
+ * (1 + {@link BootstrapConfidenceIntervals#CONFIDENCE_LEVEL}) / 2 of the replicates.
+ * <br/>
+ * Like in {@link StatisticsMatrix}, a {@link NumberDistributionProperty} has intervals for every inner
+ * {@link StatisticParameter}. The statistics are computed like by {@link NumberDistribution} (NaNs are ignored).
+ * <br/>
+ * A replicate only counts how often each plan is drawn. Since the columns are sorted (see {@link PropertyColumns}), the
+ * statistics of a replicate are computed by one pass over these counts without sorting. Each column has its own
+ * {@link SplittableRandom} split in a fixed order from a generator seeded by the name of the property. Hence, the
+ * intervals of a property depend neither on the thread computing them nor on the other properties computed with it.
+ */
+public class BootstrapConfidenceIntervals {
+
+    public static final double CONFIDENCE_LEVEL = 0.95;
+
+    public static final StatisticParameter[] STATISTIC_PARAMETERS =
+            {StatisticParameter.MEAN, StatisticParameter.MEDIAN, StatisticParameter.STANDARD_DEVIATION};
+
+    private static final long SEED = 2108061727;
+
+    private Property property;
+
+    /**
+     * [inner][index in {@link BootstrapConfidenceIntervals#STATISTIC_PARAMETERS}][0: lower bound, 1: upper bound]
+     * -- for a numerical property there is only the inner index 0
+     */
+    private double[][][] bounds;
+
+    private BootstrapConfidenceIntervals(Property property, int numberOfColumns) {
+        this.property = property;
+        this.bounds = new double[numberOfColumns][STATISTIC_PARAMETERS.length][2];
+    }
+
+    /**
+     * @param columns
+     *      of a numerical or number distribution property
+     * @param numberOfReplicates
+     * @return
+     */
+    public static BootstrapConfidenceIntervals compute(PropertyColumns columns, int numberOfReplicates) {
+        SplittableRandom random = new SplittableRandom(SEED + columns.getProperty().getPropertyName().hashCode());
+        BootstrapConfidenceIntervals intervals =
+                new BootstrapConfidenceIntervals(columns.getProperty(), columns.getNumberOfColumns());
+        for (int column = 0; column < columns.getNumberOfColumns(); column++) {
+            intervals.setBounds(column,
+                    resample(columns.getSortedValues(column), numberOfReplicates, random.split()));
+        }
+        return intervals;
+    }
+
+    /**
+     * @param sortedValues
+     * @param numberOfReplicates
+     * @param random
+     * @return
+     *      [index in {@link BootstrapConfidenceIntervals#STATISTIC_PARAMETERS}][replicate]
+     */
+    private static double[][] resample(double[] sortedValues, int numberOfReplicates, SplittableRandom random) {
+        int n = sortedValues.length;
+        double[][] replicates = new double[STATISTIC_PARAMETERS.length][numberOfReplicates];
+        if (n == 0) {
+            for (double[] replicatesOfStatistic : replicates) {
+                Arrays.fill(replicatesOfStatistic, Double.NaN);
+            }
+            return replicates;
+        }
+        int[] counts = new int[n];
+        //the median is between these two ranks (0-based) of the replicate
+        int lowerMedianRank = (n - 1) / 2;
+        int upperMedianRank = n / 2;
+        for (int r = 0; r < numberOfReplicates; r++) {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < n; i++) {
+                ++counts[random.nextInt(n)];
+            }
+            double sum = 0;
+            double lowerMedian = Double.NaN;
+            double upperMedian = Double.NaN;
+            int seen = 0;
+            for (int i = 0; i < n; i++) {
+                if (counts[i] == 0) {
+                    continue;
+                }
+                sum += counts[i] * sortedValues[i];
+                seen += counts[i];
+                if (Double.isNaN(lowerMedian) && lowerMedianRank < seen) {
+                    lowerMedian = sortedValues[i];
+                }
+                if (Double.isNaN(upperMedian) && upperMedianRank < seen) {
+                    upperMedian = sortedValues[i];
+                }
+            }
+            double mean = sum / n;
+            double squaredDeviations = 0;
+            for (int i = 0; i < n; i++) {
+                if (counts[i] > 0) {
+                    squaredDeviations += counts[i] * (sortedValues[i] - mean) * (sortedValues[i] - mean);
+                }
+            }
+            replicates[0][r] = mean;
+            replicates[1][r] = lowerMedian + 0.5 * (upperMedian - lowerMedian);
+            replicates[2][r] = Math.sqrt(squaredDeviations / n);
+        }
+        return replicates;
+    }
+
+    private void setBounds(int column, double[][] replicates) {
+        for (int s = 0; s < STATISTIC_PARAMETERS.length; s++) {
+            NumberDistribution<Double> replicatesOfStatistic = new NumberDistribution<>(replicates[s].length);
+            for (double replicate : replicates[s]) {
+                replicatesOfStatistic.add(replicate);
+            }
+            bounds[column][s][0] = replicatesOfStatistic.getPercentile((1 - CONFIDENCE_LEVEL) / 2);
+            bounds[column][s][1] = replicatesOfStatistic.getPercentile((1 + CONFIDENCE_LEVEL) / 2);
+        }
+    }
+
+    private static int indexOf(StatisticParameter statisticParameter) {
+        for (int s = 0; s < STATISTIC_PARAMETERS.length; s++) {
+            if (STATISTIC_PARAMETERS[s] == statisticParameter) {
+                return s;
+            }
+        }
+        throw new IllegalArgumentException("There is no confidence interval of " + statisticParameter + ".");
+    }
+
+    public Property getProperty() {
+        return property;
+    }
+
+    /**
+     * @param statisticParameter
+     *      one of {@link BootstrapConfidenceIntervals#STATISTIC_PARAMETERS}
+     * @return
+     *      lower bound for a {@link NumericalProperty}
+     */
+    public double getLowerBound(StatisticParameter statisticParameter) {
+        return bounds[0][indexOf(statisticParameter)][0];
+    }
+
+    /**
+     * @param useThisParameterForInternalDataOfEachGraph
+     * @param statisticParameter
+     *      one of {@link BootstrapConfidenceIntervals#STATISTIC_PARAMETERS}
+     * @return
+     *      lower bound for a {@link NumberDistributionProperty}
+     */
+    public double getLowerBound(StatisticParameter useThisParameterForInternalDataOfEachGraph,
+                                StatisticParameter statisticParameter) {
+        return bounds[useThisParameterForInternalDataOfEachGraph.ordinal()][indexOf(statisticParameter)][0];
+    }
+
+    /**
+     * @param statisticParameter
+     *      one of {@link BootstrapConfidenceIntervals#STATISTIC_PARAMETERS}
+     * @return
+     *      upper bound for a {@link NumericalProperty}
+     */
+    public double getUpperBound(StatisticParameter statisticParameter) {
+        return bounds[0][indexOf(statisticParameter)][1];
+    }
+
+    /**
+     * @param useThisParameterForInternalDataOfEachGraph
+     * @param statisticParameter
+     *      one of {@link BootstrapConfidenceIntervals#STATISTIC_PARAMETERS}
+     * @return
+     *      upper bound for a {@link NumberDistributionProperty}
+     */
+    public double getUpperBound(StatisticParameter useThisParameterForInternalDataOfEachGraph,
+                                StatisticParameter statisticParameter) {
+        return bounds[useThisParameterForInternalDataOfEachGraph.ordinal()][indexOf(statisticParameter)][1];
+    }
+}
@@ -0,0 +1,19 @@
+package de.uniwue.informatik.praline.pseudocircuitplans.properties;
+
+/**
+ * {@link DataSetStatistics} that has the value of each plan, so the values of all plans can be gone through as a
+ * column per property, either kept in the {@link PropertySheet}s ({@link DataSetProperties}) or spilled to files
+ * ({@link SpilledDataSetProperties}).
+ */
+public interface DataSetColumns extends DataSetStatistics {
+
+    /**
+     * Goes through the plans once.
+     *
+     * @param property
+     *      numerical or number distribution property
+     * @return
+     *      the sorted columns of the values of all plans
+     */
+    PropertyColumns getColumns(Property property);
+}
@@ -4,7 +4,7 @@ import de.uniwue.informatik.praline.datastructure.graphs.Graph;
 
 import java.util.ArrayList;
 
-public class DataSetProperties extends ArrayList<PropertySheet> {
+public class DataSetProperties extends ArrayList<PropertySheet> implements DataSetColumns {
 
     public DataSetProperties() {
         super();
@@ -14,6 +14,22 @@ public class DataSetProperties extends ArrayList<PropertySheet> {
         super(initialCapacity);
     }
 
+    @Override
+    public int getNumberOfPlans() {
+        return size();
+    }
+
+    @Override
+    public boolean hasValuesOf(Property property) {
+        for (PropertySheet propertySheet : this) {
+            if (!propertySheet.hasValue(property)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
     public <N extends Number & Comparable> double get(NumericalProperty<N> property,
                                                       StatisticParameter statisticParameter) {
         return this.getDistribution(property).get(statisticParameter);
@@ -21,22 +37,33 @@ public class DataSetProperties extends ArrayList<PropertySheet> {
 
     public PropertySheet get(Graph plan) {
         for (PropertySheet propertySheet : this) {
-            if (propertySheet.getGraph().equals(plan)) {
+            if (plan.equals(propertySheet.getGraph())) {
                 return propertySheet;
             }
         }
         return null;
     }
 
+    /**
+     * @param planId
+     *      see {@link PropertySheet#getPlanId()}
+     * @return
+     *      the sheet of this plan also if its graph was released or null if there is none
+     */
+    public PropertySheet get(String planId) {
+        for (PropertySheet propertySheet : this) {
+            if (planId.equals(propertySheet.getPlanId())) {
+                return propertySheet;
+            }
+        }
+        return null;
+    }
+
+    @Override
     public double get(NumberDistributionProperty<?> property,
                       StatisticParameter useThisParameterForInternalDataOfEachGraph,
                       StatisticParameter statisticParameter) {
-        NumberDistribution<Double> allPropertyValues = new NumberDistribution<>(this.size());
-        for (PropertySheet propertySheet : this) {
-            allPropertyValues.add(propertySheet.getPropertyValue(property)
-                    .get(useThisParameterForInternalDataOfEachGraph));
-        }
-        return allPropertyValues.get(statisticParameter);
+        return this.getDistribution(property, useThisParameterForInternalDataOfEachGraph).get(statisticParameter);
     }
 
     public <N extends Number & Comparable> NumberDistribution<N> getDistribution(NumericalProperty<N> property) {
@@ -55,4 +82,28 @@ public class DataSetProperties extends ArrayList<PropertySheet> {
         }
         return allPropertyValues;
     }
+
+    @Override
+    public PropertyColumns getColumns(Property property) {
+        if (property instanceof NumericalProperty) {
+            double[] column = new double[this.size()];
+            for (int i = 0; i < this.size(); i++) {
+                column[i] = this.get(i).getPropertyValue((NumericalProperty<?>) property).doubleValue();
+            }
+            return new PropertyColumns(property, new double[][]{column});
+        }
+        if (property instanceof NumberDistributionProperty) {
+            StatisticParameter[] statisticParameters = StatisticParameter.values();
+            double[][] columns = new double[statisticParameters.length][this.size()];
+            for (int i = 0; i < this.size(); i++) {
+                NumberDistribution<?> distribution =
+                        this.get(i).getPropertyValue((NumberDistributionProperty<?>) property);
+                for (StatisticParameter statisticParameter : statisticParameters) {
+                    columns[statisticParameter.ordinal()][i] = distribution.get(statisticParameter);
+                }
+            }
+            return new PropertyColumns(property, columns);
+        }
+        throw new IllegalArgumentException("Only numerical and number distribution properties have columns.");
+    }
 }
@@ -0,0 +1,339 @@
+package de.uniwue.informatik.praline.pseudocircuitplans.properties;
+
+import de.uniwue.informatik.praline.pseudocircuitplans.generatingnewplans.IOUtils;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Saves the values of a {@link DataSetProperties} (without the graphs) in a compact binary file and loads them again,
+ * e.g., to compare new plans against the values of the original plans without analyzing the original plans again.
+ * <br/>
+ * The file starts with the plan id of each sheet (see {@link PropertySheet#getPlanId()}) and is then stored column by
+ * column: for each property its name, its version (see {@link Property#getVersion()}), the type of its numbers and its
+ * values for all plans (for a {@link NumberDistributionProperty} first the sizes of all distributions and then all
+ * their numbers).
+ * When loading, columns of unknown properties or of outdated versions of a property are skipped. Use
+ * {@link DataSetPropertiesSnapshot#isSnapshotOf(DataSetProperties, Collection, Collection)} to check if a loaded
+ * snapshot still fits the data set.
+ */
+public class DataSetPropertiesSnapshot {
+
+    private static final byte[] MAGIC = "PPDS".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int FORMAT_VERSION = 2;
+
+    private static final byte KIND_NUMERICAL = 0;
+
+    private static final byte KIND_DISTRIBUTION = 1;
+
+    private static final byte TYPE_INTEGER = 'I';
+
+    private static final byte TYPE_LONG = 'L';
+
+    private static final byte TYPE_FLOAT = 'F';
+
+    private static final byte TYPE_DOUBLE = 'D';
+
+    /**
+     * each number has its own type
+     */
+    private static final byte TYPE_MIXED = 'M';
+
+    /**
+     * Saves all numerical and number distribution properties that have a value in every sheet.
+     *
+     * @param dataSetProperties
+     * @param targetFilePath
+     * @throws IOException
+     */
+    public static void save(DataSetProperties dataSetProperties, String targetFilePath) throws IOException {
+        IOUtils.saveBytes(toBytes(dataSetProperties), targetFilePath);
+    }
+
+    /**
+     * Like {@link DataSetPropertiesSnapshot#save(DataSetProperties, String)}, but the snapshot is returned instead of
+     * saved, e.g., to send it to another process.
+     *
+     * @param dataSetProperties
+     * @return
+     * @throws IOException
+     */
+    public static byte[] toBytes(DataSetProperties dataSetProperties) throws IOException {
+        Set<Property> properties = new LinkedHashSet<>();
+        if (!dataSetProperties.isEmpty()) {
+            for (PropertyValue propertyValue : dataSetProperties.get(0).getAllValues()) {
+                properties.add(propertyValue.getProperty());
+            }
+        }
+        for (PropertySheet propertySheet : dataSetProperties) {
+            properties.removeIf(property -> !propertySheet.hasValue(property));
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(bytes))) {
+            outputStream.write(MAGIC);
+            outputStream.writeInt(FORMAT_VERSION);
+            outputStream.writeInt(dataSetProperties.size());
+            for (PropertySheet propertySheet : dataSetProperties) {
+                outputStream.writeBoolean(propertySheet.getPlanId() != null);
+                if (propertySheet.getPlanId() != null) {
+                    outputStream.writeUTF(propertySheet.getPlanId());
+                }
+            }
+            List<Property> savedProperties = new ArrayList<>();
+            for (Property property : properties) {
+                if (property instanceof NumericalProperty || property instanceof NumberDistributionProperty) {
+                    savedProperties.add(property);
+                }
+            }
+            outputStream.writeInt(savedProperties.size());
+            for (Property property : savedProperties) {
+                outputStream.writeUTF(property.getPropertyName());
+                outputStream.writeInt(property.getVersion());
+                List<Number> numbers = new ArrayList<>();
+                if (property instanceof NumericalProperty) {
+                    outputStream.writeByte(KIND_NUMERICAL);
+                    for (PropertySheet propertySheet : dataSetProperties) {
+                        numbers.add((Number) propertySheet.getPropertyValue(property));
+                    }
+                }
+                else {
+                    outputStream.writeByte(KIND_DISTRIBUTION);
+                    for (PropertySheet propertySheet : dataSetProperties) {
+                        NumberDistribution<?> distribution = (NumberDistribution<?>)
+                                propertySheet.getPropertyValue(property);
+                        outputStream.writeInt(distribution.size());
+                        numbers.addAll(distribution);
+                    }
+                }
+                writeNumbers(outputStream, numbers);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param snapshotFile
+     * @return
+     *      the values as sheets without graphs in the order in which they were saved
+     * @throws IOException
+     */
+    public static DataSetProperties load(File snapshotFile) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return read(buffer);
+    }
+
+    /**
+     * @param buffer
+     *      content of a snapshot, e.g. from {@link DataSetPropertiesSnapshot#toBytes(DataSetProperties)}
+     * @return
+     *      the values as sheets without graphs in the order in which they were saved
+     * @throws IOException
+     */
+    public static DataSetProperties read(ByteBuffer buffer) throws IOException {
+        try {
+            return readSnapshot(buffer);
+        }
+        catch (BufferUnderflowException e) {
+            throw new IOException("Snapshot of DataSetProperties is truncated.", e);
+        }
+    }
+
+    private static DataSetProperties readSnapshot(ByteBuffer buffer) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("This is no snapshot of DataSetProperties.");
+        }
+        int formatVersion = buffer.getInt();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Snapshots of DataSetProperties of version " + formatVersion + " are not " +
+                    "supported.");
+        }
+        int numberOfPlans = buffer.getInt();
+        DataSetProperties dataSetProperties = new DataSetProperties(numberOfPlans);
+        for (int i = 0; i < numberOfPlans; i++) {
+            PropertySheet propertySheet = new PropertySheet(null);
+            if (buffer.get() != 0) {
+                //without graph loader -- the snapshot knows only where the plan came from
+                propertySheet.setOrigin(readUTF(buffer), null);
+            }
+            dataSetProperties.add(propertySheet);
+        }
+
+        int numberOfProperties = buffer.getInt();
+        for (int i = 0; i < numberOfProperties; i++) {
+            String propertyName = readUTF(buffer);
+            int version = buffer.getInt();
+            byte kind = buffer.get();
+            Property property = PropertyManager.getProperty(propertyName);
+            boolean upToDate = property != null && property.getVersion() == version;
+
+            if (kind == KIND_NUMERICAL) {
+                List<Number> numbers = readNumbers(buffer, numberOfPlans);
+                if (upToDate) {
+                    for (int j = 0; j < numberOfPlans; j++) {
+                        dataSetProperties.get(j).addValue(PropertyValue.createPrecomputedValue(property,
+                                numbers.get(j)));
+                    }
+                }
+            }
+            else if (kind == KIND_DISTRIBUTION) {
+                int[] sizes = new int[numberOfPlans];
+                int totalSize = 0;
+                for (int j = 0; j < numberOfPlans; j++) {
+                    sizes[j] = buffer.getInt();
+                    totalSize += sizes[j];
+                }
+                List<Number> numbers = readNumbers(buffer, totalSize);
+                if (upToDate) {
+                    int position = 0;
+                    for (int j = 0; j < numberOfPlans; j++) {
+                        NumberDistribution distribution = new NumberDistribution<>(sizes[j]);
+                        distribution.addAll(numbers.subList(position, position + sizes[j]));
+                        position += sizes[j];
+                        dataSetProperties.get(j).addValue(PropertyValue.createPrecomputedValue(property,
+                                distribution));
+                    }
+                }
+            }
+            else {
+                throw new IOException("Unknown kind of property " + kind + " in snapshot.");
+            }
+        }
+        return dataSetProperties;
+    }
+
+    /**
+     * @param snapshot
+     *      e.g. loaded by {@link DataSetPropertiesSnapshot#load(File)}
+     * @param planIds
+     *      ids of the plans that are in the data set now
+     * @param properties
+     * @return
+     *      true if the snapshot has the values of exactly these plans and the values of all numerical and number
+     *      distribution properties among properties in their current version
+     */
+    public static boolean isSnapshotOf(DataSetProperties snapshot, Collection<String> planIds,
+                                       Collection<Property> properties) {
+        Set<String> planIdsOfSnapshot = new LinkedHashSet<>();
+        for (PropertySheet propertySheet : snapshot) {
+            if (propertySheet.getPlanId() == null) {
+                return false;
+            }
+            planIdsOfSnapshot.add(propertySheet.getPlanId());
+        }
+        if (planIdsOfSnapshot.size() != snapshot.size() || !planIdsOfSnapshot.equals(new LinkedHashSet<>(planIds))) {
+            return false;
+        }
+        //a column is either there for all plans or it was skipped (e.g. of an outdated version)
+        if (snapshot.isEmpty()) {
+            return true;
+        }
+        for (Property property : properties) {
+            if ((property instanceof NumericalProperty || property instanceof NumberDistributionProperty)
+                    && !snapshot.get(0).hasValue(property)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeNumbers(DataOutputStream outputStream, List<Number> numbers) throws IOException {
+        byte type = numbers.isEmpty() ? TYPE_INTEGER : getType(numbers.get(0));
+        for (Number number : numbers) {
+            if (getType(number) != type) {
+                type = TYPE_MIXED;
+                break;
+            }
+        }
+        outputStream.writeByte(type);
+        for (Number number : numbers) {
+            if (type == TYPE_MIXED) {
+                outputStream.writeByte(getType(number));
+            }
+            writeNumber(outputStream, number, type == TYPE_MIXED ? getType(number) : type);
+        }
+    }
+
+    private static byte getType(Number number) throws IOException {
+        if (number instanceof Integer) {
+            return TYPE_INTEGER;
+        }
+        if (number instanceof Long) {
+            return TYPE_LONG;
+        }
+        if (number instanceof Float) {
+            return TYPE_FLOAT;
+        }
+        if (number instanceof Double) {
+            return TYPE_DOUBLE;
+        }
+        throw new IOException("Numbers of type " + number.getClass().getSimpleName() + " are not supported.");
+    }
+
+    private static void writeNumber(DataOutputStream outputStream, Number number, byte type) throws IOException {
+        switch (type) {
+            case TYPE_INTEGER:
+                outputStream.writeInt(number.intValue());
+                break;
+            case TYPE_LONG:
+                outputStream.writeLong(number.longValue());
+                break;
+            case TYPE_FLOAT:
+                outputStream.writeFloat(number.floatValue());
+                break;
+            default:
+                outputStream.writeDouble(number.doubleValue());
+        }
+    }
+
+    private static List<Number> readNumbers(ByteBuffer buffer, int count) throws IOException {
+        byte type = buffer.get();
+        List<Number> numbers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            numbers.add(readNumber(buffer, type == TYPE_MIXED ? buffer.get() : type));
+        }
+        return numbers;
+    }
+
+    private static Number readNumber(ByteBuffer buffer, byte type) throws IOException {
+        switch (type) {
+            case TYPE_INTEGER:
+                return buffer.getInt();
+            case TYPE_LONG:
+                return buffer.getLong();
+            case TYPE_FLOAT:
+                return buffer.getFloat();
+            case TYPE_DOUBLE:
+                return buffer.getDouble();
+            default:
+                throw new IOException("Unknown type of number " + type + " in snapshot.");
+        }
+    }
+
+    /**
+     * reads a string written by {@link DataOutputStream#writeUTF(String)} (modified UTF-8 differs from UTF-8 only for
+     * the null character and supplementary characters, which do not occur in property names)
+     */
+    private static String readUTF(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xffff;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
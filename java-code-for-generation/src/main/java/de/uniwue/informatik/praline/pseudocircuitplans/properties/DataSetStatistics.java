@@ -0,0 +1,35 @@
+package de.uniwue.informatik.praline.pseudocircuitplans.properties;
+
+/**
+ * Statistics of the property values of a set of plans, either computed from all {@link PropertySheet}s
+ * ({@link DataSetProperties}), from aggregates of them ({@link DataSetSummary}) or computed once in advance
+ * ({@link PrecomputedStatistics}).
+ */
+public interface DataSetStatistics {
+
+    /**
+     * @return
+     *      number of plans whose values are in this data set
+     */
+    int getNumberOfPlans();
+
+    /**
+     * @param property
+     * @return
+     *      true if every plan of this data set has a value of this property
+     */
+    boolean hasValuesOf(Property property);
+
+    <N extends Number & Comparable> double get(NumericalProperty<N> property, StatisticParameter statisticParameter);
+
+    /**
+     * @param property
+     * @param useThisParameterForInternalDataOfEachGraph
+     *      statistic that is computed for the distribution of each plan
+     * @param statisticParameter
+     *      statistic that is computed over the values of all plans
+     * @return
+     */
+    double get(NumberDistributionProperty<?> property, StatisticParameter useThisParameterForInternalDataOfEachGraph,
+               StatisticParameter statisticParameter);
+}
@@ -0,0 +1,314 @@
+package de.uniwue.informatik.praline.pseudocircuitplans.properties;
+
+import de.uniwue.informatik.praline.pseudocircuitplans.generatingnewplans.IOUtils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Statistics of a data set that are kept as mergeable aggregates ({@link StatisticSummary}) instead of one
+ * {@link PropertySheet} per plan.
+ * For a {@link NumericalProperty} there is one summary of its values, for a {@link NumberDistributionProperty} there is
+ * one summary per {@link StatisticParameter} of the values of this parameter for the distributions of all plans.
+ * <br/>
+ * Plans can be added one by one (also in parallel), so the summary of a corpus is updated incrementally when new plans
+ * are added to the corpus. The ids of all added plans are kept (see {@link PropertySheet#getPlanId()}), s.t. a plan is
+ * not counted twice. Summaries of disjoint sets of plans, e.g. of shards of a corpus analyzed by separate processes,
+ * are combined by {@link DataSetSummary#merge(DataSetSummary)}.
+ * <br/>
+ * For selected properties, the values are summarized by a quantile sketch ({@link KllSketch}) instead of the exact
+ * occurrences of all values, which needs constant memory for values with many distinct values (see
+ * {@link StatisticSummary}).
+ * <br/>
+ * A summary can be saved to and loaded from a file. When loading, summaries of unknown properties or of outdated
+ * versions of a property (see {@link Property#getVersion()}) are skipped.
+ */
+public class DataSetSummary implements DataSetStatistics {
+
+    private static final byte[] MAGIC = "PPSU".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int FORMAT_VERSION = 2;
+
+    private int numberOfPlans = 0;
+
+    private Set<String> planIds = new LinkedHashSet<>();
+
+    private Map<String, PropertySummary> propertySummaries = new LinkedHashMap<>();
+
+    /**
+     * @param properties
+     *      all numerical and number distribution properties among them are summarized
+     */
+    public DataSetSummary(Collection<Property> properties) {
+        this(properties, Collections.emptyList());
+    }
+
+    /**
+     * @param properties
+     *      all numerical and number distribution properties among them are summarized
+     * @param sketchedProperties
+     *      the values of these properties are summarized by a quantile sketch
+     */
+    public DataSetSummary(Collection<Property> properties, Collection<Property> sketchedProperties) {
+        for (Property property : properties) {
+            if (property instanceof NumericalProperty || property instanceof NumberDistributionProperty) {
+                propertySummaries.put(property.getPropertyName(),
+                        new PropertySummary(property, sketchedProperties.contains(property)));
+            }
+        }
+    }
+
+    /**
+     * Adds the values of this sheet to the summaries.
+     *
+     * @param propertySheet
+     *      must have a value of every summarized property
+     * @return
+     *      false if a plan with the same id was already added (then nothing is changed), otherwise true
+     */
+    public synchronized boolean add(PropertySheet propertySheet) {
+        String planId = propertySheet.getPlanId();
+        if (planId != null && planIds.contains(planId)) {
+            return false;
+        }
+        for (PropertySummary propertySummary : propertySummaries.values()) {
+            if (!propertySheet.hasValue(propertySummary.property)) {
+                throw new IllegalArgumentException("Sheet " + planId + " has no value of " +
+                        propertySummary.property.getPropertyName() + ".");
+            }
+        }
+        for (PropertySummary propertySummary : propertySummaries.values()) {
+            propertySummary.add(propertySheet.getPropertyValue(propertySummary.property));
+        }
+        if (planId != null) {
+            planIds.add(planId);
+        }
+        ++numberOfPlans;
+        return true;
+    }
+
+    /**
+     * Adds all plans of the other summary to this summary. Properties that are not summarized by both are dropped.
+     * The other summary is not changed.
+     *
+     * @param other
+     *      summary of plans that are not in this summary
+     */
+    public synchronized void merge(DataSetSummary other) {
+        synchronized (other) {
+            for (String planId : other.planIds) {
+                if (planIds.contains(planId)) {
+                    throw new IllegalArgumentException("Plan " + planId + " is in both summaries.");
+                }
+            }
+            propertySummaries.keySet().removeIf(propertyName -> !other.propertySummaries.containsKey(propertyName));
+            for (PropertySummary propertySummary : propertySummaries.values()) {
+                propertySummary.merge(other.propertySummaries.get(propertySummary.property.getPropertyName()));
+            }
+            planIds.addAll(other.planIds);
+            numberOfPlans += other.numberOfPlans;
+        }
+    }
+
+    /**
+     * @param planId
+     * @return
+     *      true if the plan with this id was already added
+     */
+    public synchronized boolean contains(String planId) {
+        return planIds.contains(planId);
+    }
+
+    @Override
+    public synchronized int getNumberOfPlans() {
+        return numberOfPlans;
+    }
+
+    @Override
+    public synchronized boolean hasValuesOf(Property property) {
+        return propertySummaries.containsKey(property.getPropertyName());
+    }
+
+    /**
+     * @param properties
+     * @return
+     *      true if {@link DataSetSummary#hasValuesOf(Property)} holds for all numerical and number distribution
+     *      properties among them
+     */
+    public synchronized boolean hasValuesOfAll(Collection<Property> properties) {
+        for (Property property : properties) {
+            if ((property instanceof NumericalProperty || property instanceof NumberDistributionProperty) &&
+                    !hasValuesOf(property)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized <N extends Number & Comparable> double get(NumericalProperty<N> property,
+                                                                   StatisticParameter statisticParameter) {
+        return getPropertySummary(property).values.get(statisticParameter);
+    }
+
+    @Override
+    public synchronized double get(NumberDistributionProperty<?> property,
+                                   StatisticParameter useThisParameterForInternalDataOfEachGraph,
+                                   StatisticParameter statisticParameter) {
+        return getPropertySummary(property).parameterValues.get(useThisParameterForInternalDataOfEachGraph)
+                .get(statisticParameter);
+    }
+
+    private PropertySummary getPropertySummary(Property property) {
+        PropertySummary propertySummary = propertySummaries.get(property.getPropertyName());
+        if (propertySummary == null) {
+            throw new IllegalArgumentException("There are no values of " + property.getPropertyName() + ".");
+        }
+        return propertySummary;
+    }
+
+    /**
+     * @param targetFilePath
+     * @throws IOException
+     */
+    public synchronized void save(String targetFilePath) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(bytes))) {
+            outputStream.write(MAGIC);
+            outputStream.writeInt(FORMAT_VERSION);
+            outputStream.writeInt(numberOfPlans);
+            outputStream.writeInt(planIds.size());
+            for (String planId : planIds) {
+                outputStream.writeUTF(planId);
+            }
+            outputStream.writeInt(propertySummaries.size());
+            for (PropertySummary propertySummary : propertySummaries.values()) {
+                outputStream.writeUTF(propertySummary.property.getPropertyName());
+                outputStream.writeInt(propertySummary.property.getVersion());
+                outputStream.writeInt(propertySummary.parameterValues.size());
+                for (Map.Entry<StatisticParameter, StatisticSummary> parameterValues :
+                        propertySummary.parameterValues.entrySet()) {
+                    outputStream.writeUTF(parameterValues.getKey().name());
+                    parameterValues.getValue().write(outputStream);
+                }
+                if (propertySummary.values != null) {
+                    propertySummary.values.write(outputStream);
+                }
+            }
+        }
+        IOUtils.saveBytes(bytes.toByteArray(), targetFilePath);
+    }
+
+    /**
+     * @param summaryFile
+     * @return
+     * @throws IOException
+     */
+    public static DataSetSummary load(File summaryFile) throws IOException {
+        try (DataInputStream inputStream =
+                     new DataInputStream(new BufferedInputStream(Files.newInputStream(summaryFile.toPath())))) {
+            byte[] magic = new byte[MAGIC.length];
+            inputStream.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException(summaryFile.getPath() + " is no summary of a data set.");
+            }
+            int formatVersion = inputStream.readInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Summaries of data sets of version " + formatVersion + " are not supported.");
+            }
+            DataSetSummary dataSetSummary = new DataSetSummary(Collections.emptyList());
+            dataSetSummary.numberOfPlans = inputStream.readInt();
+            int numberOfPlanIds = inputStream.readInt();
+            for (int i = 0; i < numberOfPlanIds; i++) {
+                dataSetSummary.planIds.add(inputStream.readUTF());
+            }
+            int numberOfProperties = inputStream.readInt();
+            for (int i = 0; i < numberOfProperties; i++) {
+                String propertyName = inputStream.readUTF();
+                int version = inputStream.readInt();
+                Property property = PropertyManager.getProperty(propertyName);
+                PropertySummary propertySummary = property == null ? null : new PropertySummary(property, false);
+                int numberOfParameters = inputStream.readInt();
+                int numberOfKnownParameters = 0;
+                for (int j = 0; j < numberOfParameters; j++) {
+                    StatisticParameter statisticParameter = findStatisticParameter(inputStream.readUTF());
+                    StatisticSummary parameterValues = StatisticSummary.read(inputStream);
+                    if (propertySummary != null && statisticParameter != null &&
+                            propertySummary.parameterValues.containsKey(statisticParameter)) {
+                        propertySummary.parameterValues.put(statisticParameter, parameterValues);
+                        ++numberOfKnownParameters;
+                    }
+                }
+                if (numberOfParameters == 0) {
+                    StatisticSummary values = StatisticSummary.read(inputStream);
+                    if (propertySummary != null) {
+                        propertySummary.values = values;
+                    }
+                }
+                //a number distribution property needs the summaries of all statistic parameters
+                if (propertySummary != null && property.getVersion() == version &&
+                        (propertySummary.values == null) == (numberOfParameters > 0) &&
+                        propertySummary.parameterValues.size() == numberOfKnownParameters) {
+                    dataSetSummary.propertySummaries.put(propertyName, propertySummary);
+                }
+            }
+            return dataSetSummary;
+        }
+    }
+
+    private static StatisticParameter findStatisticParameter(String name) {
+        for (StatisticParameter statisticParameter : StatisticParameter.values()) {
+            if (statisticParameter.name().equals(name)) {
+                return statisticParameter;
+            }
+        }
+        return null;
+    }
+
+    private static class PropertySummary {
+        private Property property;
+        /**
+         * for a {@link NumericalProperty}, otherwise null
+         */
+        private StatisticSummary values;
+        /**
+         * for a {@link NumberDistributionProperty}, otherwise empty
+         */
+        private EnumMap<StatisticParameter, StatisticSummary> parameterValues = new EnumMap<>(StatisticParameter.class);
+
+        private PropertySummary(Property property, boolean useQuantileSketch) {
+            this.property = property;
+            if (property instanceof NumberDistributionProperty) {
+                for (StatisticParameter statisticParameter : StatisticParameter.values()) {
+                    parameterValues.put(statisticParameter, new StatisticSummary(useQuantileSketch));
+                }
+            }
+            else {
+                values = new StatisticSummary(useQuantileSketch);
+            }
+        }
+
+        private void add(Object value) {
+            if (values != null) {
+                values.add((Number) value);
+                return;
+            }
+            NumberDistribution<?> distribution = (NumberDistribution<?>) value;
+            for (Map.Entry<StatisticParameter, StatisticSummary> parameterValues : this.parameterValues.entrySet()) {
+                parameterValues.getValue().add(distribution.get(parameterValues.getKey()));
+            }
+        }
+
+        private void merge(PropertySummary other) {
+            if (values != null) {
+                values.merge(other.values);
+                return;
+            }
+            for (Map.Entry<StatisticParameter, StatisticSummary> parameterValues : this.parameterValues.entrySet()) {
+                parameterValues.getValue().merge(other.parameterValues.get(parameterValues.getKey()));
+            }
+        }
+    }
+}
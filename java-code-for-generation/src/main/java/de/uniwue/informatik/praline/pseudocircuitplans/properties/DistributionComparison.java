@@ -0,0 +1,177 @@
+package de.uniwue.informatik.praline.pseudocircuitplans.properties;
+
+/**
+ * Distances between the values of one property in two data sets: the Kolmogorov-Smirnov statistic (largest
+ * difference of the empirical distribution functions), the Wasserstein-1 distance (area between the empirical
+ * distribution functions) and the effect size (Cohen's d: difference of the means divided by the pooled sample
+ * standard deviation, positive if the values of the second data set are larger).
+ * <br/>
+ * For a {@link NumericalProperty} the values of all plans are compared, for a {@link NumberDistributionProperty} the
+ * values of each {@link StatisticParameter} for the distribution of each plan (inner) are compared.
+ * <br/>
+ * All distances are computed in one merge of the sorted columns (see {@link PropertyColumns}), so in O(n log n) for n
+ * plans including the sorting. NaNs are ignored. If a data set has no values, the distances are NaN.
+ */
+public class DistributionComparison {
+
+    private Property property;
+
+    /**
+     * [inner] -- for a numerical property there is only the inner index 0
+     */
+    private double[] kolmogorovSmirnovStatistics;
+
+    private double[] wassersteinDistances;
+
+    private double[] effectSizes;
+
+    private DistributionComparison(Property property, int numberOfColumns) {
+        this.property = property;
+        this.kolmogorovSmirnovStatistics = new double[numberOfColumns];
+        this.wassersteinDistances = new double[numberOfColumns];
+        this.effectSizes = new double[numberOfColumns];
+    }
+
+    /**
+     * @param columns0
+     *      of a property in the first data set
+     * @param columns1
+     *      of the same property in the second data set
+     * @return
+     */
+    public static DistributionComparison compute(PropertyColumns columns0, PropertyColumns columns1) {
+        DistributionComparison comparison =
+                new DistributionComparison(columns0.getProperty(), columns0.getNumberOfColumns());
+        for (int column = 0; column < columns0.getNumberOfColumns(); column++) {
+            comparison.compare(column, columns0.getSortedValues(column), columns1.getSortedValues(column));
+        }
+        return comparison;
+    }
+
+    /**
+     * Computes all distances between two columns in one pass over both.
+     *
+     * @param column
+     * @param values0
+     *      sorted in ascending order, without NaNs
+     * @param values1
+     *      sorted in ascending order, without NaNs
+     */
+    private void compare(int column, double[] values0, double[] values1) {
+        if (values0.length == 0 || values1.length == 0) {
+            kolmogorovSmirnovStatistics[column] = Double.NaN;
+            wassersteinDistances[column] = Double.NaN;
+            effectSizes[column] = Double.NaN;
+            return;
+        }
+        double maxDifference = 0;
+        double area = 0;
+        int i0 = 0;
+        int i1 = 0;
+        double x = Math.min(values0[0], values1[0]);
+        //the distribution functions are step functions changing only at the values -> go from value to value
+        while (i0 < values0.length || i1 < values1.length) {
+            while (i0 < values0.length && values0[i0] == x) {
+                ++i0;
+            }
+            while (i1 < values1.length && values1[i1] == x) {
+                ++i1;
+            }
+            double difference = Math.abs(i0 / (double) values0.length - i1 / (double) values1.length);
+            maxDifference = Math.max(maxDifference, difference);
+            double nextX = Math.min(i0 < values0.length ? values0[i0] : Double.POSITIVE_INFINITY,
+                    i1 < values1.length ? values1[i1] : Double.POSITIVE_INFINITY);
+            if (nextX != Double.POSITIVE_INFINITY) {
+                area += difference * (nextX - x);
+            }
+            x = nextX;
+        }
+        kolmogorovSmirnovStatistics[column] = maxDifference;
+        wassersteinDistances[column] = area;
+        effectSizes[column] = computeEffectSize(values0, values1);
+    }
+
+    private static double computeEffectSize(double[] values0, double[] values1) {
+        double mean0 = mean(values0);
+        double mean1 = mean(values1);
+        int degreesOfFreedom = values0.length + values1.length - 2;
+        double pooledVariance = degreesOfFreedom <= 0 ? 0 :
+                (squaredDeviations(values0, mean0) + squaredDeviations(values1, mean1)) / degreesOfFreedom;
+        if (pooledVariance == 0) {
+            //no spread -> only equal means are comparable
+            return mean0 == mean1 ? 0 : Double.NaN;
+        }
+        return (mean1 - mean0) / Math.sqrt(pooledVariance);
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    private static double squaredDeviations(double[] values, double mean) {
+        double sum = 0;
+        for (double value : values) {
+            sum += (value - mean) * (value - mean);
+        }
+        return sum;
+    }
+
+    public Property getProperty() {
+        return property;
+    }
+
+    /**
+     * @return
+     *      Kolmogorov-Smirnov statistic of a {@link NumericalProperty}
+     */
+    public double getKolmogorovSmirnovStatistic() {
+        return kolmogorovSmirnovStatistics[0];
+    }
+
+    /**
+     * @param useThisParameterForInternalDataOfEachGraph
+     * @return
+     *      Kolmogorov-Smirnov statistic of a {@link NumberDistributionProperty}
+     */
+    public double getKolmogorovSmirnovStatistic(StatisticParameter useThisParameterForInternalDataOfEachGraph) {
+        return kolmogorovSmirnovStatistics[useThisParameterForInternalDataOfEachGraph.ordinal()];
+    }
+
+    /**
+     * @return
+     *      Wasserstein-1 distance of a {@link NumericalProperty}
+     */
+    public double getWassersteinDistance() {
+        return wassersteinDistances[0];
+    }
+
+    /**
+     * @param useThisParameterForInternalDataOfEachGraph
+     * @return
+     *      Wasserstein-1 distance of a {@link NumberDistributionProperty}
+     */
+    public double getWassersteinDistance(StatisticParameter useThisParameterForInternalDataOfEachGraph) {
+        return wassersteinDistances[useThisParameterForInternalDataOfEachGraph.ordinal()];
+    }
+
+    /**
+     * @return
+     *      effect size of a {@link NumericalProperty}
+     */
+    public double getEffectSize() {
+        return effectSizes[0];
+    }
+
+    /**
+     * @param useThisParameterForInternalDataOfEachGraph
+     * @return
+     *      effect size of a {@link NumberDistributionProperty}
+     */
+    public double getEffectSize(StatisticParameter useThisParameterForInternalDataOfEachGraph) {
+        return effectSizes[useThisParameterForInternalDataOfEachGraph.ordinal()];
+    }
+}
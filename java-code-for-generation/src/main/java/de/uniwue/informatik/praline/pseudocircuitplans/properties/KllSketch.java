@@ -0,0 +1,233 @@
+package de.uniwue.informatik.praline.pseudocircuitplans.properties;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Quantile sketch of Karnin, Lang and Liberty ("Optimal Quantile Approximation in Streams", FOCS 2016) for a stream of
+ * numbers.
+ * <br/>
+ * It keeps only O(k) numbers, independent of the length of the stream. A number in level h represents 2^h numbers of
+ * the stream. If a level is full, it is sorted and every second number (starting randomly at the first or the second)
+ * is moved to the next level. With high probability, the rank of every number is estimated with an error of at most
+ * about 1.7 / k times the number of added numbers (for the default k = 200 below 1 %).
+ * <br/>
+ * Sketches are mergeable: merging the sketches of two streams has the same error guarantee as a sketch of both streams.
+ * The random choices are seeded, so the same stream always gives the same sketch.
+ */
+public class KllSketch {
+
+    public static final int DEFAULT_K = 200;
+
+    /**
+     * ratio of the capacities of two consecutive levels
+     */
+    private static final double CAPACITY_RATIO = 2.0 / 3.0;
+
+    private static final int MINIMUM_CAPACITY = 2;
+
+    private static final long SEED = 1905253041;
+
+    private int k;
+
+    private long count = 0;
+
+    /**
+     * numbers per level, the first numberOfItems[h] entries of levels.get(h) are used
+     */
+    private List<double[]> levels = new ArrayList<>();
+
+    private int[] numberOfItems = new int[0];
+
+    private int totalNumberOfItems = 0;
+
+    private int totalCapacity = 0;
+
+    private Random random = new Random(SEED);
+
+    public KllSketch() {
+        this(DEFAULT_K);
+    }
+
+    /**
+     * @param k
+     *      accuracy parameter: the larger, the more accurate and the more memory is used
+     */
+    public KllSketch(int k) {
+        this.k = k;
+        addLevel();
+    }
+
+    public void add(double value) {
+        ++count;
+        append(0, value);
+        ++totalNumberOfItems;
+        if (totalNumberOfItems >= totalCapacity) {
+            compress();
+        }
+    }
+
+    /**
+     * Adds all numbers of the other sketch to this sketch. The other sketch is not changed.
+     *
+     * @param other
+     */
+    public void merge(KllSketch other) {
+        while (levels.size() < other.levels.size()) {
+            addLevel();
+        }
+        for (int h = 0; h < other.levels.size(); h++) {
+            for (int i = 0; i < other.numberOfItems[h]; i++) {
+                append(h, other.levels.get(h)[i]);
+            }
+        }
+        count += other.count;
+        totalNumberOfItems = Arrays.stream(numberOfItems).sum();
+        while (totalNumberOfItems >= totalCapacity) {
+            compress();
+        }
+    }
+
+    /**
+     * @return
+     *      number of added numbers
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @param value
+     * @return
+     *      estimated number of added numbers that are at most value
+     */
+    public long getRank(double value) {
+        long rank = 0;
+        for (int h = 0; h < levels.size(); h++) {
+            double[] level = levels.get(h);
+            for (int i = 0; i < numberOfItems[h]; i++) {
+                if (level[i] <= value) {
+                    rank += 1L << h;
+                }
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * @param rank
+     *      0-based rank among all added numbers in ascending order
+     * @return
+     *      estimated number of this rank or NaN if the sketch is empty
+     */
+    public double getValueAtRank(long rank) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        double[] values = new double[totalNumberOfItems];
+        long[] weights = new long[totalNumberOfItems];
+        Integer[] order = new Integer[totalNumberOfItems];
+        int index = 0;
+        for (int h = 0; h < levels.size(); h++) {
+            for (int i = 0; i < numberOfItems[h]; i++) {
+                values[index] = levels.get(h)[i];
+                weights[index] = 1L << h;
+                order[index] = index;
+                ++index;
+            }
+        }
+        Arrays.sort(order, (i, j) -> Double.compare(values[i], values[j]));
+        long seen = 0;
+        for (Integer i : order) {
+            seen += weights[i];
+            if (rank < seen) {
+                return values[i];
+            }
+        }
+        return values[order[order.length - 1]];
+    }
+
+    private void addLevel() {
+        levels.add(new double[MINIMUM_CAPACITY]);
+        numberOfItems = Arrays.copyOf(numberOfItems, levels.size());
+        totalCapacity = 0;
+        for (int h = 0; h < levels.size(); h++) {
+            totalCapacity += getCapacity(h);
+        }
+    }
+
+    private int getCapacity(int level) {
+        int depth = levels.size() - level - 1;
+        return Math.max(MINIMUM_CAPACITY, (int) Math.ceil(Math.pow(CAPACITY_RATIO, depth) * k));
+    }
+
+    private void append(int level, double value) {
+        double[] items = levels.get(level);
+        if (numberOfItems[level] == items.length) {
+            items = Arrays.copyOf(items, items.length * 2);
+            levels.set(level, items);
+        }
+        items[numberOfItems[level]++] = value;
+    }
+
+    /**
+     * compacts the lowest full level into the next level
+     */
+    private void compress() {
+        for (int h = 0; h < levels.size(); h++) {
+            if (numberOfItems[h] >= getCapacity(h)) {
+                if (h + 1 >= levels.size()) {
+                    addLevel();
+                }
+                double[] items = levels.get(h);
+                int size = numberOfItems[h];
+                Arrays.sort(items, 0, size);
+                //an odd number of numbers leaves the largest one in this level
+                int compactedSize = size - size % 2;
+                for (int i = random.nextBoolean() ? 1 : 0; i < compactedSize; i += 2) {
+                    append(h + 1, items[i]);
+                }
+                if (compactedSize < size) {
+                    items[0] = items[size - 1];
+                }
+                numberOfItems[h] = size - compactedSize;
+                totalNumberOfItems -= compactedSize / 2;
+                return;
+            }
+        }
+    }
+
+    public void write(DataOutputStream outputStream) throws IOException {
+        outputStream.writeInt(k);
+        outputStream.writeLong(count);
+        outputStream.writeInt(levels.size());
+        for (int h = 0; h < levels.size(); h++) {
+            outputStream.writeInt(numberOfItems[h]);
+            for (int i = 0; i < numberOfItems[h]; i++) {
+                outputStream.writeDouble(levels.get(h)[i]);
+            }
+        }
+    }
+
+    public static KllSketch read(DataInputStream inputStream) throws IOException {
+        KllSketch sketch = new KllSketch(inputStream.readInt());
+        sketch.count = inputStream.readLong();
+        int numberOfLevels = inputStream.readInt();
+        while (sketch.levels.size() < numberOfLevels) {
+            sketch.addLevel();
+        }
+        for (int h = 0; h < numberOfLevels; h++) {
+            int size = inputStream.readInt();
+            for (int i = 0; i < size; i++) {
+                sketch.append(h, inputStream.readDouble());
+            }
+        }
+        sketch.totalNumberOfItems = Arrays.stream(sketch.numberOfItems).sum();
+        return sketch;
+    }
+}
@@ -1,11 +1,16 @@
 package de.uniwue.informatik.praline.pseudocircuitplans.properties;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedList;
+import java.util.Arrays;
 
 public class NumberDistribution<N extends Number & Comparable> extends ArrayList<N> {
 
+    /**
+     * all values except NaNs in ascending order -- shared by all rank based statistics and recomputed only after this
+     * distribution was modified
+     */
+    private transient volatile SortedValues sortedValues;
+
     public NumberDistribution() {
         super();
     }
@@ -14,6 +19,15 @@ public class NumberDistribution<N extends Number & Comparable> extends ArrayList
         super(initialCapacity);
     }
 
+    /**
+     * {@link ArrayList#set(int, Object)} does not change {@link ArrayList#modCount}, so drop the sorted values here
+     */
+    @Override
+    public N set(int index, N element) {
+        sortedValues = null;
+        return super.set(index, element);
+    }
+
     public double get(StatisticParameter statisticParameter) {
         switch (statisticParameter) {
             case MIN:
@@ -63,27 +77,6 @@ public class NumberDistribution<N extends Number & Comparable> extends ArrayList
                 }
                 return sum / (double) countedEntries;
 
-            case MEDIAN:
-                LinkedList<N> allEntriesSorted = new LinkedList<>(this);
-                //filter out NaNs
-                while (allEntriesSorted.contains(Double.NaN)) {
-                    allEntriesSorted.remove(Double.NaN);
-                }
-                if (allEntriesSorted.isEmpty()) {
-                    return Double.NaN;
-                }
-                Collections.sort(allEntriesSorted);
-                double lowerMedian = allEntriesSorted.get((allEntriesSorted.size() - 1) / 2).doubleValue();
-                double upperMedian = allEntriesSorted.get(allEntriesSorted.size() / 2).doubleValue();
-                return (lowerMedian + upperMedian) / 2.0;
-
-            case MODE_SMALLEST:
-                return determineMode(false);
-
-            case MODE_LARGEST:
-                return determineMode(true);
-
-
             case VARIANCE:
                 double mean = this.get(StatisticParameter.MEAN);
                 double sumOfSquaredDeviations = 0;
@@ -113,63 +106,148 @@ public class NumberDistribution<N extends Number & Comparable> extends ArrayList
             case COUNT:
                 return this.size();
 
+            default:
+                return getRankStatistic(getSortedValues(), statisticParameter);
+        }
+    }
+
+    /**
+     * @param sortedValues
+     *      all values except NaNs in ascending order (see {@link NumberDistribution#getSortedValues()})
+     * @param statisticParameter
+     *      a rank based parameter (see {@link StatisticParameter#isRankBased()})
+     * @return
+     *      the value of this parameter for these values
+     */
+    public static double getRankStatistic(double[] sortedValues, StatisticParameter statisticParameter) {
+        switch (statisticParameter) {
+            case MEDIAN:
+            case P5:
+            case P25:
+            case P75:
+            case P95:
+            case P99:
+                return getPercentile(sortedValues, statisticParameter.getPercentileFraction());
+
+            case IQR:
+                return getPercentile(sortedValues, 0.75) - getPercentile(sortedValues, 0.25);
+
+            case MODE_SMALLEST:
+                return determineMode(sortedValues, false);
+
+            case MODE_LARGEST:
+                return determineMode(sortedValues, true);
+
             case COUNT_MIN:
-                double value = this.get(StatisticParameter.MIN);
-                return countValue(value);
+                return sortedValues.length == 0 ? 0 : countValue(sortedValues, sortedValues[0]);
 
             case COUNT_MAX:
-                value = this.get(StatisticParameter.MAX);
-                return countValue(value);
+                return sortedValues.length == 0 ? 0 : countValue(sortedValues, sortedValues[sortedValues.length - 1]);
 
             case COUNT_MODE:
-                value = this.get(StatisticParameter.MODE_SMALLEST);
-                return countValue(value);
+                return sortedValues.length == 0 ? 0 : countValue(sortedValues, determineMode(sortedValues, false));
 
             default:
-                return 0;
+                throw new IllegalArgumentException(statisticParameter + " is not rank based.");
         }
     }
 
-    private double countValue(double value) {
-        int count = 0;
-        for (N n : this) {
-            if (n.doubleValue() == value) {
-                ++count;
+    /**
+     * @param fraction
+     *      between 0 and 1
+     * @return
+     *      the percentile of this fraction of all values except NaNs, interpolated linearly between the two closest
+     *      ranks (so the percentile of 0.5 is the median) or NaN if there are no such values
+     */
+    public double getPercentile(double fraction) {
+        return getPercentile(getSortedValues(), fraction);
+    }
+
+    private static double getPercentile(double[] values, double fraction) {
+        if (values.length == 0) {
+            return Double.NaN;
+        }
+        double position = fraction * (values.length - 1);
+        int lowerRank = (int) Math.floor(position);
+        if (lowerRank == position) {
+            return values[lowerRank];
+        }
+        return values[lowerRank] + (position - lowerRank) * (values[lowerRank + 1] - values[lowerRank]);
+    }
+
+    /**
+     * @return
+     *      all values except NaNs in ascending order -- the array is cached and shared, so it must not be changed
+     */
+    public double[] getSortedValues() {
+        SortedValues currentSortedValues = sortedValues;
+        if (currentSortedValues == null || currentSortedValues.modCount != modCount) {
+            int currentModCount = modCount;
+            double[] values = new double[this.size()];
+            int numberOfValues = 0;
+            for (N n : this) {
+                if (n instanceof Double && Double.isNaN((Double) n)) {
+                    continue;
+                }
+                //-0.0 and 0.0 are the same value
+                values[numberOfValues++] = n.doubleValue() + 0.0;
             }
+            values = Arrays.copyOf(values, numberOfValues);
+            Arrays.sort(values);
+            currentSortedValues = new SortedValues(values, currentModCount);
+            sortedValues = currentSortedValues;
         }
-        return count;
+        return currentSortedValues.values;
     }
 
-    private double determineMode(boolean falseSmallestModeTrueLargestMode) {
-        LinkedList<N> allEntriesSorted;
-        allEntriesSorted = new LinkedList<>(this);
-        //filter out NaNs
-        while (allEntriesSorted.contains(Double.NaN)) {
-            allEntriesSorted.remove(Double.NaN);
+    private static double countValue(double[] values, double value) {
+        int index = Arrays.binarySearch(values, value + 0.0);
+        if (index < 0) {
+            return 0;
         }
-        if (allEntriesSorted.isEmpty()) {
+        int first = index;
+        while (first > 0 && values[first - 1] == values[index]) {
+            --first;
+        }
+        int last = index;
+        while (last < values.length - 1 && values[last + 1] == values[index]) {
+            ++last;
+        }
+        return last - first + 1;
+    }
+
+    private static double determineMode(double[] values, boolean falseSmallestModeTrueLargestMode) {
+        if (values.length == 0) {
             return Double.NaN;
         }
-        Collections.sort(allEntriesSorted);
-        double mode = allEntriesSorted.getFirst().doubleValue();
+        double mode = values[0];
         int maxOccurrence = 0;
         int currentOccurrence = 1;
-        N prev = null;
-        for (N n : allEntriesSorted) {
-            if (prev != null) {
-                if (prev.equals(n)) {
-                    ++currentOccurrence;
-                    if (currentOccurrence >= maxOccurrence + (falseSmallestModeTrueLargestMode ? 0 : 1)) {
-                        maxOccurrence = currentOccurrence;
-                        mode = n.doubleValue();
-                    }
-                }
-                else {
-                    currentOccurrence = 1;
+        for (int i = 1; i < values.length; i++) {
+            if (values[i - 1] == values[i]) {
+                ++currentOccurrence;
+                if (currentOccurrence >= maxOccurrence + (falseSmallestModeTrueLargestMode ? 0 : 1)) {
+                    maxOccurrence = currentOccurrence;
+                    mode = values[i];
                 }
             }
-            prev = n;
+            else {
+                currentOccurrence = 1;
+            }
         }
         return mode;
     }
+
+    private static class SortedValues {
+        private double[] values;
+        /**
+         * {@link ArrayList#modCount} of the distribution when these values were sorted
+         */
+        private int modCount;
+
+        private SortedValues(double[] values, int modCount) {
+            this.values = values;
+            this.modCount = modCount;
+        }
+    }
 }
@@ -7,9 +7,9 @@ import java.util.function.Function;
 public class NumberDistributionProperty<N extends Number & Comparable> extends Property<NumberDistribution<N>> {
 
 
-    private NumberDistributionProperty(String propertyName,
+    private NumberDistributionProperty(String propertyName, int version,
                                        Function<Graph, NumberDistribution<N>> computingFunctionProperty) {
-        super(propertyName, computingFunctionProperty);
+        super(propertyName, version, computingFunctionProperty);
     }
 
     /**
@@ -22,10 +22,25 @@ public class NumberDistributionProperty<N extends Number & Comparable> extends P
      */
     public static <N extends Number & Comparable> NumberDistributionProperty<N> createNewProperty(String propertyName
             , Function<Graph, NumberDistribution<N>> computingFunctionProperty) {
+        return createNewProperty(propertyName, 1, computingFunctionProperty);
+    }
+
+    /**
+     * Find existing properties via {@link PropertyManager#getProperty(String)}!
+     *
+     * @param propertyName
+     * @param version
+     *      see {@link Property#getVersion()}
+     * @param computingFunctionProperty
+     * @param <N>
+     * @return
+     */
+    public static <N extends Number & Comparable> NumberDistributionProperty<N> createNewProperty(String propertyName
+            , int version, Function<Graph, NumberDistribution<N>> computingFunctionProperty) {
         if (PropertyManager.getProperty(propertyName) != null) {
             return null;
         }
-        NumberDistributionProperty<N> property = new NumberDistributionProperty<N>(propertyName,
+        NumberDistributionProperty<N> property = new NumberDistributionProperty<N>(propertyName, version,
                 computingFunctionProperty);
         PropertyManager.addProperty(property);
         return property;
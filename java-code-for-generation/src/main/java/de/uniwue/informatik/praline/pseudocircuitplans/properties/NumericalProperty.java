@@ -7,8 +7,8 @@ import java.util.function.Function;
 public class NumericalProperty<N extends Number & Comparable> extends Property<N> {
 
 
-    private NumericalProperty(String propertyName, Function<Graph, N> computingFunctionProperty) {
-        super(propertyName, computingFunctionProperty);
+    private NumericalProperty(String propertyName, int version, Function<Graph, N> computingFunctionProperty) {
+        super(propertyName, version, computingFunctionProperty);
     }
 
     /**
@@ -22,10 +22,27 @@ public class NumericalProperty<N extends Number & Comparable> extends Property<N
     public static <N extends Number & Comparable> NumericalProperty<N> createNewProperty(String propertyName,
                                                                                          Function<Graph, N>
                                                                                          computingFunctionProperty) {
+        return createNewProperty(propertyName, 1, computingFunctionProperty);
+    }
+
+    /**
+     * Find existing properties via {@link PropertyManager#getProperty(String)}!
+     *
+     * @param propertyName
+     * @param version
+     *      see {@link Property#getVersion()}
+     * @param computingFunctionProperty
+     * @param <N>
+     * @return
+     */
+    public static <N extends Number & Comparable> NumericalProperty<N> createNewProperty(String propertyName,
+                                                                                         int version,
+                                                                                         Function<Graph, N>
+                                                                                         computingFunctionProperty) {
         if (PropertyManager.getProperty(propertyName) != null) {
             return null;
         }
-        NumericalProperty<N> property = new NumericalProperty<>(propertyName, computingFunctionProperty);
+        NumericalProperty<N> property = new NumericalProperty<>(propertyName, version, computingFunctionProperty);
         PropertyManager.addProperty(property);
         return property;
     }
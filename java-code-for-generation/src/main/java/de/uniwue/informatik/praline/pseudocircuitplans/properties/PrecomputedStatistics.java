@@ -0,0 +1,79 @@
+package de.uniwue.informatik.praline.pseudocircuitplans.properties;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * All statistics of a data set computed once ({@link StatisticsMatrix}) and then only looked up, for statistics that
+ * are asked for again and again (e.g. for every generated plan) of a data set that does not change any more.
+ * <br/>
+ * It has values only of the numerical and number distribution properties that have values in the data set when it is
+ * created.
+ */
+public class PrecomputedStatistics implements DataSetStatistics {
+
+    private int numberOfPlans;
+
+    private Map<Property, StatisticsMatrix> statistics;
+
+    private PrecomputedStatistics(int numberOfPlans, Map<Property, StatisticsMatrix> statistics) {
+        this.numberOfPlans = numberOfPlans;
+        this.statistics = statistics;
+    }
+
+    /**
+     * @param dataSet
+     *      must not change afterwards
+     * @param properties
+     * @param numberOfThreads
+     * @return
+     * @throws IOException
+     *      if a statistic cannot be computed (e.g. because the values are spilled to a file that cannot be read)
+     */
+    public static PrecomputedStatistics compute(DataSetStatistics dataSet, Collection<Property> properties,
+                                                int numberOfThreads) throws IOException {
+        List<Property> propertiesWithStatistics = new ArrayList<>();
+        for (Property property : properties) {
+            if ((property instanceof NumericalProperty || property instanceof NumberDistributionProperty) &&
+                    dataSet.hasValuesOf(property)) {
+                propertiesWithStatistics.add(property);
+            }
+        }
+        return new PrecomputedStatistics(dataSet.getNumberOfPlans(),
+                StatisticsMatrix.computeAll(dataSet, propertiesWithStatistics, numberOfThreads));
+    }
+
+    @Override
+    public int getNumberOfPlans() {
+        return numberOfPlans;
+    }
+
+    @Override
+    public boolean hasValuesOf(Property property) {
+        return statistics.containsKey(property);
+    }
+
+    @Override
+    public <N extends Number & Comparable> double get(NumericalProperty<N> property,
+                                                      StatisticParameter statisticParameter) {
+        return getStatisticsMatrix(property).get(statisticParameter);
+    }
+
+    @Override
+    public double get(NumberDistributionProperty<?> property,
+                      StatisticParameter useThisParameterForInternalDataOfEachGraph,
+                      StatisticParameter statisticParameter) {
+        return getStatisticsMatrix(property).get(useThisParameterForInternalDataOfEachGraph, statisticParameter);
+    }
+
+    private StatisticsMatrix getStatisticsMatrix(Property property) {
+        StatisticsMatrix matrix = statistics.get(property);
+        if (matrix == null) {
+            throw new IllegalArgumentException("There are no statistics of " + property.getPropertyName() + ".");
+        }
+        return matrix;
+    }
+}
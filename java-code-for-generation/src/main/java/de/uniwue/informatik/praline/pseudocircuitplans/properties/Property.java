@@ -30,8 +30,19 @@ public abstract class Property<E> {
 
     private Function<Graph, E> computingFunctionProperty;
 
+    /**
+     * version of the definition of this property -- increase it whenever {@link Property#computingFunctionProperty}
+     * is changed, so that no values computed by the old definition are used any more (see {@link PropertyCache})
+     */
+    private int version;
+
     protected Property(String propertyName, Function<Graph, E> computingFunctionProperty) {
+        this(propertyName, 1, computingFunctionProperty);
+    }
+
+    protected Property(String propertyName, int version, Function<Graph, E> computingFunctionProperty) {
         this.propertyName = propertyName;
+        this.version = version;
         this.computingFunctionProperty = computingFunctionProperty;
     }
 
@@ -39,6 +50,10 @@ public abstract class Property<E> {
         return propertyName;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
     public Function<Graph, E> getComputingFunctionProperty() {
         return computingFunctionProperty;
     }
@@ -0,0 +1,207 @@
+package de.uniwue.informatik.praline.pseudocircuitplans.properties;
+
+import de.uniwue.informatik.praline.pseudocircuitplans.generatingnewplans.IOUtils;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Persistent cache of computed {@link PropertyValue}s on the disk.
+ * The values of a plan are found by the hash of the content of the plan (e.g. its json file), so they are independent
+ * of the file name. A cached value is only used if it was computed by the current version of its property (see
+ * {@link Property#getVersion()}).
+ * <br/>
+ * There is one binary file per plan in the cache directory. It contains for each property its name, its version and
+ * its value. Only numbers ({@link Integer}, {@link Long}, {@link Float}, {@link Double}) and
+ * {@link NumberDistribution}s of them are cached.
+ * Different plans may be loaded and stored in parallel.
+ */
+public class PropertyCache {
+
+    public static final String DEFAULT_DIRECTORY = "data" + File.separator + "property-cache";
+
+    private static final String FILE_ENDING = ".props";
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final byte TAG_INTEGER = 'I';
+
+    private static final byte TAG_LONG = 'L';
+
+    private static final byte TAG_FLOAT = 'F';
+
+    private static final byte TAG_DOUBLE = 'D';
+
+    private static final byte TAG_DISTRIBUTION = 'N';
+
+    private File directory;
+
+    public PropertyCache(String directoryPath) {
+        this.directory = new File(directoryPath);
+    }
+
+    /**
+     * @param contentHash
+     *      hash of the content of a plan
+     * @param properties
+     * @return
+     *      sheet without graph containing the cached values of those properties that are in the cache in their current
+     *      version (maybe none)
+     * @throws IOException
+     */
+    public PropertySheet load(String contentHash, Collection<Property> properties) throws IOException {
+        PropertySheet propertySheet = new PropertySheet(null);
+        Map<String, CachedValue> cachedValues = readFile(contentHash);
+        for (Property property : properties) {
+            CachedValue cachedValue = cachedValues.get(property.getPropertyName());
+            if (cachedValue != null && cachedValue.version == property.getVersion()) {
+                propertySheet.addValue(PropertyValue.createPrecomputedValue(property, cachedValue.value));
+            }
+        }
+        return propertySheet;
+    }
+
+    /**
+     * Saves all values of this sheet in the cache. Cached values of other properties of this plan are kept.
+     *
+     * @param contentHash
+     *      hash of the content of the plan of this sheet
+     * @param propertySheet
+     * @throws IOException
+     */
+    public void store(String contentHash, PropertySheet propertySheet) throws IOException {
+        Map<String, CachedValue> cachedValues = readFile(contentHash);
+        for (PropertyValue propertyValue : propertySheet.getAllValues()) {
+            Property property = propertyValue.getProperty();
+            if (isCacheable(propertyValue.getValue())) {
+                cachedValues.put(property.getPropertyName(),
+                        new CachedValue(property.getVersion(), propertyValue.getValue()));
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream outputStream = new DataOutputStream(bytes)) {
+            outputStream.writeInt(FORMAT_VERSION);
+            outputStream.writeInt(cachedValues.size());
+            for (Map.Entry<String, CachedValue> entry : cachedValues.entrySet()) {
+                outputStream.writeUTF(entry.getKey());
+                outputStream.writeInt(entry.getValue().version);
+                writeValue(outputStream, entry.getValue().value);
+            }
+        }
+        directory.mkdirs();
+        IOUtils.saveBytes(bytes.toByteArray(), getFile(contentHash).getPath());
+    }
+
+    private File getFile(String contentHash) {
+        return new File(directory, contentHash + FILE_ENDING);
+    }
+
+    /**
+     * @return
+     *      empty map if there is no (valid) file for this plan
+     */
+    private Map<String, CachedValue> readFile(String contentHash) throws IOException {
+        Map<String, CachedValue> cachedValues = new LinkedHashMap<>();
+        File file = getFile(contentHash);
+        if (!file.exists()) {
+            return cachedValues;
+        }
+        try (DataInputStream inputStream =
+                     new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (inputStream.readInt() != FORMAT_VERSION) {
+                return cachedValues;
+            }
+            int numberOfValues = inputStream.readInt();
+            for (int i = 0; i < numberOfValues; i++) {
+                String propertyName = inputStream.readUTF();
+                int version = inputStream.readInt();
+                cachedValues.put(propertyName, new CachedValue(version, readValue(inputStream)));
+            }
+        }
+        catch (EOFException | StreamCorruptedException | UTFDataFormatException e) {
+            //broken file -> treat it like a missing one, it is overwritten by the next store
+            cachedValues.clear();
+        }
+        return cachedValues;
+    }
+
+    private static boolean isCacheable(Object value) {
+        if (value instanceof NumberDistribution) {
+            for (Object number : (NumberDistribution<?>) value) {
+                if (!isCacheableNumber(number)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return isCacheableNumber(value);
+    }
+
+    private static boolean isCacheableNumber(Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Float || value instanceof Double;
+    }
+
+    private static void writeValue(DataOutputStream outputStream, Object value) throws IOException {
+        if (value instanceof NumberDistribution) {
+            NumberDistribution<?> distribution = (NumberDistribution<?>) value;
+            outputStream.writeByte(TAG_DISTRIBUTION);
+            outputStream.writeInt(distribution.size());
+            for (Number number : distribution) {
+                writeValue(outputStream, number);
+            }
+        }
+        else if (value instanceof Integer) {
+            outputStream.writeByte(TAG_INTEGER);
+            outputStream.writeInt((Integer) value);
+        }
+        else if (value instanceof Long) {
+            outputStream.writeByte(TAG_LONG);
+            outputStream.writeLong((Long) value);
+        }
+        else if (value instanceof Float) {
+            outputStream.writeByte(TAG_FLOAT);
+            outputStream.writeFloat((Float) value);
+        }
+        else {
+            outputStream.writeByte(TAG_DOUBLE);
+            outputStream.writeDouble((Double) value);
+        }
+    }
+
+    private static Object readValue(DataInputStream inputStream) throws IOException {
+        byte tag = inputStream.readByte();
+        switch (tag) {
+            case TAG_DISTRIBUTION:
+                int size = inputStream.readInt();
+                NumberDistribution distribution = new NumberDistribution<>(size);
+                for (int i = 0; i < size; i++) {
+                    distribution.add(readValue(inputStream));
+                }
+                return distribution;
+            case TAG_INTEGER:
+                return inputStream.readInt();
+            case TAG_LONG:
+                return inputStream.readLong();
+            case TAG_FLOAT:
+                return inputStream.readFloat();
+            case TAG_DOUBLE:
+                return inputStream.readDouble();
+            default:
+                throw new StreamCorruptedException("Unknown value " + tag + " in property cache.");
+        }
+    }
+
+    private static class CachedValue {
+        private int version;
+        private Object value;
+
+        private CachedValue(int version, Object value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+}
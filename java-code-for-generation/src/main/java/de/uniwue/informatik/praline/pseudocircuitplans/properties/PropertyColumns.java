@@ -0,0 +1,84 @@
+package de.uniwue.informatik.praline.pseudocircuitplans.properties;
+
+/**
+ * The values of one property over all plans of a data set as sorted primitive columns. They are built once per
+ * property and data set (see {@link DataSetColumns#getColumns(Property)}) and shared by {@link StatisticsMatrix},
+ * {@link BootstrapConfidenceIntervals} and {@link DistributionComparison}.
+ * <br/>
+ * A {@link NumericalProperty} has one column with the values of all plans, a {@link NumberDistributionProperty} has a
+ * column for each inner {@link StatisticParameter} with the value of this parameter for the distribution of each plan.
+ * A column keeps only the values except NaNs in ascending order; the NaNs are only counted.
+ */
+public class PropertyColumns {
+
+    private Property property;
+
+    private int numberOfPlans;
+
+    /**
+     * [column][rank] -- for a number distribution property the column of an inner statistic parameter is at its
+     * ordinal
+     */
+    private double[][] sortedValues;
+
+    /**
+     * @param property
+     * @param values
+     *      [column][plan] -- for a numerical property only the column 0, for a number distribution property a column
+     *      for each inner statistic parameter at its ordinal; they are not kept
+     */
+    PropertyColumns(Property property, double[][] values) {
+        this.property = property;
+        this.numberOfPlans = values[0].length;
+        this.sortedValues = new double[values.length][];
+        for (int column = 0; column < values.length; column++) {
+            this.sortedValues[column] = StreamedStatistics.sort(values[column], values[column].length);
+        }
+    }
+
+    public Property getProperty() {
+        return property;
+    }
+
+    public int getNumberOfColumns() {
+        return sortedValues.length;
+    }
+
+    /**
+     * @param column
+     * @return
+     *      all values of this column except NaNs in ascending order -- the array is shared, so it must not be changed
+     */
+    double[] getSortedValues(int column) {
+        return sortedValues[column];
+    }
+
+    /**
+     * @param column
+     * @return
+     *      [statistic parameter] the value of every statistic parameter (at its ordinal) over this column, like by
+     *      {@link NumberDistribution#get(StatisticParameter)} (up to rounding, since the values are added in ascending
+     *      order)
+     */
+    double[] computeStatistics(int column) {
+        double[] values = sortedValues[column];
+        StreamedStatistics statistics = new StreamedStatistics();
+        for (int i = 0; i < numberOfPlans - values.length; i++) {
+            statistics.add(Double.NaN);
+        }
+        for (double value : values) {
+            statistics.add(value);
+        }
+        for (double value : values) {
+            statistics.addDeviation(value);
+        }
+        StatisticParameter[] statisticParameters = StatisticParameter.values();
+        double[] statisticValues = new double[statisticParameters.length];
+        for (StatisticParameter statisticParameter : statisticParameters) {
+            statisticValues[statisticParameter.ordinal()] = statisticParameter.isRankBased() ?
+                    NumberDistribution.getRankStatistic(values, statisticParameter) :
+                    statistics.get(statisticParameter);
+        }
+        return statisticValues;
+    }
+}
@@ -2,6 +2,7 @@ package de.uniwue.informatik.praline.pseudocircuitplans.properties;
 
 import de.uniwue.informatik.praline.datastructure.graphs.Graph;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashMap;
@@ -13,6 +14,13 @@ public class PropertySheet {
 
     private Graph graph;
 
+    /**
+     * lightweight identifier of the plan of this sheet, kept when the graph is released
+     */
+    private String planId;
+
+    private GraphLoader graphLoader;
+
     private LinkedHashMap<String, PropertyValue> allValues = new LinkedHashMap<>();
 
     public PropertySheet(Graph graph) {
@@ -53,6 +61,10 @@ public class PropertySheet {
         allValues.clear();
     }
 
+    public boolean hasValue(Property<?> property) {
+        return allValues.containsKey(property.getPropertyName());
+    }
+
     public <E> E getPropertyValue(String propertyName) {
         return (E) allValues.get(propertyName).getValue();
     }
@@ -66,7 +78,61 @@ public class PropertySheet {
         return (NumberDistribution<N>) allValues.get(property.getPropertyName()).getValue();
     }
 
+    /**
+     * @return
+     *      the graph of this sheet or null if the values were computed without reading the graph (see
+     *      {@link QuickScan})
+     */
     public Graph getGraph() {
         return graph;
     }
+
+    /**
+     * Remembers where the plan of this sheet comes from, s.t. the graph can be released after all values are computed
+     * and read again later (see {@link PropertySheet#loadGraph()}).
+     *
+     * @param planId
+     * @param graphLoader
+     */
+    public void setOrigin(String planId, GraphLoader graphLoader) {
+        this.planId = planId;
+        this.graphLoader = graphLoader;
+    }
+
+    /**
+     * @return
+     *      identifier of the plan of this sheet or null if it is unknown
+     */
+    public String getPlanId() {
+        return planId;
+    }
+
+    /**
+     * Drops the reference to the graph of this sheet, s.t. only the (small) values are kept in memory. The graph can
+     * be read again via {@link PropertySheet#loadGraph()}.
+     */
+    public void releaseGraph() {
+        this.graph = null;
+    }
+
+    /**
+     * @return
+     *      the graph of this sheet if it is still held or otherwise a graph freshly read by the {@link GraphLoader} of
+     *      this sheet (which is not held by this sheet)
+     * @throws IOException
+     *      if the graph was released and cannot be read again
+     */
+    public Graph loadGraph() throws IOException {
+        if (graph != null) {
+            return graph;
+        }
+        if (graphLoader == null) {
+            throw new IOException("The graph of " + (planId == null ? "this sheet" : planId) + " is not available.");
+        }
+        return graphLoader.load();
+    }
+
+    public interface GraphLoader {
+        Graph load() throws IOException;
+    }
 }
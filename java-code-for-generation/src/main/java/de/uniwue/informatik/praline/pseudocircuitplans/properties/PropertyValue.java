@@ -19,6 +19,23 @@ public class PropertyValue<E> {
         this.value = property.getComputingFunctionProperty().apply(graph);
     }
 
+    private PropertyValue(Property<E> property) {
+        this.property = property;
+    }
+
+    /**
+     * @param property
+     * @param value
+     *      value of this property that was computed without the {@link Graph} object (e.g. by {@link QuickScan})
+     * @param <E>
+     * @return
+     */
+    public static <E> PropertyValue<E> createPrecomputedValue(Property<E> property, E value) {
+        PropertyValue<E> propertyValue = new PropertyValue<>(property);
+        propertyValue.value = value;
+        return propertyValue;
+    }
+
     public Property<E> getProperty() {
         return property;
     }
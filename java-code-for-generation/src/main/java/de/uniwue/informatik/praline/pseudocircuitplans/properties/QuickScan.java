@@ -0,0 +1,488 @@
+package de.uniwue.informatik.praline.pseudocircuitplans.properties;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import de.uniwue.informatik.praline.datastructure.graphs.Graph;
+import de.uniwue.informatik.praline.pseudocircuitplans.generatingnewplans.PlanSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * Computes the properties that only need counts in a single streaming pass over the json of a plan without creating
+ * any praline objects, i.e., "vertexCount", "edgeCount", "portCount", "touchingPairCount", "portPairingCount",
+ * "hyperedgesOfDegree*", "labels/*" and "mainLabelTextLength/*" (see {@link QuickScan#isSupported(Property)}).
+ * <br/>
+ * The scan relies on the json structure written by praline. If it finds something it cannot interpret unambiguously
+ * or if a requested property is not supported (e.g. all structural properties), the plan is read completely and the
+ * properties are computed in the usual way. Use {@link QuickScan#agreesWithFullAnalysis(PlanSource.Entry)} to check
+ * on a sample plan that both ways compute the same values.
+ */
+public class QuickScan {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final String HYPEREDGES_OF_DEGREE = "hyperedgesOfDegree";
+
+    private static final Set<String> SUPPORTED_PROPERTY_NAMES = new LinkedHashSet<>(Arrays.asList(
+            "vertexCount", "edgeCount", "portCount", "touchingPairCount", "portPairingCount",
+            "labels/vertex", "labels/edge", "labels/vertexGroup", "labels/edgeBundle", "labels/port",
+            "mainLabelTextLength/vertex", "mainLabelTextLength/edge", "mainLabelTextLength/vertexGroup",
+            "mainLabelTextLength/edgeBundle", "mainLabelTextLength/port"));
+
+    public static boolean isSupported(Property<?> property) {
+        String propertyName = property.getPropertyName();
+        return SUPPORTED_PROPERTY_NAMES.contains(propertyName) || propertyName.startsWith(HYPEREDGES_OF_DEGREE);
+    }
+
+    /**
+     * @return
+     *      all properties of {@link PropertyManager#getAllProperties()} that are supported
+     */
+    public static List<Property> getSupportedProperties() {
+        List<Property> supportedProperties = new ArrayList<>();
+        for (Property property : PropertyManager.getAllProperties()) {
+            if (isSupported(property)) {
+                supportedProperties.add(property);
+            }
+        }
+        return supportedProperties;
+    }
+
+    public static boolean isAnySupported(Collection<Property> properties) {
+        for (Property property : properties) {
+            if (isSupported(property)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static boolean areSupported(Collection<Property> properties) {
+        for (Property property : properties) {
+            if (!isSupported(property)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param plan
+     * @param properties
+     * @return
+     *      sheet with the values of all properties -- if they were computed by the quick scan, the sheet has no
+     *      graph ({@link PropertySheet#getGraph()} returns null)
+     * @throws IOException
+     */
+    public static PropertySheet analyze(PlanSource.Entry plan, Collection<Property> properties) throws IOException {
+        if (areSupported(properties)) {
+            PropertySheet propertySheet = scan(plan, properties);
+            if (propertySheet != null) {
+                return propertySheet;
+            }
+        }
+        return analyzeFully(plan, properties);
+    }
+
+    /**
+     * @param plan
+     * @return
+     *      true if the quick scan can interpret this plan and computes the same values as the usual way for all
+     *      supported properties
+     * @throws IOException
+     */
+    public static boolean agreesWithFullAnalysis(PlanSource.Entry plan) throws IOException {
+        List<Property> supportedProperties = getSupportedProperties();
+        PropertySheet quickSheet = scan(plan, supportedProperties);
+        if (quickSheet == null) {
+            return false;
+        }
+        PropertySheet fullSheet = analyzeFully(plan, supportedProperties);
+        for (Property property : supportedProperties) {
+            Object quickValue = quickSheet.getPropertyValue(property);
+            Object fullValue = fullSheet.getPropertyValue(property);
+            if (quickValue instanceof NumberDistribution && fullValue instanceof NumberDistribution) {
+                //the order of the entries may differ, e.g., for nested vertex groups
+                quickValue = sorted((NumberDistribution<?>) quickValue);
+                fullValue = sorted((NumberDistribution<?>) fullValue);
+            }
+            if (!Objects.equals(quickValue, fullValue)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<Double> sorted(NumberDistribution<?> distribution) {
+        List<Double> sortedValues = new ArrayList<>(distribution.size());
+        for (Number value : distribution) {
+            sortedValues.add(value.doubleValue());
+        }
+        Collections.sort(sortedValues);
+        return sortedValues;
+    }
+
+    private static PropertySheet analyzeFully(PlanSource.Entry plan, Collection<Property> properties)
+            throws IOException {
+        Graph graph = plan.readGraph();
+        PropertySheet propertySheet = new PropertySheet(graph);
+        for (Property property : properties) {
+            propertySheet.addValue(new PropertyValue<>(property, graph));
+        }
+        return propertySheet;
+    }
+
+    /**
+     * @return
+     *      null if the json could not be interpreted
+     */
+    private static PropertySheet scan(PlanSource.Entry plan, Collection<Property> properties) throws IOException {
+        Counts counts = new Counts();
+        try (InputStream inputStream = plan.openStream(); JsonParser parser = JSON_FACTORY.createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            scanGraph(parser, counts);
+        }
+        catch (UninterpretableJsonException e) {
+            return null;
+        }
+
+        PropertySheet propertySheet = new PropertySheet(null);
+        for (Property property : properties) {
+            Object value = counts.getValue(property.getPropertyName());
+            propertySheet.addValue(PropertyValue.createPrecomputedValue(property, value));
+        }
+        return propertySheet;
+    }
+
+    private static void scanGraph(JsonParser parser, Counts counts) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.START_ARRAY && fieldName.equals("vertices")) {
+                scanArrayOfObjects(parser, () -> scanVertex(parser, counts));
+            }
+            else if (value == JsonToken.START_ARRAY && fieldName.equals("edges")) {
+                scanArrayOfObjects(parser, () -> scanEdge(parser, counts));
+            }
+            else if (value == JsonToken.START_ARRAY && fieldName.equals("vertexGroups")) {
+                scanArrayOfObjects(parser, () -> scanVertexGroup(parser, counts, true));
+            }
+            else if (value == JsonToken.START_ARRAY && fieldName.equals("edgeBundles")) {
+                scanArrayOfObjects(parser, () -> scanEdgeBundle(parser, counts));
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static void scanVertex(JsonParser parser, Counts counts) throws IOException {
+        List<LabelInfo> portLabels = new ArrayList<>();
+        LabelInfo labelInfo = LabelInfo.NO_LABELS;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.START_ARRAY && fieldName.equals("portCompositions")) {
+                scanArrayOfObjects(parser, () -> scanPortComposition(parser, portLabels));
+            }
+            else if (value == JsonToken.START_OBJECT && fieldName.equals("labelManager")) {
+                labelInfo = scanLabelManager(parser);
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+        ++counts.vertexCount;
+        counts.add("labels/vertex", labelInfo.numberOfLabels);
+        counts.add("mainLabelTextLength/vertex", labelInfo.mainLabelTextLength);
+        for (LabelInfo portLabel : portLabels) {
+            ++counts.portCount;
+            //like the property "labels/port", which counts the labels of the vertex for each port
+            counts.add("labels/port", labelInfo.numberOfLabels);
+            counts.add("mainLabelTextLength/port", portLabel.mainLabelTextLength);
+        }
+    }
+
+    /**
+     * a port composition with the field "portCompositions" is a port group, otherwise it is a port
+     */
+    private static void scanPortComposition(JsonParser parser, List<LabelInfo> portLabels) throws IOException {
+        boolean isPortGroup = false;
+        LabelInfo labelInfo = LabelInfo.NO_LABELS;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (fieldName.equals("portCompositions")) {
+                isPortGroup = true;
+                if (value == JsonToken.START_ARRAY) {
+                    scanArrayOfObjects(parser, () -> scanPortComposition(parser, portLabels));
+                }
+                else if (value != JsonToken.VALUE_NULL) {
+                    throw new UninterpretableJsonException();
+                }
+            }
+            else if (value == JsonToken.START_OBJECT && fieldName.equals("labelManager")) {
+                labelInfo = scanLabelManager(parser);
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+        if (!isPortGroup) {
+            portLabels.add(labelInfo);
+        }
+    }
+
+    private static void scanEdge(JsonParser parser, Counts counts) throws IOException {
+        int degree = 0;
+        LabelInfo labelInfo = LabelInfo.NO_LABELS;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.START_ARRAY && fieldName.equals("ports")) {
+                degree = countElements(parser);
+            }
+            else if (value == JsonToken.START_OBJECT && fieldName.equals("labelManager")) {
+                labelInfo = scanLabelManager(parser);
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+        ++counts.edgeCount;
+        counts.addHyperedge(degree);
+        counts.add("labels/edge", labelInfo.numberOfLabels);
+        counts.add("mainLabelTextLength/edge", labelInfo.mainLabelTextLength);
+    }
+
+    private static void scanVertexGroup(JsonParser parser, Counts counts, boolean topLevel) throws IOException {
+        LabelInfo labelInfo = LabelInfo.NO_LABELS;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.START_ARRAY && fieldName.equals("touchingPairs")) {
+                int touchingPairs = countElements(parser);
+                if (topLevel) {
+                    counts.touchingPairCount += touchingPairs;
+                }
+            }
+            else if (value == JsonToken.START_ARRAY && fieldName.equals("portPairings")) {
+                int portPairings = countElements(parser);
+                if (topLevel) {
+                    counts.portPairingCount += portPairings;
+                }
+            }
+            else if (value == JsonToken.START_ARRAY && fieldName.equals("containedVertexGroups")) {
+                scanArrayOfObjects(parser, () -> scanVertexGroup(parser, counts, false));
+            }
+            else if (value == JsonToken.START_OBJECT && fieldName.equals("labelManager")) {
+                labelInfo = scanLabelManager(parser);
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+        counts.add("labels/vertexGroup", labelInfo.numberOfLabels);
+        counts.add("mainLabelTextLength/vertexGroup", labelInfo.mainLabelTextLength);
+    }
+
+    private static void scanEdgeBundle(JsonParser parser, Counts counts) throws IOException {
+        LabelInfo labelInfo = LabelInfo.NO_LABELS;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.START_ARRAY && fieldName.equals("containedEdgeBundles")) {
+                scanArrayOfObjects(parser, () -> scanEdgeBundle(parser, counts));
+            }
+            else if (value == JsonToken.START_OBJECT && fieldName.equals("labelManager")) {
+                labelInfo = scanLabelManager(parser);
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+        counts.add("labels/edgeBundle", labelInfo.numberOfLabels);
+        counts.add("mainLabelTextLength/edgeBundle", labelInfo.mainLabelTextLength);
+    }
+
+    /**
+     * The main label is either written as object or as reference to the id of one of the labels.
+     */
+    private static LabelInfo scanLabelManager(JsonParser parser) throws IOException {
+        Map<String, Integer> textLengthById = new LinkedHashMap<>();
+        List<Integer> textLengths = new ArrayList<>();
+        Integer mainLabelTextLength = null;
+        String mainLabelReference = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.START_ARRAY && fieldName.equals("labels")) {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (parser.currentToken() != JsonToken.START_OBJECT) {
+                        throw new UninterpretableJsonException();
+                    }
+                    String[] id = new String[1];
+                    int textLength = scanLabel(parser, id);
+                    textLengths.add(textLength);
+                    if (id[0] != null) {
+                        textLengthById.put(id[0], textLength);
+                    }
+                }
+            }
+            else if (fieldName.equals("mainLabel")) {
+                if (value == JsonToken.START_OBJECT) {
+                    mainLabelTextLength = scanLabel(parser, new String[1]);
+                }
+                else if (value.isScalarValue() && value != JsonToken.VALUE_NULL) {
+                    mainLabelReference = parser.getText();
+                }
+                else {
+                    parser.skipChildren();
+                }
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+        if (mainLabelTextLength == null && mainLabelReference != null) {
+            mainLabelTextLength = textLengthById.get(mainLabelReference);
+            if (mainLabelTextLength == null) {
+                throw new UninterpretableJsonException();
+            }
+        }
+        if (mainLabelTextLength == null) {
+            if (!textLengths.isEmpty()) {
+                //no main label but labels -- we do not know which one praline takes
+                throw new UninterpretableJsonException();
+            }
+            mainLabelTextLength = 0;
+        }
+        return new LabelInfo(textLengths.size(), mainLabelTextLength);
+    }
+
+    /**
+     * @param id
+     *      the id of the label is written to the first entry if it has one
+     * @return
+     *      length of the input text or 0 if it is no text label
+     */
+    private static int scanLabel(JsonParser parser, String[] id) throws IOException {
+        int textLength = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (fieldName.equals("inputText") && value == JsonToken.VALUE_STRING) {
+                textLength = parser.getText().length();
+            }
+            else if (fieldName.equals("@id") && value.isScalarValue()) {
+                id[0] = parser.getText();
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+        return textLength;
+    }
+
+    /**
+     * the parser must be at the start of the array, afterwards it is at its end
+     */
+    private static int countElements(JsonParser parser) throws IOException {
+        int count = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            parser.skipChildren();
+            ++count;
+        }
+        return count;
+    }
+
+    /**
+     * the parser must be at the start of the array, afterwards it is at its end
+     */
+    private static void scanArrayOfObjects(JsonParser parser, ObjectScanner objectScanner) throws IOException {
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                //e.g. a reference to an object written before
+                throw new UninterpretableJsonException();
+            }
+            objectScanner.scanObject();
+        }
+    }
+
+    private interface ObjectScanner {
+        void scanObject() throws IOException;
+    }
+
+    private static class LabelInfo {
+        private static final LabelInfo NO_LABELS = new LabelInfo(0, 0);
+
+        private int numberOfLabels;
+        private int mainLabelTextLength;
+
+        private LabelInfo(int numberOfLabels, int mainLabelTextLength) {
+            this.numberOfLabels = numberOfLabels;
+            this.mainLabelTextLength = mainLabelTextLength;
+        }
+    }
+
+    private static class Counts {
+        private int vertexCount;
+        private int edgeCount;
+        private int portCount;
+        private int touchingPairCount;
+        private int portPairingCount;
+        private int[] hyperedgesOfDegree = new int[0];
+        private Map<String, NumberDistribution<Integer>> distributions = new LinkedHashMap<>();
+
+        private void add(String distributionName, int value) {
+            distributions.computeIfAbsent(distributionName, name -> new NumberDistribution<>()).add(value);
+        }
+
+        private void addHyperedge(int degree) {
+            if (degree >= hyperedgesOfDegree.length) {
+                hyperedgesOfDegree = Arrays.copyOf(hyperedgesOfDegree, degree + 1);
+            }
+            ++hyperedgesOfDegree[degree];
+        }
+
+        private Object getValue(String propertyName) {
+            switch (propertyName) {
+                case "vertexCount":
+                    return vertexCount;
+                case "edgeCount":
+                    return edgeCount;
+                case "portCount":
+                    return portCount;
+                case "touchingPairCount":
+                    return touchingPairCount;
+                case "portPairingCount":
+                    return portPairingCount;
+            }
+            if (propertyName.startsWith(HYPEREDGES_OF_DEGREE + ">")) {
+                //all edges of greater degree
+                int degree = Integer.parseInt(propertyName.substring(HYPEREDGES_OF_DEGREE.length() + 1));
+                int sum = 0;
+                for (int i = degree + 1; i < hyperedgesOfDegree.length; i++) {
+                    sum += hyperedgesOfDegree[i];
+                }
+                return sum;
+            }
+            if (propertyName.startsWith(HYPEREDGES_OF_DEGREE)) {
+                int degree = Integer.parseInt(propertyName.substring(HYPEREDGES_OF_DEGREE.length()));
+                return degree < hyperedgesOfDegree.length ? hyperedgesOfDegree[degree] : 0;
+            }
+            return distributions.getOrDefault(propertyName, new NumberDistribution<>());
+        }
+    }
+
+    private static class UninterpretableJsonException extends IOException {
+    }
+}
@@ -0,0 +1,405 @@
+package de.uniwue.informatik.praline.pseudocircuitplans.properties;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link DataSetColumns} for data sets that do not fit into the heap.
+ * The values of a sheet are not kept in memory but appended to one column file per property in a directory as soon as
+ * the sheet is spilled. All statistics are computed by streaming over the memory-mapped column files: those that are
+ * not rank based (see {@link StatisticParameter#isRankBased()}) directly, the others from one primitive double per
+ * plan (and the distribution of a single plan).
+ * <br/>
+ * Hence, the sheets themselves are not there any more. Only numerical and number distribution properties are stored
+ * and every spilled sheet must have a value for each of them. Sheets may be spilled in parallel; their order is the
+ * order in which they were spilled. Statistics of different properties may be computed in parallel to each other and
+ * to spilling, since a property's columns are locked only while they are written or flushed.
+ * <br/>
+ * A numerical property has one file with one record per plan, a number distribution property has one file with the
+ * size of the distribution of each plan and one file with all numbers of all plans. A number is stored as type and 8
+ * bytes, s.t. it is read as the same double value as {@link Number#doubleValue()} of the spilled number.
+ */
+public class SpilledDataSetProperties implements DataSetColumns, Closeable {
+
+    private static final String FILE_ENDING = ".col";
+
+    private static final String SIZES_FILE_ENDING = ".sizes" + FILE_ENDING;
+
+    private static final int NUMBER_RECORD_SIZE = 1 + Long.BYTES;
+
+    private static final int SIZE_RECORD_SIZE = Integer.BYTES;
+
+    /**
+     * a column file is mapped in windows of this many records, s.t. files larger than 2 GB can be read
+     */
+    private static final int RECORDS_PER_WINDOW = 1 << 24;
+
+    private static final byte TYPE_INTEGER = 'I';
+
+    private static final byte TYPE_LONG = 'L';
+
+    private static final byte TYPE_FLOAT = 'F';
+
+    private static final byte TYPE_DOUBLE = 'D';
+
+    private File directory;
+
+    private Map<String, ColumnFile> valueColumns = new LinkedHashMap<>();
+
+    private Map<String, ColumnFile> sizeColumns = new LinkedHashMap<>();
+
+    private Map<String, Property> properties = new LinkedHashMap<>();
+
+    /**
+     * increased after the values of a sheet were written to all columns
+     */
+    private volatile int numberOfPlans = 0;
+
+    /**
+     * @param directoryPath
+     *      directory for the column files -- existing column files of the same properties are overwritten
+     * @param properties
+     *      all numerical and number distribution properties among them are stored
+     * @throws IOException
+     */
+    public SpilledDataSetProperties(String directoryPath, Collection<Property> properties) throws IOException {
+        this.directory = new File(directoryPath);
+        this.directory.mkdirs();
+        for (Property property : properties) {
+            String propertyName = property.getPropertyName();
+            if (property instanceof NumericalProperty) {
+                valueColumns.put(propertyName, new ColumnFile(new File(directory, propertyName + FILE_ENDING)));
+            }
+            else if (property instanceof NumberDistributionProperty) {
+                valueColumns.put(propertyName, new ColumnFile(new File(directory, propertyName + FILE_ENDING)));
+                sizeColumns.put(propertyName, new ColumnFile(new File(directory, propertyName + SIZES_FILE_ENDING)));
+            }
+            else {
+                continue;
+            }
+            this.properties.put(propertyName, property);
+        }
+    }
+
+    /**
+     * Appends all values of this sheet to the column files. The sheet itself is not kept.
+     *
+     * @param propertySheet
+     * @throws IOException
+     *      if a value is missing or of an unsupported type
+     */
+    public synchronized void spill(PropertySheet propertySheet) throws IOException {
+        for (Property property : properties.values()) {
+            if (!propertySheet.hasValue(property)) {
+                throw new IOException("Sheet " + propertySheet.getPlanId() + " has no value of " +
+                        property.getPropertyName() + ".");
+            }
+        }
+        for (Property property : properties.values()) {
+            String propertyName = property.getPropertyName();
+            Object value = propertySheet.getPropertyValue(property);
+            ColumnFile valueColumn = valueColumns.get(propertyName);
+            //the value column locks all columns of its property
+            synchronized (valueColumn) {
+                if (property instanceof NumberDistributionProperty) {
+                    NumberDistribution<?> distribution = (NumberDistribution<?>) value;
+                    sizeColumns.get(propertyName).outputStream.writeInt(distribution.size());
+                    for (Number number : distribution) {
+                        writeNumber(valueColumn.outputStream, number);
+                    }
+                }
+                else {
+                    writeNumber(valueColumn.outputStream, (Number) value);
+                }
+            }
+        }
+        ++numberOfPlans;
+    }
+
+    @Override
+    public int getNumberOfPlans() {
+        return numberOfPlans;
+    }
+
+    @Override
+    public boolean hasValuesOf(Property property) {
+        return properties.containsKey(property.getPropertyName());
+    }
+
+    @Override
+    public <N extends Number & Comparable> double get(NumericalProperty<N> property,
+                                                      StatisticParameter statisticParameter) {
+        try {
+            if (statisticParameter.isRankBased()) {
+                double[] column = readColumn(property);
+                return NumberDistribution.getRankStatistic(StreamedStatistics.sort(column, column.length),
+                        statisticParameter);
+            }
+            int numberOfPlans = flush(property);
+            StreamedStatistics statistics = new StreamedStatistics();
+            try (ColumnReader values = openReader(valueColumns, property, NUMBER_RECORD_SIZE)) {
+                for (int i = 0; i < numberOfPlans; i++) {
+                    statistics.add(readDouble(values.next()));
+                }
+            }
+            if (StreamedStatistics.needsDeviations(statisticParameter)) {
+                try (ColumnReader values = openReader(valueColumns, property, NUMBER_RECORD_SIZE)) {
+                    for (int i = 0; i < numberOfPlans; i++) {
+                        statistics.addDeviation(readDouble(values.next()));
+                    }
+                }
+            }
+            return statistics.get(statisticParameter);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public double get(NumberDistributionProperty<?> property,
+                      StatisticParameter useThisParameterForInternalDataOfEachGraph,
+                      StatisticParameter statisticParameter) {
+        try {
+            double[] column = readInnerColumns(property, EnumSet.of(useThisParameterForInternalDataOfEachGraph))
+                    [useThisParameterForInternalDataOfEachGraph.ordinal()];
+            return StreamedStatistics.get(column, column.length, statisticParameter);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public PropertyColumns getColumns(Property property) {
+        try {
+            if (property instanceof NumericalProperty) {
+                return new PropertyColumns(property, new double[][]{readColumn((NumericalProperty<?>) property)});
+            }
+            if (property instanceof NumberDistributionProperty) {
+                return new PropertyColumns(property, readInnerColumns((NumberDistributionProperty<?>) property,
+                        EnumSet.allOf(StatisticParameter.class)));
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        throw new IllegalArgumentException("Only numerical and number distribution properties have columns.");
+    }
+
+    /**
+     * @param property
+     * @return
+     *      the values of all plans
+     * @throws IOException
+     */
+    private double[] readColumn(NumericalProperty<?> property) throws IOException {
+        int numberOfPlans = flush(property);
+        double[] column = new double[numberOfPlans];
+        try (ColumnReader values = openReader(valueColumns, property, NUMBER_RECORD_SIZE)) {
+            for (int i = 0; i < numberOfPlans; i++) {
+                column[i] = readDouble(values.next());
+            }
+        }
+        return column;
+    }
+
+    /**
+     * Goes through the plans once. The numbers of one plan are kept in a buffer, which is sorted only once for all
+     * rank based statistics.
+     *
+     * @param property
+     * @param statisticParameters
+     *      statistics that are computed for the distribution of each plan
+     * @return
+     *      [statistic parameter][plan] -- only the arrays of these statistic parameters exist
+     * @throws IOException
+     */
+    private double[][] readInnerColumns(NumberDistributionProperty<?> property,
+                                        EnumSet<StatisticParameter> statisticParameters) throws IOException {
+        int numberOfPlans = flush(property);
+        double[][] columns = new double[StatisticParameter.values().length][];
+        boolean rankBased = false;
+        for (StatisticParameter statisticParameter : statisticParameters) {
+            columns[statisticParameter.ordinal()] = new double[numberOfPlans];
+            rankBased |= statisticParameter.isRankBased();
+        }
+        double[] distributionOfPlan = new double[0];
+        try (ColumnReader sizes = openReader(sizeColumns, property, SIZE_RECORD_SIZE);
+             ColumnReader values = openReader(valueColumns, property, NUMBER_RECORD_SIZE)) {
+            for (int i = 0; i < numberOfPlans; i++) {
+                int size = sizes.next().getInt();
+                if (distributionOfPlan.length < size) {
+                    distributionOfPlan = new double[Math.max(size, 2 * distributionOfPlan.length)];
+                }
+                for (int j = 0; j < size; j++) {
+                    distributionOfPlan[j] = readDouble(values.next());
+                }
+                StreamedStatistics statistics = StreamedStatistics.of(distributionOfPlan, size);
+                double[] sortedValues = rankBased ? StreamedStatistics.sort(distributionOfPlan, size) : null;
+                for (StatisticParameter statisticParameter : statisticParameters) {
+                    columns[statisticParameter.ordinal()][i] = statisticParameter.isRankBased() ?
+                            NumberDistribution.getRankStatistic(sortedValues, statisticParameter) :
+                            statistics.get(statisticParameter);
+                }
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Closes and deletes all column files. Afterwards, no statistics can be computed any more.
+     *
+     * @throws IOException
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        for (Map<String, ColumnFile> columns : List.of(valueColumns, sizeColumns)) {
+            for (ColumnFile column : columns.values()) {
+                column.outputStream.close();
+                Files.deleteIfExists(column.file.toPath());
+            }
+            columns.clear();
+        }
+    }
+
+    /**
+     * Flushes the columns of this property, s.t. they contain the values of all plans spilled so far. It locks only
+     * these columns.
+     *
+     * @param property
+     * @return
+     *      the number of plans whose values can be read from the columns
+     * @throws IOException
+     */
+    private int flush(Property property) throws IOException {
+        ColumnFile valueColumn = getColumn(valueColumns, property);
+        synchronized (valueColumn) {
+            valueColumn.outputStream.flush();
+            ColumnFile sizeColumn = sizeColumns.get(property.getPropertyName());
+            if (sizeColumn != null) {
+                sizeColumn.outputStream.flush();
+            }
+            //a sheet is counted only after it was written to all columns
+            return numberOfPlans;
+        }
+    }
+
+    /**
+     * @param columns
+     * @param property
+     * @param recordSize
+     * @return
+     *      reader of the column of this property, which must be flushed before
+     * @throws IOException
+     */
+    private ColumnReader openReader(Map<String, ColumnFile> columns, Property property, int recordSize)
+            throws IOException {
+        return new ColumnReader(getColumn(columns, property).file, recordSize);
+    }
+
+    private static ColumnFile getColumn(Map<String, ColumnFile> columns, Property property) throws IOException {
+        ColumnFile column = columns.get(property.getPropertyName());
+        if (column == null) {
+            throw new IOException("There are no values of " + property.getPropertyName() + ".");
+        }
+        return column;
+    }
+
+    private static void writeNumber(DataOutputStream outputStream, Number number) throws IOException {
+        if (number instanceof Integer || number instanceof Long) {
+            outputStream.writeByte(number instanceof Integer ? TYPE_INTEGER : TYPE_LONG);
+            outputStream.writeLong(number.longValue());
+        }
+        else if (number instanceof Float) {
+            outputStream.writeByte(TYPE_FLOAT);
+            outputStream.writeLong(Float.floatToRawIntBits(number.floatValue()));
+        }
+        else if (number instanceof Double) {
+            outputStream.writeByte(TYPE_DOUBLE);
+            outputStream.writeLong(Double.doubleToRawLongBits(number.doubleValue()));
+        }
+        else {
+            throw new IOException("Numbers of type " + number.getClass().getSimpleName() + " are not supported.");
+        }
+    }
+
+    /**
+     * @param record
+     * @return
+     *      the number of this record as double without boxing it
+     * @throws IOException
+     */
+    private static double readDouble(ByteBuffer record) throws IOException {
+        byte type = record.get();
+        long bits = record.getLong();
+        switch (type) {
+            case TYPE_INTEGER:
+            case TYPE_LONG:
+                return (double) bits;
+            case TYPE_FLOAT:
+                return Float.intBitsToFloat((int) bits);
+            case TYPE_DOUBLE:
+                return Double.longBitsToDouble(bits);
+            default:
+                throw new IOException("Unknown type of number " + type + " in column file.");
+        }
+    }
+
+    private static class ColumnFile {
+        private File file;
+        private DataOutputStream outputStream;
+
+        private ColumnFile(File file) throws IOException {
+            this.file = file;
+            this.outputStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath())));
+        }
+    }
+
+    /**
+     * Reads the records of a column file one after another. The file is mapped window by window; a window contains only
+     * whole records.
+     */
+    private static class ColumnReader implements Closeable {
+        private FileChannel channel;
+        private int recordSize;
+        private long windowEnd = 0;
+        private ByteBuffer window = ByteBuffer.allocate(0);
+
+        private ColumnReader(File file, int recordSize) throws IOException {
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            this.recordSize = recordSize;
+        }
+
+        /**
+         * @return
+         *      buffer positioned at the next record
+         */
+        private ByteBuffer next() throws IOException {
+            if (window.remaining() < recordSize) {
+                long windowSize = Math.min((long) recordSize * RECORDS_PER_WINDOW, channel.size() - windowEnd);
+                //a record that is just being appended is left out
+                windowSize -= windowSize % recordSize;
+                if (windowSize < recordSize) {
+                    throw new EOFException("Column file is shorter than expected.");
+                }
+                window = channel.map(FileChannel.MapMode.READ_ONLY, windowEnd, windowSize);
+                windowEnd += windowSize;
+            }
+            return window;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -13,5 +13,57 @@ public enum StatisticParameter {
     COUNT,
     COUNT_MIN,
     COUNT_MAX,
-    COUNT_MODE
+    COUNT_MODE,
+    P5,
+    P25,
+    P75,
+    P95,
+    P99,
+    /**
+     * interquartile range, i.e., P75 - P25
+     */
+    IQR;
+
+    /**
+     * @return
+     *      true if this parameter depends on the ranks of the values, s.t. they have to be sorted, or false if it can
+     *      be computed by going through the values in any order
+     */
+    public boolean isRankBased() {
+        switch (this) {
+            case MIN:
+            case MAX:
+            case MEAN:
+            case VARIANCE:
+            case STANDARD_DEVIATION:
+            case SUM:
+            case COUNT:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * @return
+     *      the fraction of the percentile of this parameter (e.g. 0.05 for P5) or NaN if it is no percentile
+     */
+    public double getPercentileFraction() {
+        switch (this) {
+            case P5:
+                return 0.05;
+            case P25:
+                return 0.25;
+            case MEDIAN:
+                return 0.5;
+            case P75:
+                return 0.75;
+            case P95:
+                return 0.95;
+            case P99:
+                return 0.99;
+            default:
+                return Double.NaN;
+        }
+    }
 }
@@ -0,0 +1,330 @@
+package de.uniwue.informatik.praline.pseudocircuitplans.properties;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mergeable aggregate of a sequence of numbers from which every {@link StatisticParameter} can be computed like by
+ * {@link NumberDistribution#get(StatisticParameter)}, but without keeping the numbers themselves.
+ * <br/>
+ * It consists of the count, the sum, the running mean and sum of squared deviations (Welford), the minimum, the maximum
+ * and the number of occurrences of each distinct value (for median and mode). Two summaries of disjoint sequences are
+ * combined by {@link StatisticSummary#merge(StatisticSummary)} as if all numbers had been added to one summary.
+ * <br/>
+ * As in {@link NumberDistribution}, NaNs count only for {@link StatisticParameter#COUNT}.
+ * <br/>
+ * For numbers with many distinct values, the occurrences may be replaced by a {@link KllSketch}, which needs constant
+ * memory. Then {@link StatisticParameter#MEDIAN}, {@link StatisticSummary#getQuantile(double)} and
+ * {@link StatisticSummary#getRank(double)} are approximations and the mode cannot be computed (NaN).
+ */
+public class StatisticSummary {
+
+    /**
+     * all numbers including NaNs
+     */
+    private long count = 0;
+
+    /**
+     * all numbers except NaNs
+     */
+    private long countedEntries = 0;
+
+    private double sum = 0;
+
+    private double mean = 0;
+
+    /**
+     * sum of squared deviations from {@link StatisticSummary#mean}
+     */
+    private double squaredDeviations = 0;
+
+    private double min = Double.POSITIVE_INFINITY;
+
+    private double max = Double.NEGATIVE_INFINITY;
+
+    private long minCount = 0;
+
+    private long maxCount = 0;
+
+    /**
+     * exact occurrences of all values if {@link StatisticSummary#sketch} is null
+     */
+    private TreeMap<Double, Long> valueCounts = new TreeMap<>();
+
+    private KllSketch sketch;
+
+    /**
+     * summary with exact occurrences of all values
+     */
+    public StatisticSummary() {
+        this(false);
+    }
+
+    /**
+     * @param useQuantileSketch
+     *      if true, the values are kept in a {@link KllSketch} instead of counting the exact occurrences of all values
+     */
+    public StatisticSummary(boolean useQuantileSketch) {
+        if (useQuantileSketch) {
+            this.sketch = new KllSketch();
+            this.valueCounts = null;
+        }
+    }
+
+    public boolean usesQuantileSketch() {
+        return sketch != null;
+    }
+
+    public void add(Number number) {
+        add(number.doubleValue());
+    }
+
+    public void add(double value) {
+        ++count;
+        if (Double.isNaN(value)) {
+            return;
+        }
+        //-0.0 and 0.0 are the same value
+        value += 0.0;
+        ++countedEntries;
+        sum += value;
+        double delta = value - mean;
+        mean += delta / countedEntries;
+        squaredDeviations += delta * (value - mean);
+        minCount = value < min ? 1 : value == min ? minCount + 1 : minCount;
+        maxCount = value > max ? 1 : value == max ? maxCount + 1 : maxCount;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        if (sketch != null) {
+            sketch.add(value);
+        }
+        else {
+            valueCounts.merge(value, 1L, Long::sum);
+        }
+    }
+
+    /**
+     * Adds all numbers of the other summary to this summary. The other summary is not changed.
+     *
+     * @param other
+     *      must use a quantile sketch iff this summary uses one
+     */
+    public void merge(StatisticSummary other) {
+        if (usesQuantileSketch() != other.usesQuantileSketch()) {
+            throw new IllegalArgumentException("A summary with quantile sketch cannot be merged with one without.");
+        }
+        if (other.countedEntries > 0) {
+            long mergedCountedEntries = countedEntries + other.countedEntries;
+            double delta = other.mean - mean;
+            mean += delta * other.countedEntries / mergedCountedEntries;
+            squaredDeviations += other.squaredDeviations +
+                    delta * delta * countedEntries * other.countedEntries / mergedCountedEntries;
+            countedEntries = mergedCountedEntries;
+            sum += other.sum;
+            minCount = other.min < min ? other.minCount : other.min == min ? minCount + other.minCount : minCount;
+            maxCount = other.max > max ? other.maxCount : other.max == max ? maxCount + other.maxCount : maxCount;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            if (sketch != null) {
+                sketch.merge(other.sketch);
+            }
+            else {
+                for (Map.Entry<Double, Long> valueCount : other.valueCounts.entrySet()) {
+                    valueCounts.merge(valueCount.getKey(), valueCount.getValue(), Long::sum);
+                }
+            }
+        }
+        count += other.count;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double get(StatisticParameter statisticParameter) {
+        switch (statisticParameter) {
+            case MIN:
+                return countedEntries == 0 ? Double.NaN : min;
+
+            case MAX:
+                return countedEntries == 0 ? Double.NaN : max;
+
+            case MEAN:
+                return count == 0 ? Double.NaN : sum / (double) countedEntries;
+
+            case MEDIAN:
+            case P5:
+            case P25:
+            case P75:
+            case P95:
+            case P99:
+                return getQuantile(statisticParameter.getPercentileFraction());
+
+            case IQR:
+                return getQuantile(0.75) - getQuantile(0.25);
+
+            case MODE_SMALLEST:
+                return determineMode(false);
+
+            case MODE_LARGEST:
+                return determineMode(true);
+
+            case VARIANCE:
+                return countedEntries == 0 ? Double.NaN : squaredDeviations / (double) countedEntries;
+
+            case STANDARD_DEVIATION:
+                return Math.sqrt(this.get(StatisticParameter.VARIANCE));
+
+            case SUM:
+                return sum;
+
+            case COUNT:
+                return count;
+
+            case COUNT_MIN:
+                return minCount;
+
+            case COUNT_MAX:
+                return maxCount;
+
+            case COUNT_MODE:
+                return countValue(this.get(StatisticParameter.MODE_SMALLEST));
+
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * @param fraction
+     *      between 0 and 1
+     * @return
+     *      the quantile of this fraction of all numbers except NaNs, interpolated linearly between the two closest
+     *      ranks (so the quantile of 0.5 is the median) or NaN if there are no such numbers
+     */
+    public double getQuantile(double fraction) {
+        if (countedEntries == 0) {
+            return Double.NaN;
+        }
+        double position = fraction * (countedEntries - 1);
+        long lowerRank = (long) Math.floor(position);
+        double lowerValue = getValueAtRank(lowerRank);
+        if (lowerRank == position) {
+            return lowerValue;
+        }
+        return lowerValue + (position - lowerRank) * (getValueAtRank(lowerRank + 1) - lowerValue);
+    }
+
+    /**
+     * @param value
+     * @return
+     *      fraction of all numbers except NaNs that are at most value or NaN if there are no such numbers
+     */
+    public double getRank(double value) {
+        if (countedEntries == 0) {
+            return Double.NaN;
+        }
+        if (sketch != null) {
+            return sketch.getRank(value) / (double) countedEntries;
+        }
+        long rank = 0;
+        for (long valueCount : valueCounts.headMap(value, true).values()) {
+            rank += valueCount;
+        }
+        return rank / (double) countedEntries;
+    }
+
+    /**
+     * @param rank
+     *      0-based rank among all numbers except NaNs in ascending order
+     * @return
+     */
+    private double getValueAtRank(long rank) {
+        if (sketch != null) {
+            return sketch.getValueAtRank(rank);
+        }
+        long seen = 0;
+        for (Map.Entry<Double, Long> valueCount : valueCounts.entrySet()) {
+            seen += valueCount.getValue();
+            if (rank < seen) {
+                return valueCount.getKey();
+            }
+        }
+        return Double.NaN;
+    }
+
+    private double countValue(double value) {
+        if (sketch != null) {
+            return Double.NaN;
+        }
+        Long valueCount = valueCounts.get(value + 0.0);
+        return valueCount == null ? 0 : valueCount;
+    }
+
+    /**
+     * same result as {@link NumberDistribution}: if no value occurs more than once, the smallest value is the mode
+     */
+    private double determineMode(boolean falseSmallestModeTrueLargestMode) {
+        if (countedEntries == 0 || sketch != null) {
+            return Double.NaN;
+        }
+        double mode = valueCounts.firstKey();
+        long maxOccurrence = 1;
+        for (Map.Entry<Double, Long> valueCount : valueCounts.entrySet()) {
+            if (valueCount.getValue() > maxOccurrence ||
+                    (falseSmallestModeTrueLargestMode && valueCount.getValue() == maxOccurrence && maxOccurrence > 1)) {
+                maxOccurrence = valueCount.getValue();
+                mode = valueCount.getKey();
+            }
+        }
+        return mode;
+    }
+
+    public void write(DataOutputStream outputStream) throws IOException {
+        outputStream.writeLong(count);
+        outputStream.writeLong(countedEntries);
+        outputStream.writeDouble(sum);
+        outputStream.writeDouble(mean);
+        outputStream.writeDouble(squaredDeviations);
+        outputStream.writeDouble(min);
+        outputStream.writeDouble(max);
+        outputStream.writeLong(minCount);
+        outputStream.writeLong(maxCount);
+        outputStream.writeBoolean(sketch != null);
+        if (sketch != null) {
+            sketch.write(outputStream);
+            return;
+        }
+        outputStream.writeInt(valueCounts.size());
+        for (Map.Entry<Double, Long> valueCount : valueCounts.entrySet()) {
+            outputStream.writeDouble(valueCount.getKey());
+            outputStream.writeLong(valueCount.getValue());
+        }
+    }
+
+    public static StatisticSummary read(DataInputStream inputStream) throws IOException {
+        StatisticSummary summary = new StatisticSummary();
+        summary.count = inputStream.readLong();
+        summary.countedEntries = inputStream.readLong();
+        summary.sum = inputStream.readDouble();
+        summary.mean = inputStream.readDouble();
+        summary.squaredDeviations = inputStream.readDouble();
+        summary.min = inputStream.readDouble();
+        summary.max = inputStream.readDouble();
+        summary.minCount = inputStream.readLong();
+        summary.maxCount = inputStream.readLong();
+        if (inputStream.readBoolean()) {
+            summary.valueCounts = null;
+            summary.sketch = KllSketch.read(inputStream);
+            return summary;
+        }
+        int numberOfDistinctValues = inputStream.readInt();
+        for (int i = 0; i < numberOfDistinctValues; i++) {
+            summary.valueCounts.put(inputStream.readDouble(), inputStream.readLong());
+        }
+        return summary;
+    }
+}
@@ -0,0 +1,168 @@
+package de.uniwue.informatik.praline.pseudocircuitplans.properties;
+
+import de.uniwue.informatik.praline.pseudocircuitplans.generatingnewplans.IOUtils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes property values and statistics in machine-readable files, s.t. they can be loaded (e.g. in a notebook)
+ * without analyzing the plans again:
+ * <ul>
+ *     <li>the values of each plan as csv (one row per plan, one column per numerical property and one column per
+ *     number distribution property and {@link StatisticParameter} of the distribution of the plan) and as
+ *     {@link DataSetPropertiesSnapshot} (with the complete distributions),</li>
+ *     <li>the statistics of one or several data sets ({@link StatisticsMatrix}) as csv (one row per property, inner
+ *     and outer statistic parameter with one column per data set) and as compact binary file.</li>
+ * </ul>
+ * The binary statistics file contains "PPST", the format version, the number of data sets, the names of all
+ * statistic parameters, the number of properties and for each property its name, whether it is a number distribution
+ * property and its statistics for every data set as doubles ([data set][inner][outer], inner only for number
+ * distribution properties).
+ */
+public class StatisticsExport {
+
+    public static final String PLAN_VALUES_CSV_ENDING = "-plans.csv";
+
+    public static final String PLAN_VALUES_SNAPSHOT_ENDING = "-plans.ppds";
+
+    public static final String STATISTICS_CSV_ENDING = "-statistics.csv";
+
+    public static final String STATISTICS_BINARY_ENDING = "-statistics.ppst";
+
+    private static final byte[] MAGIC = "PPST".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final String SEPARATOR = ",";
+
+    /**
+     * Writes the values of each plan to targetPathPrefix + {@link StatisticsExport#PLAN_VALUES_CSV_ENDING} and
+     * targetPathPrefix + {@link StatisticsExport#PLAN_VALUES_SNAPSHOT_ENDING}.
+     *
+     * @param dataSetProperties
+     * @param properties
+     *      numerical and number distribution properties among them are written to the csv file
+     * @param targetPathPrefix
+     * @throws IOException
+     */
+    public static void writePlanValues(DataSetProperties dataSetProperties, Collection<Property> properties,
+                                       String targetPathPrefix) throws IOException {
+        List<Property> exportedProperties = new ArrayList<>();
+        for (Property property : properties) {
+            if ((property instanceof NumericalProperty || property instanceof NumberDistributionProperty) &&
+                    dataSetProperties.hasValuesOf(property)) {
+                exportedProperties.add(property);
+            }
+        }
+
+        File csvFile = new File(targetPathPrefix + PLAN_VALUES_CSV_ENDING);
+        try (BufferedWriter writer = Files.newBufferedWriter(csvFile.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("planId");
+            for (Property property : exportedProperties) {
+                if (property instanceof NumericalProperty) {
+                    writer.write(SEPARATOR + escape(property.getPropertyName()));
+                    continue;
+                }
+                for (StatisticParameter statisticParameter : StatisticParameter.values()) {
+                    writer.write(SEPARATOR + escape(property.getPropertyName() + " (" + statisticParameter.name() +
+                            ")"));
+                }
+            }
+            writer.newLine();
+            for (PropertySheet propertySheet : dataSetProperties) {
+                writer.write(propertySheet.getPlanId() == null ? "" : escape(propertySheet.getPlanId()));
+                for (Property property : exportedProperties) {
+                    Object value = propertySheet.getPropertyValue(property);
+                    if (property instanceof NumericalProperty) {
+                        writer.write(SEPARATOR + value);
+                        continue;
+                    }
+                    NumberDistribution<?> distribution = (NumberDistribution<?>) value;
+                    for (StatisticParameter statisticParameter : StatisticParameter.values()) {
+                        writer.write(SEPARATOR + distribution.get(statisticParameter));
+                    }
+                }
+                writer.newLine();
+            }
+        }
+        DataSetPropertiesSnapshot.save(dataSetProperties, targetPathPrefix + PLAN_VALUES_SNAPSHOT_ENDING);
+    }
+
+    /**
+     * Writes the statistics of all data sets in one pass to targetPathPrefix +
+     * {@link StatisticsExport#STATISTICS_CSV_ENDING} and targetPathPrefix +
+     * {@link StatisticsExport#STATISTICS_BINARY_ENDING}.
+     *
+     * @param statistics
+     *      statistics of each data set, all with the same properties (in the same order)
+     * @param targetPathPrefix
+     * @throws IOException
+     */
+    public static void writeStatistics(List<Map<Property, StatisticsMatrix>> statistics, String targetPathPrefix)
+            throws IOException {
+        StatisticParameter[] statisticParameters = StatisticParameter.values();
+        Collection<Property> properties = statistics.get(0).keySet();
+        File csvFile = new File(targetPathPrefix + STATISTICS_CSV_ENDING);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BufferedWriter writer = Files.newBufferedWriter(csvFile.toPath(), StandardCharsets.UTF_8);
+             DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(bytes))) {
+            writer.write("property" + SEPARATOR + "inner" + SEPARATOR + "statistic");
+            for (int i = 0; i < statistics.size(); i++) {
+                writer.write(SEPARATOR + "dataSet" + i);
+            }
+            writer.newLine();
+            outputStream.write(MAGIC);
+            outputStream.writeInt(FORMAT_VERSION);
+            outputStream.writeInt(statistics.size());
+            outputStream.writeInt(statisticParameters.length);
+            for (StatisticParameter statisticParameter : statisticParameters) {
+                outputStream.writeUTF(statisticParameter.name());
+            }
+            outputStream.writeInt(properties.size());
+
+            for (Property property : properties) {
+                boolean distribution = property instanceof NumberDistributionProperty;
+                outputStream.writeUTF(property.getPropertyName());
+                outputStream.writeBoolean(distribution);
+                //csv rows
+                for (StatisticParameter inner : distribution ? statisticParameters : new StatisticParameter[]{null}) {
+                    for (StatisticParameter outer : statisticParameters) {
+                        writer.write(escape(property.getPropertyName()) + SEPARATOR +
+                                (inner == null ? "" : inner.name()) + SEPARATOR + outer.name());
+                        for (Map<Property, StatisticsMatrix> statisticsOfDataSet : statistics) {
+                            writer.write(SEPARATOR + get(statisticsOfDataSet.get(property), inner, outer));
+                        }
+                        writer.newLine();
+                    }
+                }
+                //binary columns
+                for (Map<Property, StatisticsMatrix> statisticsOfDataSet : statistics) {
+                    for (StatisticParameter inner :
+                            distribution ? statisticParameters : new StatisticParameter[]{null}) {
+                        for (StatisticParameter outer : statisticParameters) {
+                            outputStream.writeDouble(get(statisticsOfDataSet.get(property), inner, outer));
+                        }
+                    }
+                }
+            }
+        }
+        IOUtils.saveBytes(bytes.toByteArray(), targetPathPrefix + STATISTICS_BINARY_ENDING);
+    }
+
+    private static double get(StatisticsMatrix matrix, StatisticParameter inner, StatisticParameter outer) {
+        return inner == null ? matrix.get(outer) : matrix.get(inner, outer);
+    }
+
+    private static String escape(String value) {
+        if (value.contains(SEPARATOR) || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
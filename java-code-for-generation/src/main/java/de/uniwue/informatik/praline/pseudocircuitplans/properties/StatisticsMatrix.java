@@ -0,0 +1,129 @@
+package de.uniwue.informatik.praline.pseudocircuitplans.properties;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * All statistics of one property over a data set, computed at once:
+ * for a {@link NumericalProperty} the value of every {@link StatisticParameter} over the values of all plans and for a
+ * {@link NumberDistributionProperty} the value of every combination of a statistic parameter for the distribution of
+ * each plan (inner) and a statistic parameter over all plans (outer).
+ * <br/>
+ * For {@link DataSetColumns}, the plans are gone through only once per property: all statistics are computed from
+ * the {@link PropertyColumns}, which are sorted only once and can be shared with the other computations of the
+ * property. Other {@link DataSetStatistics} (e.g. {@link DataSetSummary}) are asked for each value.
+ */
+public class StatisticsMatrix {
+
+    private Property property;
+
+    /**
+     * [inner][outer] -- for a numerical property there is only the inner index 0
+     */
+    private double[][] values;
+
+    private StatisticsMatrix(Property property, double[][] values) {
+        this.property = property;
+        this.values = values;
+    }
+
+    public static StatisticsMatrix compute(DataSetStatistics dataSet, Property property) {
+        if (dataSet instanceof DataSetColumns) {
+            return compute(((DataSetColumns) dataSet).getColumns(property));
+        }
+        StatisticParameter[] statisticParameters = StatisticParameter.values();
+        if (property instanceof NumericalProperty) {
+            double[][] values = new double[1][statisticParameters.length];
+            for (StatisticParameter outer : statisticParameters) {
+                values[0][outer.ordinal()] = dataSet.get((NumericalProperty) property, outer);
+            }
+            return new StatisticsMatrix(property, values);
+        }
+        if (property instanceof NumberDistributionProperty) {
+            NumberDistributionProperty<?> distributionProperty = (NumberDistributionProperty<?>) property;
+            double[][] values = new double[statisticParameters.length][statisticParameters.length];
+            for (StatisticParameter inner : statisticParameters) {
+                for (StatisticParameter outer : statisticParameters) {
+                    values[inner.ordinal()][outer.ordinal()] = dataSet.get(distributionProperty, inner, outer);
+                }
+            }
+            return new StatisticsMatrix(property, values);
+        }
+        throw new IllegalArgumentException("Only numerical and number distribution properties have statistics.");
+    }
+
+    public static StatisticsMatrix compute(PropertyColumns columns) {
+        double[][] values = new double[columns.getNumberOfColumns()][];
+        for (int column = 0; column < values.length; column++) {
+            values[column] = columns.computeStatistics(column);
+        }
+        return new StatisticsMatrix(columns.getProperty(), values);
+    }
+
+    /**
+     * Computes the matrices of several properties in parallel.
+     *
+     * @param dataSet
+     * @param properties
+     *      numerical or number distribution properties
+     * @param numberOfThreads
+     * @return
+     *      the matrices in the order of the properties
+     * @throws IOException
+     *      if a matrix cannot be computed (e.g. because the values are spilled to a file that cannot be read)
+     */
+    public static LinkedHashMap<Property, StatisticsMatrix> computeAll(DataSetStatistics dataSet,
+                                                                        Collection<Property> properties,
+                                                                        int numberOfThreads) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        try {
+            LinkedHashMap<Property, Future<StatisticsMatrix>> futures = new LinkedHashMap<>();
+            for (Property property : properties) {
+                futures.put(property, executor.submit(() -> compute(dataSet, property)));
+            }
+            LinkedHashMap<Property, StatisticsMatrix> matrices = new LinkedHashMap<>();
+            for (Map.Entry<Property, Future<StatisticsMatrix>> future : futures.entrySet()) {
+                matrices.put(future.getKey(), future.getValue().get());
+            }
+            return matrices;
+        }
+        catch (ExecutionException e) {
+            throw new IOException("Computing the statistics failed.", e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Computing the statistics was interrupted.", e);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public Property getProperty() {
+        return property;
+    }
+
+    /**
+     * @param statisticParameter
+     * @return
+     *      statistic of a {@link NumericalProperty}
+     */
+    public double get(StatisticParameter statisticParameter) {
+        return values[0][statisticParameter.ordinal()];
+    }
+
+    /**
+     * @param useThisParameterForInternalDataOfEachGraph
+     * @param statisticParameter
+     * @return
+     *      statistic of a {@link NumberDistributionProperty}
+     */
+    public double get(StatisticParameter useThisParameterForInternalDataOfEachGraph,
+                      StatisticParameter statisticParameter) {
+        return values[useThisParameterForInternalDataOfEachGraph.ordinal()][statisticParameter.ordinal()];
+    }
+}
@@ -0,0 +1,136 @@
+package de.uniwue.informatik.praline.pseudocircuitplans.properties;
+
+import java.util.Arrays;
+
+/**
+ * The statistics that are not rank based (see {@link StatisticParameter#isRankBased()}) of values that are streamed
+ * one after another instead of being kept in a {@link NumberDistribution}. They are computed like in
+ * {@link NumberDistribution#get(StatisticParameter)}: NaNs are skipped except for {@link StatisticParameter#COUNT}.
+ * <br/>
+ * All values are passed once to {@link StreamedStatistics#add(double)} and, only for the variance and the standard
+ * deviation, once more to {@link StreamedStatistics#addDeviation(double)}.
+ */
+class StreamedStatistics {
+
+    private int count = 0;
+
+    private int countedEntries = 0;
+
+    private double sum = 0;
+
+    private double min = Double.POSITIVE_INFINITY;
+
+    private double max = Double.NEGATIVE_INFINITY;
+
+    private double sumOfSquaredDeviations = 0;
+
+    /**
+     * @param values
+     * @param length
+     *      only the first this many values are used
+     * @return
+     *      the statistics of these values, for which they are gone through twice
+     */
+    static StreamedStatistics of(double[] values, int length) {
+        StreamedStatistics statistics = new StreamedStatistics();
+        for (int i = 0; i < length; i++) {
+            statistics.add(values[i]);
+        }
+        for (int i = 0; i < length; i++) {
+            statistics.addDeviation(values[i]);
+        }
+        return statistics;
+    }
+
+    /**
+     * @param values
+     * @param length
+     *      only the first this many values are used
+     * @return
+     *      these values except NaNs in ascending order (like {@link NumberDistribution#getSortedValues()})
+     */
+    static double[] sort(double[] values, int length) {
+        double[] sortedValues = new double[length];
+        int numberOfValues = 0;
+        for (int i = 0; i < length; i++) {
+            if (!Double.isNaN(values[i])) {
+                //-0.0 and 0.0 are the same value
+                sortedValues[numberOfValues++] = values[i] + 0.0;
+            }
+        }
+        sortedValues = Arrays.copyOf(sortedValues, numberOfValues);
+        Arrays.sort(sortedValues);
+        return sortedValues;
+    }
+
+    /**
+     * @param values
+     * @param length
+     *      only the first this many values are used
+     * @param statisticParameter
+     * @return
+     *      the value of this parameter for these values -- they are only copied if it is rank based
+     */
+    static double get(double[] values, int length, StatisticParameter statisticParameter) {
+        if (statisticParameter.isRankBased()) {
+            return NumberDistribution.getRankStatistic(sort(values, length), statisticParameter);
+        }
+        return of(values, length).get(statisticParameter);
+    }
+
+    /**
+     * @param statisticParameter
+     * @return
+     *      true if the values must be passed to {@link StreamedStatistics#addDeviation(double)} for this parameter
+     */
+    static boolean needsDeviations(StatisticParameter statisticParameter) {
+        return statisticParameter == StatisticParameter.VARIANCE ||
+                statisticParameter == StatisticParameter.STANDARD_DEVIATION;
+    }
+
+    void add(double value) {
+        ++count;
+        if (Double.isNaN(value)) {
+            return;
+        }
+        ++countedEntries;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * @param value
+     *      after all values are added, each value again
+     */
+    void addDeviation(double value) {
+        if (!Double.isNaN(value)) {
+            sumOfSquaredDeviations += Math.pow(value - get(StatisticParameter.MEAN), 2);
+        }
+    }
+
+    /**
+     * @param statisticParameter
+     *      not rank based
+     */
+    double get(StatisticParameter statisticParameter) {
+        switch (statisticParameter) {
+            case MIN:
+                return count == 0 || min == Double.POSITIVE_INFINITY ? Double.NaN : min;
+            case MAX:
+                return count == 0 || max == Double.NEGATIVE_INFINITY ? Double.NaN : max;
+            case MEAN:
+                return count == 0 ? Double.NaN : sum / (double) countedEntries;
+            case VARIANCE:
+                return sumOfSquaredDeviations / (double) countedEntries;
+            case STANDARD_DEVIATION:
+                return Math.sqrt(get(StatisticParameter.VARIANCE));
+            case SUM:
+                return sum;
+            case COUNT:
+                return count;
+            default:
+                throw new IllegalArgumentException(statisticParameter + " is rank based.");
+        }
+    }
+}